@@ -0,0 +1,107 @@
+package net.smartcosmos.dao.things.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.Page;
+import net.smartcosmos.dto.things.ThingResponse;
+
+/**
+ * Benchmarks the conversion of a Spring Data page of {@link ThingEntity} instances into a {@link Page} of {@link ThingResponse} instances,
+ * and of a list of entities into a list of responses. The {@code legacy} benchmarks convert each element through the conversion service,
+ * as before the {@link ThingResponseMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpringDataPageToThingResponsePageConverterBenchmark {
+
+    private static final TypeDescriptor ENTITY_LIST = TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(ThingEntity.class));
+    private static final TypeDescriptor RESPONSE_LIST = TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(ThingResponse.class));
+
+    @Param({ "20", "200", "2000" })
+    public int pageSize;
+
+    private DefaultConversionService conversionService;
+    private ThingResponseMapper mapper;
+    private SpringDataPageToThingResponsePageConverter converter;
+
+    private org.springframework.data.domain.Page<ThingEntity> page;
+
+    @Setup
+    public void setUp() {
+
+        conversionService = new DefaultConversionService();
+        conversionService.addConverter(new ThingEntityToThingResponseConverter(new ThingResponseMapper()));
+
+        mapper = new ThingResponseMapper();
+        converter = new SpringDataPageToThingResponsePageConverter();
+        ReflectionTestUtils.setField(converter, "conversionService", conversionService);
+        ReflectionTestUtils.setField(converter, "mapper", mapper);
+
+        UUID tenantId = UuidUtil.getNewUuid();
+        List<ThingEntity> content = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            content.add(ThingEntity.builder()
+                            .id(UuidUtil.getNewUuid())
+                            .tenantId(tenantId)
+                            .type("type")
+                            .active(true)
+                            .build());
+        }
+        page = new PageImpl<>(content, new PageRequest(0, pageSize), pageSize * 10L);
+    }
+
+    @Benchmark
+    public Page<ThingResponse> convert() {
+
+        return converter.convert(page);
+    }
+
+    @Benchmark
+    public List<ThingResponse> convertContentLegacy() {
+
+        return page.getContent()
+            .stream()
+            .map(element -> conversionService.convert(element, ThingResponse.class))
+            .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<ThingResponse> mapList() {
+
+        return mapper.toResponses(page.getContent());
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<ThingResponse> mapListLegacy() {
+
+        return (List<ThingResponse>) conversionService.convert(page.getContent(), ENTITY_LIST, RESPONSE_LIST);
+    }
+}
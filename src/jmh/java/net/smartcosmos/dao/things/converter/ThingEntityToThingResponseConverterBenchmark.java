@@ -0,0 +1,44 @@
+package net.smartcosmos.dao.things.converter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.ThingResponse;
+
+/**
+ * Benchmarks the conversion of a single {@link ThingEntity} into a {@link ThingResponse}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThingEntityToThingResponseConverterBenchmark {
+
+    private final ThingEntityToThingResponseConverter converter = new ThingEntityToThingResponseConverter(new ThingResponseMapper());
+
+    private final ThingEntity entity = ThingEntity.builder()
+        .id(UuidUtil.getNewUuid())
+        .tenantId(UuidUtil.getNewUuid())
+        .type("type")
+        .active(true)
+        .build();
+
+    @Benchmark
+    public ThingResponse convert() {
+
+        return converter.convert(entity);
+    }
+}
@@ -0,0 +1,140 @@
+package net.smartcosmos.dao.things.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import net.smartcosmos.dao.things.ThingPersistenceConfig;
+import net.smartcosmos.dao.things.ThingsPersistenceTestApplication;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.Page;
+import net.smartcosmos.dto.things.ThingCreate;
+import net.smartcosmos.dto.things.ThingResponse;
+import net.smartcosmos.dto.things.ThingUpdate;
+
+/**
+ * Benchmarks the full {@link ThingPersistenceService} paths against the in-memory H2 database of the {@code test} profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThingPersistenceServiceBenchmark {
+
+    private static final String TYPE = "type";
+    private static final int THING_COUNT = 1000;
+
+    private final String tenantUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+    // keeps the growing number of created things out of the tenant that is used for the find benchmarks
+    private final String createTenantUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+    private final List<String> urns = new ArrayList<>(THING_COUNT);
+
+    private ConfigurableApplicationContext context;
+    private ThingPersistenceService service;
+
+    @Setup
+    public void setUp() {
+
+        context = new SpringApplicationBuilder(ThingsPersistenceTestApplication.class, ThingPersistenceConfig.class)
+            .profiles("test")
+            .properties("spring.cloud.config.enabled=false", "eureka.client.enabled=false", "logging.level.root=WARN")
+            .web(false)
+            .run();
+        service = context.getBean(ThingPersistenceService.class);
+
+        for (int i = 0; i < THING_COUNT; i++) {
+            ThingCreate create = ThingCreate.builder()
+                .type(TYPE)
+                .build();
+            urns.add(service.create(tenantUrn, create)
+                         .get()
+                         .getUrn());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<ThingResponse> create() {
+
+        ThingCreate create = ThingCreate.builder()
+            .type(TYPE)
+            .build();
+        return service.create(createTenantUrn, create);
+    }
+
+    @Benchmark
+    public Optional<ThingResponse> createWithUrnAndDelete() {
+
+        String urn = UuidUtil.getThingUrnFromUuid(UuidUtil.getNewUuid());
+        ThingCreate create = ThingCreate.builder()
+            .urn(urn)
+            .type(TYPE)
+            .build();
+        service.create(tenantUrn, create);
+        return service.delete(tenantUrn, TYPE, urn);
+    }
+
+    @Benchmark
+    public Optional<ThingResponse> findByTypeAndUrn() {
+
+        return service.findByTypeAndUrn(tenantUrn, TYPE, randomUrn());
+    }
+
+    @Benchmark
+    public Page<ThingResponse> findByType() {
+
+        return service.findByType(tenantUrn, TYPE, 1, 20);
+    }
+
+    @Benchmark
+    public List<ThingResponse> findByTypeAndUrns() {
+
+        return service.findByTypeAndUrns(tenantUrn, TYPE, urns.subList(0, 100));
+    }
+
+    @Benchmark
+    public Page<ThingResponse> findAll() {
+
+        return service.findAll(tenantUrn, 1, 20);
+    }
+
+    @Benchmark
+    public Optional<ThingResponse> update() {
+
+        ThingUpdate update = ThingUpdate.builder()
+            .active(ThreadLocalRandom.current()
+                        .nextBoolean())
+            .build();
+        return service.update(tenantUrn, TYPE, randomUrn(), update);
+    }
+
+    private String randomUrn() {
+
+        return urns.get(ThreadLocalRandom.current()
+                            .nextInt(urns.size()));
+    }
+}
@@ -0,0 +1,35 @@
+package net.smartcosmos.dao.things.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the translation of API sort field names in {@link ThingPersistenceUtil}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThingPersistenceUtilBenchmark {
+
+    @Param({ "urn", "lastModified", "ACTIVE", "unknown" })
+    public String sortBy;
+
+    @Benchmark
+    public String getSortByFieldName() {
+
+        return ThingPersistenceUtil.getSortByFieldName(sortBy);
+    }
+}
@@ -0,0 +1,220 @@
+package net.smartcosmos.dao.things.util;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.uuid.Generators;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for URN parsing and formatting and UUID generation in {@link UuidUtil}. URN parsing is compared with the former regular
+ * expression based implementation, URN formatting with the former {@code StringBuilder} based one, and UUID generation with the former
+ * string based one, also with four threads and in blocks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidUtilBenchmark {
+
+    private static final int BLOCK_SIZE = 100;
+
+    @State(Scope.Benchmark)
+    public static class UrnState {
+
+        @Param({ "valid", "uppercase", "malformed" })
+        public String input;
+
+        private String urn;
+
+        @Setup
+        public void setUp() {
+
+            switch (input) {
+                case "valid":
+                    urn = "urn:thing:uuid:8e24eabd-1be9-46ac-8c7d-1e753746b413";
+                    break;
+                case "uppercase":
+                    urn = "URN:THING:UUID:8E24EABD-1BE9-46AC-8C7D-1E753746B413";
+                    break;
+                default:
+                    urn = "urn:thing:uuid:8e24eabd-1be9-46ac-8c7d-1e753746b41x";
+                    break;
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UuidState {
+
+        private final UUID uuid = UUID.fromString("8e24eabd-1be9-46ac-8c7d-1e753746b413");
+    }
+
+    @Benchmark
+    public UUID parseUrn(UrnState state) {
+
+        try {
+            return UuidUtil.getUuidFromUrn(state.urn);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public UUID parseUrnRegex(UrnState state) {
+
+        try {
+            return getUuidFromUrnRegex(state.urn);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public String formatThingUrn(UuidState state) {
+
+        return UuidUtil.getThingUrnFromUuid(state.uuid);
+    }
+
+    @Benchmark
+    public String formatTenantUrn(UuidState state) {
+
+        return UuidUtil.getTenantUrnFromUuid(state.uuid);
+    }
+
+    @Benchmark
+    public String formatThingUrnLegacy(UuidState state) {
+
+        return getPrefixUrnFromUuidLegacy("thing", state.uuid);
+    }
+
+    @Benchmark
+    public String formatTenantUrnLegacy(UuidState state) {
+
+        return getPrefixUrnFromUuidLegacy("tenant", state.uuid);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public UUID getNewUuid() {
+
+        return UuidUtil.getNewUuid();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(4)
+    public UUID getNewUuidContended() {
+
+        return UuidUtil.getNewUuid();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @OperationsPerInvocation(BLOCK_SIZE)
+    public void getNewUuidBlock(Blackhole blackhole) {
+
+        UuidUtil.withReservedUuids(BLOCK_SIZE, () -> {
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                blackhole.consume(UuidUtil.getNewUuid());
+            }
+            return null;
+        });
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public UUID getNewUuidLegacy() {
+
+        return getNewUuidLegacyImpl();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(4)
+    public UUID getNewUuidLegacyContended() {
+
+        return getNewUuidLegacyImpl();
+    }
+
+    /**
+     * The former implementation of {@link UuidUtil#getNewUuid()}, kept as baseline.
+     */
+    static UUID getNewUuidLegacyImpl() {
+
+        String baseUuidString = Generators.timeBasedGenerator()
+            .generate()
+            .toString();
+        String[] parts = baseUuidString.split("-");
+
+        String sortedUuidString = new StringBuilder(36)
+            .append(parts[2])
+            .append(parts[1])
+            .append("-")
+            .append(parts[0].substring(0, 4))
+            .append("-")
+            .append(parts[0].substring(4, 8))
+            .append("-")
+            .append(parts[3])
+            .append("-")
+            .append(parts[4])
+            .toString();
+
+        return UUID.fromString(sortedUuidString);
+    }
+
+    /**
+     * The former implementation of {@link UuidUtil#getPrefixUrnFromUuid(String, UUID)}, kept as baseline.
+     */
+    static String getPrefixUrnFromUuidLegacy(String prefix, UUID uuid) {
+
+        return new StringBuilder("urn")
+            .append(":")
+            .append(prefix)
+            .append(":")
+            .append("uuid")
+            .append(":")
+            .append(uuid.toString())
+            .toString()
+            .toLowerCase();
+    }
+
+    /**
+     * The former implementation of {@link UuidUtil#getUuidFromUrn(String)}, kept as baseline.
+     */
+    static UUID getUuidFromUrnRegex(String urn) throws IllegalArgumentException {
+
+        String urnScheme = "^urn:.*:uuid:([A-F0-9]{8}-[A-F0-9]{4}-[A-F0-9]{4}-[A-F0-9]{4}-[A-F0-9]{12})$";
+
+        Pattern p = Pattern.compile(urnScheme, Pattern.CASE_INSENSITIVE);
+        Matcher m = p.matcher(urn);
+        if (m.find()) {
+            return UUID.fromString(m.group(1));
+        }
+
+        throw new IllegalArgumentException(String.format("Provided URN '%s' does not match the required URN scheme '%s'",
+                                                         urn,
+                                                         "urn:{prefix}:uuid:{uuid}"));
+    }
+}
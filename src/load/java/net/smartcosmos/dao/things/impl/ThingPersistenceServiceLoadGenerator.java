@@ -0,0 +1,475 @@
+package net.smartcosmos.dao.things.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import net.smartcosmos.dao.things.ThingPersistenceConfig;
+import net.smartcosmos.dao.things.ThingsPersistenceTestApplication;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.ThingCreate;
+import net.smartcosmos.dto.things.ThingResponse;
+import net.smartcosmos.dto.things.ThingUpdate;
+
+/**
+ * Runs a mix of DAO operations on concurrent threads against {@link ThingPersistenceService}, and reports the throughput and the
+ * latency percentiles of each operation.
+ * <p>
+ * The generator seeds a tenant with Things of a few types, warms up, and then measures for a fixed duration. Each thread picks the next
+ * operation at random by the weights of the mix and runs it as soon as the previous one returned, i.e. the load is closed: latencies
+ * are measured per call and don't include time the call would have waited for a slow predecessor.
+ * <p>
+ * The options are Spring properties, so they are given as {@code --load.threads=16} on the command line, and any other property of the
+ * DAO can be set the same way, e.g. {@code --smartcosmos.things.cache.enabled=true}:
+ * <ul>
+ *     <li>{@code load.threads}: the number of threads, defaults to the number of processors</li>
+ *     <li>{@code load.warmup-seconds}, {@code load.duration-seconds}: the warmup and measurement durations</li>
+ *     <li>{@code load.things}: the number of Things that are seeded, spread evenly over {@code load.types} types</li>
+ *     <li>{@code load.mix.<operation>}: the weight of an operation, zero disables it</li>
+ *     <li>{@code load.page-size}, {@code load.urns-per-find}: the size of the Find by Type pages and of the Find by Type and URNs lists</li>
+ *     <li>{@code load.database}: the H2 database, e.g. {@code mem:things-load} or {@code file:./target/things-load}</li>
+ *     <li>{@code load.json}: a file the results are written to in JSON format, none by default</li>
+ * </ul>
+ */
+public class ThingPersistenceServiceLoadGenerator {
+
+    private static final String TYPE_PREFIX = "load-type-";
+    private static final int SEED_BATCH_SIZE = 500;
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final ThingPersistenceService service;
+    private final String tenantUrn = UuidUtil.getTenantUrnFromUuid(UUID.randomUUID());
+
+    private final int threadCount;
+    private final long warmupMillis;
+    private final long durationMillis;
+    private final int thingCount;
+    private final int pageSize;
+    private final int urnsPerFind;
+
+    private final List<String> types = new ArrayList<>();
+    // the URNs of the Things of each type, slots of deleted Things are empty until a create of the type fills them again
+    private final List<AtomicReferenceArray<String>> urns = new ArrayList<>();
+    private final Operation[] mix;
+    private final int[] cumulativeWeights;
+    private final Map<Operation, OperationRecorder> recorders = new EnumMap<>(Operation.class);
+
+    private volatile boolean running = true;
+
+    public ThingPersistenceServiceLoadGenerator(ThingPersistenceService service, Environment environment) {
+
+        this.service = service;
+        this.threadCount = environment.getProperty("load.threads", Integer.class, Runtime.getRuntime()
+            .availableProcessors());
+        this.warmupMillis = TimeUnit.SECONDS.toMillis(environment.getProperty("load.warmup-seconds", Long.class, 10L));
+        this.durationMillis = TimeUnit.SECONDS.toMillis(environment.getProperty("load.duration-seconds", Long.class, 30L));
+        this.thingCount = environment.getProperty("load.things", Integer.class, 10000);
+        this.pageSize = environment.getProperty("load.page-size", Integer.class, 20);
+        this.urnsPerFind = environment.getProperty("load.urns-per-find", Integer.class, 100);
+
+        int typeCount = environment.getProperty("load.types", Integer.class, 4);
+        if (threadCount < 1 || typeCount < 1 || thingCount < typeCount || pageSize < 1 || urnsPerFind < 1) {
+            throw new IllegalArgumentException("Threads, types, page size and URNs per find must be positive, things at least one per type!");
+        }
+        for (int i = 0; i < typeCount; i++) {
+            types.add(TYPE_PREFIX + i);
+            urns.add(new AtomicReferenceArray<>(thingCount / typeCount));
+        }
+
+        List<Operation> operations = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int totalWeight = 0;
+        for (Operation operation : Operation.values()) {
+            int weight = environment.getProperty("load.mix." + operation.getName(), Integer.class, operation.getDefaultWeight());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight of operation '" + operation.getName() + "' must not be negative!");
+            }
+            if (weight > 0) {
+                totalWeight += weight;
+                operations.add(operation);
+                weights.add(totalWeight);
+            }
+            recorders.put(operation, new OperationRecorder());
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation must have a positive weight!");
+        }
+        this.mix = operations.toArray(new Operation[operations.size()]);
+        this.cumulativeWeights = weights.stream()
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ThingsPersistenceTestApplication.class,
+                                                                                   ThingPersistenceConfig.class)
+            .profiles("test")
+            .properties("spring.cloud.config.enabled=false", "eureka.client.enabled=false", "logging.level.root=WARN",
+                        "load.database=mem:things-load;DB_CLOSE_DELAY=-1", "spring.datasource.url=jdbc:h2:${load.database}")
+            .web(false)
+            .run(args)) {
+
+            ThingPersistenceServiceLoadGenerator generator = new ThingPersistenceServiceLoadGenerator(
+                context.getBean(ThingPersistenceService.class), context.getEnvironment());
+            LoadResult result = generator.run();
+
+            System.out.print(result.toTable());
+            String jsonFile = context.getEnvironment()
+                .getProperty("load.json");
+            if (jsonFile != null && !jsonFile.isEmpty()) {
+                result.writeJson(Paths.get(jsonFile));
+                System.out.println("Results written to " + jsonFile);
+            }
+        }
+    }
+
+    /**
+     * Seeds the Things, runs the warmup and the measurement, and collects the results.
+     *
+     * @return the results of the measurement
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public LoadResult run() throws InterruptedException {
+
+        seed();
+
+        List<Thread> threads = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(this::runOperations, "things-load-" + (i + 1));
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        Thread.sleep(warmupMillis);
+        for (OperationRecorder recorder : recorders.values()) {
+            recorder.reset();
+        }
+        long start = System.nanoTime();
+        Thread.sleep(durationMillis);
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        Map<Operation, OperationResult> results = new EnumMap<>(Operation.class);
+        for (Map.Entry<Operation, OperationRecorder> entry : recorders.entrySet()) {
+            results.put(entry.getKey(), entry.getValue()
+                .getResult(elapsedNanos));
+        }
+
+        return new LoadResult(threadCount, thingCount, elapsedNanos, results);
+    }
+
+    private void seed() {
+
+        for (int i = 0; i < types.size(); i++) {
+            AtomicReferenceArray<String> typeUrns = urns.get(i);
+            for (int start = 0; start < typeUrns.length(); start += SEED_BATCH_SIZE) {
+                int end = Math.min(start + SEED_BATCH_SIZE, typeUrns.length());
+                List<ThingCreate> creates = new ArrayList<>(end - start);
+                for (int slot = start; slot < end; slot++) {
+                    creates.add(ThingCreate.builder()
+                                    .type(types.get(i))
+                                    .build());
+                }
+
+                List<ThingCreateResult> results = service.createAll(tenantUrn, creates);
+                for (int slot = start; slot < end; slot++) {
+                    typeUrns.set(slot, results.get(slot - start)
+                        .getUrn());
+                }
+            }
+        }
+    }
+
+    private void runOperations() {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            Operation operation = nextOperation(random);
+            int typeIndex = random.nextInt(types.size());
+
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                execute(operation, typeIndex, random);
+            } catch (RuntimeException e) {
+                failed = true;
+            }
+            recorders.get(operation)
+                .record(System.nanoTime() - start, failed);
+        }
+    }
+
+    private Operation nextOperation(ThreadLocalRandom random) {
+
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return mix[i];
+            }
+        }
+        return mix[mix.length - 1];
+    }
+
+    private void execute(Operation operation, int typeIndex, ThreadLocalRandom random) {
+
+        String type = types.get(typeIndex);
+        AtomicReferenceArray<String> typeUrns = urns.get(typeIndex);
+
+        switch (operation) {
+            case CREATE:
+                Optional<ThingResponse> created = service.create(tenantUrn, ThingCreate.builder()
+                    .type(type)
+                    .build());
+                if (created.isPresent()) {
+                    typeUrns.set(random.nextInt(typeUrns.length()), created.get()
+                        .getUrn());
+                }
+                break;
+            case FIND:
+                service.findByTypeAndUrn(tenantUrn, type, randomUrn(typeUrns, random));
+                break;
+            case UPDATE:
+                service.update(tenantUrn, type, randomUrn(typeUrns, random), ThingUpdate.builder()
+                    .active(random.nextBoolean())
+                    .build());
+                break;
+            case DELETE:
+                String deleted = typeUrns.getAndSet(random.nextInt(typeUrns.length()), null);
+                service.delete(tenantUrn, type, deleted != null ? deleted : randomUrn(typeUrns, random));
+                break;
+            case FIND_BY_TYPE:
+                int pageCount = Math.max(1, typeUrns.length() / pageSize);
+                service.findByType(tenantUrn, type, random.nextInt(pageCount) + 1, pageSize);
+                break;
+            case FIND_BY_TYPE_AND_URNS:
+                List<String> findUrns = new ArrayList<>(urnsPerFind);
+                for (int i = 0; i < urnsPerFind; i++) {
+                    findUrns.add(randomUrn(typeUrns, random));
+                }
+                service.findByTypeAndUrns(tenantUrn, type, findUrns);
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    /**
+     * Picks the URN of a random slot. Slots of deleted Things yield the URN of a Thing that does not exist, so lookups miss, like they
+     * would for clients that ask for deleted Things.
+     */
+    private static String randomUrn(AtomicReferenceArray<String> typeUrns, ThreadLocalRandom random) {
+
+        String urn = typeUrns.get(random.nextInt(typeUrns.length()));
+        return urn != null ? urn : UuidUtil.getThingUrnFromUuid(new UUID(random.nextLong(), random.nextLong()));
+    }
+
+    public enum Operation {
+        CREATE("create", 10),
+        FIND("find", 40),
+        UPDATE("update", 15),
+        DELETE("delete", 5),
+        FIND_BY_TYPE("find-by-type", 20),
+        FIND_BY_TYPE_AND_URNS("find-by-type-and-urns", 10);
+
+        private final String name;
+        private final int defaultWeight;
+
+        Operation(String name, int defaultWeight) {
+
+            this.name = name;
+            this.defaultWeight = defaultWeight;
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public int getDefaultWeight() {
+
+            return defaultWeight;
+        }
+    }
+
+    /**
+     * Records the latencies of an operation in nanoseconds, and its failures.
+     */
+    private static class OperationRecorder {
+
+        private final Recorder latencies = new Recorder(SIGNIFICANT_DIGITS);
+        private final LongAdder errorCount = new LongAdder();
+
+        void record(long nanos, boolean failed) {
+
+            latencies.recordValue(nanos);
+            if (failed) {
+                errorCount.increment();
+            }
+        }
+
+        void reset() {
+
+            latencies.getIntervalHistogram();
+            errorCount.reset();
+        }
+
+        OperationResult getResult(long elapsedNanos) {
+
+            Histogram histogram = latencies.getIntervalHistogram();
+            long count = histogram.getTotalCount();
+
+            return new OperationResult(count, errorCount.sum(), count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos,
+                                       toMicros(histogram.getMean()), toMicros(histogram.getValueAtPercentile(50)),
+                                       toMicros(histogram.getValueAtPercentile(99)), toMicros(histogram.getValueAtPercentile(99.9)),
+                                       toMicros(histogram.getMaxValue()));
+        }
+
+        private static double toMicros(double nanos) {
+
+            return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+        }
+    }
+
+    /**
+     * The results of an operation: the number of calls and failures, the calls per second, and the latencies in microseconds.
+     */
+    public static class OperationResult {
+
+        private final long count;
+        private final long errorCount;
+        private final double throughput;
+        private final double meanMicros;
+        private final double p50Micros;
+        private final double p99Micros;
+        private final double p999Micros;
+        private final double maxMicros;
+
+        OperationResult(long count, long errorCount, double throughput, double meanMicros, double p50Micros, double p99Micros,
+                        double p999Micros, double maxMicros) {
+
+            this.count = count;
+            this.errorCount = errorCount;
+            this.throughput = throughput;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.p999Micros = p999Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        String toJson() {
+
+            return String.format(Locale.ROOT, "{ \"count\": %d, \"errors\": %d, \"throughput\": %.2f, \"meanMicros\": %.1f, "
+                                              + "\"p50Micros\": %.1f, \"p99Micros\": %.1f, \"p999Micros\": %.1f, \"maxMicros\": %.1f }",
+                                 count, errorCount, throughput, meanMicros, p50Micros, p99Micros, p999Micros, maxMicros);
+        }
+    }
+
+    /**
+     * The results of a measurement.
+     */
+    public static class LoadResult {
+
+        private static final String ROW_FORMAT = "%-22s %10s %8s %10s %10s %10s %10s %10s%n";
+
+        private final int threadCount;
+        private final int thingCount;
+        private final long elapsedNanos;
+        private final Map<Operation, OperationResult> operations;
+
+        LoadResult(int threadCount, int thingCount, long elapsedNanos, Map<Operation, OperationResult> operations) {
+
+            this.threadCount = threadCount;
+            this.thingCount = thingCount;
+            this.elapsedNanos = elapsedNanos;
+            this.operations = operations;
+        }
+
+        public double getThroughput() {
+
+            double throughput = 0;
+            for (OperationResult result : operations.values()) {
+                throughput += result.throughput;
+            }
+            return throughput;
+        }
+
+        String toTable() {
+
+            StringBuilder table = new StringBuilder();
+            table.append(String.format(Locale.ROOT, "%d threads, %d things, %.1f s, %.1f ops/s%n", threadCount, thingCount,
+                                       elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1), getThroughput()));
+            table.append(String.format(Locale.ROOT, ROW_FORMAT, "operation", "count", "errors", "ops/s", "p50 us", "p99 us", "p99.9 us",
+                                       "max us"));
+            for (Map.Entry<Operation, OperationResult> entry : operations.entrySet()) {
+                OperationResult result = entry.getValue();
+                String name = entry.getKey()
+                    .getName();
+                table.append(String.format(Locale.ROOT, ROW_FORMAT, name, result.count, result.errorCount, format(result.throughput),
+                                           format(result.p50Micros), format(result.p99Micros), format(result.p999Micros),
+                                           format(result.maxMicros)));
+            }
+            return table.toString();
+        }
+
+        String toJson() {
+
+            StringBuilder json = new StringBuilder();
+            json.append(String.format(Locale.ROOT, "{%n  \"timestamp\": \"%s\",%n  \"threads\": %d,%n  \"things\": %d,%n"
+                                                   + "  \"durationSeconds\": %.3f,%n  \"throughput\": %.2f,%n  \"operations\": {",
+                                      Instant.now(), threadCount, thingCount, elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1),
+                                      getThroughput()));
+            String separator = "";
+            for (Map.Entry<Operation, OperationResult> entry : operations.entrySet()) {
+                String name = entry.getKey()
+                    .getName();
+                json.append(String.format(Locale.ROOT, "%s%n    \"%s\": %s", separator, name, entry.getValue()
+                    .toJson()));
+                separator = ",";
+            }
+            return json.append(String.format(Locale.ROOT, "%n  }%n}%n"))
+                .toString();
+        }
+
+        void writeJson(Path file) throws IOException {
+
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(toJson());
+            }
+        }
+
+        private static String format(double value) {
+
+            return String.format(Locale.ROOT, "%.1f", value);
+        }
+    }
+}
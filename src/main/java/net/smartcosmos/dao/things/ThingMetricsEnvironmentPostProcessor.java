@@ -0,0 +1,44 @@
+package net.smartcosmos.dao.things;
+
+import java.util.Collections;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * Enables the Hibernate statistics if {@code smartcosmos.things.metrics.enabled=true} is set, so that they are reported along with the
+ * operation metrics, see {@link net.smartcosmos.dao.things.metrics.ThingOperationMetrics}. Set
+ * {@code smartcosmos.things.metrics.hibernate-statistics=false} to leave them off.
+ * <p>
+ * The Hibernate property is added with the lowest precedence, so it can still be overridden by the application.
+ */
+public class ThingMetricsEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+    private static final String ENABLED_PROPERTY = "smartcosmos.things.metrics.enabled";
+    private static final String HIBERNATE_STATISTICS_PROPERTY = "smartcosmos.things.metrics.hibernate-statistics";
+
+    private static final String PROPERTY_SOURCE_NAME = "smartcosmosThingsMetrics";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+
+        if (!environment.getProperty(ENABLED_PROPERTY, Boolean.class, false)
+            || !environment.getProperty(HIBERNATE_STATISTICS_PROPERTY, Boolean.class, true)) {
+            return;
+        }
+
+        environment.getPropertySources()
+            .addLast(new MapPropertySource(PROPERTY_SOURCE_NAME,
+                                           Collections.singletonMap("spring.jpa.properties.hibernate.generate_statistics", "true")));
+    }
+
+    @Override
+    public int getOrder() {
+
+        // after the application properties have been loaded
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -1,17 +1,36 @@
 package net.smartcosmos.dao.things;
 
+import java.util.Collections;
 import java.util.Map;
 
+import org.hibernate.boot.model.TypeContributor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.TypeContributorList;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.orm.jpa.EntityScan;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.format.FormatterRegistrar;
 import org.springframework.format.FormatterRegistry;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.persistenceunit.PersistenceUnitPostProcessor;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
+import net.smartcosmos.dao.things.cache.ThingTypeDictionary;
+import net.smartcosmos.dao.things.domain.ThingTypeEntity;
+import net.smartcosmos.dao.things.domain.ThingTypeRegistrationListener;
+import net.smartcosmos.dao.things.domain.ThingTypeUserType;
+
 /**
  * @author voor
  */
@@ -22,6 +41,8 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter
 @Configuration
 public class ThingPersistenceConfig extends WebMvcConfigurerAdapter {
 
+    public static final String THING_VALIDATOR = "thingValidator";
+
     @Autowired
     Map<String, FormatterRegistrar> formatterRegistrarMap;
 
@@ -32,4 +53,74 @@ public class ThingPersistenceConfig extends WebMvcConfigurerAdapter {
             registrar.registerFormatters(registry);
         }
     }
+
+    /**
+     * The Bean Validation of the statements that bypass the entity listeners of the persistence unit, like the conditional insert.
+     * It has a name of its own, so that it can't be confused with the validator of the web layer.
+     */
+    @Bean(name = THING_VALIDATOR)
+    public LocalValidatorFactoryBean thingValidator() {
+
+        return new LocalValidatorFactoryBean();
+    }
+
+    @Bean
+    static ThingTypeRegistrationPostProcessor thingTypeRegistrationPostProcessor(BeanFactory beanFactory) {
+
+        return new ThingTypeRegistrationPostProcessor(beanFactory);
+    }
+
+    /**
+     * Hands the type dictionary of this application context to Hibernate: the type of the {@code type} column is registered before the
+     * entity manager factory is built, and the listener that registers new types once it is built. Neither is instantiated by
+     * Hibernate, so each persistence unit uses the dictionary of its own application context. If the dictionary is disabled, its entity
+     * is removed from the persistence unit, so that the schema generation doesn't create the unused {@code thing_type} table.
+     */
+    static class ThingTypeRegistrationPostProcessor implements BeanPostProcessor {
+
+        private final BeanFactory beanFactory;
+
+        ThingTypeRegistrationPostProcessor(BeanFactory beanFactory) {
+
+            this.beanFactory = beanFactory;
+        }
+
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+
+            if (bean instanceof LocalContainerEntityManagerFactoryBean) {
+                ThingTypeDictionary dictionary = beanFactory.getBean(ThingTypeDictionary.class);
+                TypeContributor contributor = (typeContributions, serviceRegistry) -> typeContributions
+                    .contributeType(new ThingTypeUserType(dictionary), new String[] { ThingTypeUserType.NAME });
+                TypeContributorList contributors = () -> Collections.singletonList(contributor);
+
+                ((LocalContainerEntityManagerFactoryBean) bean).getJpaPropertyMap()
+                    .put(EntityManagerFactoryBuilderImpl.TYPE_CONTRIBUTORS, contributors);
+
+                if (!dictionary.isEnabled()) {
+                    PersistenceUnitPostProcessor withoutTypeEntity = persistenceUnit -> persistenceUnit.getManagedClassNames()
+                        .remove(ThingTypeEntity.class.getName());
+                    ((LocalContainerEntityManagerFactoryBean) bean).setPersistenceUnitPostProcessors(withoutTypeEntity);
+                }
+            }
+
+            return bean;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+
+            if (bean instanceof LocalContainerEntityManagerFactoryBean) {
+                ThingTypeDictionary dictionary = beanFactory.getBean(ThingTypeDictionary.class);
+
+                ((LocalContainerEntityManagerFactoryBean) bean).getNativeEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry()
+                    .getService(EventListenerRegistry.class)
+                    .appendListeners(EventType.PRE_INSERT, new ThingTypeRegistrationListener(dictionary));
+            }
+
+            return bean;
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package net.smartcosmos.dao.things;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import net.smartcosmos.dao.things.cache.ThingSecondLevelCache;
+import net.smartcosmos.dao.things.domain.ThingEntity;
+
+/**
+ * Enables the Hibernate second-level cache for {@link ThingEntity} and the query cache, if
+ * {@code smartcosmos.things.second-level-cache.enabled=true} is set. The cache is held in process by Ehcache, its regions are configured
+ * in {@code ehcache-things.xml}, or in the resource given by {@code smartcosmos.things.second-level-cache.config}.
+ * <p>
+ * The Hibernate properties are added with the lowest precedence, so each of them can still be overridden by the application.
+ * The entity is not annotated as cacheable, since that would require a cache provider to be configured in every application.
+ */
+public class ThingSecondLevelCacheEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+    private static final String ENABLED_PROPERTY = "smartcosmos.things.second-level-cache.enabled";
+    private static final String CONFIG_PROPERTY = "smartcosmos.things.second-level-cache.config";
+    private static final String DEFAULT_CONFIG = "/ehcache-things.xml";
+
+    private static final String PROPERTY_SOURCE_NAME = "smartcosmosThingsSecondLevelCache";
+    private static final String HIBERNATE_PREFIX = "spring.jpa.properties.";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+
+        if (!environment.getProperty(ENABLED_PROPERTY, Boolean.class, false)) {
+            return;
+        }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(HIBERNATE_PREFIX + "hibernate.cache.use_second_level_cache", "true");
+        properties.put(HIBERNATE_PREFIX + "hibernate.cache.use_query_cache", "true");
+        properties.put(HIBERNATE_PREFIX + "hibernate.cache.region.factory_class", "org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+        properties.put(HIBERNATE_PREFIX + "net.sf.ehcache.configurationResourceName", environment.getProperty(CONFIG_PROPERTY, DEFAULT_CONFIG));
+        properties.put(HIBERNATE_PREFIX + "hibernate.ejb.classcache." + ThingEntity.class.getName(),
+                       "read-write, " + ThingSecondLevelCache.ENTITY_REGION);
+        properties.put(HIBERNATE_PREFIX + "hibernate.generate_statistics", "true");
+
+        environment.getPropertySources()
+            .addLast(new MapPropertySource(PROPERTY_SOURCE_NAME, properties));
+    }
+
+    @Override
+    public int getOrder() {
+
+        // after the application properties have been loaded
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
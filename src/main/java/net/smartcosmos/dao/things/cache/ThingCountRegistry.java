@@ -0,0 +1,193 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import net.smartcosmos.dao.things.datasource.ThingRoutingContext;
+import net.smartcosmos.dao.things.repository.ThingRepository;
+
+/**
+ * Keeps the number of Things per tenant and type in memory, so that page totals don't require a {@code COUNT} query on every call.
+ * <p>
+ * The counts of a tenant are loaded with a single {@code GROUP BY} query on first use, and then maintained by the write operations of the
+ * persistence service. Since writes of other application instances (or directly to the database) are not seen, the counts of a tenant
+ * are reloaded from the database once they are older than the reconciliation interval. The number of tenants is bounded, the least
+ * recently used tenant is evicted first.
+ * <p>
+ * The registry is disabled by default, enable it with {@code smartcosmos.things.counters.enabled=true}.
+ */
+@Slf4j
+@Component
+public class ThingCountRegistry {
+
+    private final ThingRepository repository;
+    private final boolean enabled;
+    private final int maxTenants;
+    private final long reconcileIntervalMillis;
+
+    private final Map<UUID, TenantCounts> tenants = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ThingCountRegistry(
+        ThingRepository repository,
+        @Value("${smartcosmos.things.counters.enabled:false}") boolean enabled,
+        @Value("${smartcosmos.things.counters.max-tenants:1000}") int maxTenants,
+        @Value("${smartcosmos.things.counters.reconcile-interval-millis:300000}") long reconcileIntervalMillis) {
+
+        this.repository = repository;
+        this.enabled = enabled;
+        this.maxTenants = maxTenants;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Gets the number of Things of a type.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     * @return the number of Things
+     */
+    public long count(UUID tenantId, String type) {
+
+        LongAdder counter = getTenantCounts(tenantId).counters.get(type);
+        return counter != null ? Math.max(0, counter.sum()) : 0;
+    }
+
+    /**
+     * Gets the number of Things of a tenant.
+     *
+     * @param tenantId the tenant ID
+     * @return the number of Things
+     */
+    public long count(UUID tenantId) {
+
+        long count = 0;
+        for (LongAdder counter : getTenantCounts(tenantId).counters.values()) {
+            count += counter.sum();
+        }
+        return Math.max(0, count);
+    }
+
+    /**
+     * Adjusts the number of Things of a type after a write. Tenants that have not been loaded yet are ignored, since their counts will
+     * be loaded from the database on first use.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     * @param delta the number of created (positive) or deleted (negative) Things
+     */
+    public void add(UUID tenantId, String type, long delta) {
+
+        TenantCounts tenantCounts = enabled ? tenants.get(tenantId) : null;
+        if (tenantCounts != null && delta != 0) {
+            tenantCounts.counters.computeIfAbsent(type, key -> new LongAdder())
+                .add(delta);
+        }
+    }
+
+    /**
+     * Resets the number of Things of a type to zero, after all of them have been deleted.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     */
+    public void reset(UUID tenantId, String type) {
+
+        TenantCounts tenantCounts = enabled ? tenants.get(tenantId) : null;
+        if (tenantCounts != null) {
+            tenantCounts.counters.remove(type);
+        }
+    }
+
+    /**
+     * Drops the counts of a tenant, so that they are reloaded from the database on next use.
+     *
+     * @param tenantId the tenant ID
+     */
+    public void invalidate(UUID tenantId) {
+
+        tenants.remove(tenantId);
+    }
+
+    /**
+     * Gets the number of tenants whose counts are currently held.
+     *
+     * @return the number of tenants
+     */
+    public int size() {
+
+        return tenants.size();
+    }
+
+    private TenantCounts getTenantCounts(UUID tenantId) {
+
+        long now = System.currentTimeMillis();
+        TenantCounts tenantCounts = tenants.get(tenantId);
+        if (tenantCounts == null || now - tenantCounts.loaded >= reconcileIntervalMillis) {
+            tenantCounts = load(tenantId, now);
+            tenants.put(tenantId, tenantCounts);
+            evictIfNecessary();
+        }
+        tenantCounts.lastAccess = now;
+
+        return tenantCounts;
+    }
+
+    private TenantCounts load(UUID tenantId, long now) {
+
+        TenantCounts tenantCounts = new TenantCounts(now);
+        // a lagging replica would miss recent writes, which are never counted again until the next reconciliation
+        for (Object[] typeCount : ThingRoutingContext.onPrimary(() -> repository.countByTenantIdGroupByType(tenantId))) {
+            LongAdder counter = new LongAdder();
+            counter.add(((Number) typeCount[1]).longValue());
+            tenantCounts.counters.put((String) typeCount[0], counter);
+        }
+
+        return tenantCounts;
+    }
+
+    private void evictIfNecessary() {
+
+        while (tenants.size() > maxTenants) {
+            UUID leastRecentlyUsed = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<UUID, TenantCounts> entry : tenants.entrySet()) {
+                if (entry.getValue().lastAccess < oldestAccess) {
+                    oldestAccess = entry.getValue().lastAccess;
+                    leastRecentlyUsed = entry.getKey();
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                return;
+            }
+            tenants.remove(leastRecentlyUsed);
+            log.debug("Evicted Thing counts of tenant '{}'", leastRecentlyUsed);
+        }
+    }
+
+    private static class TenantCounts {
+
+        private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+        private final long loaded;
+        private volatile long lastAccess;
+
+        TenantCounts(long loaded) {
+
+            this.loaded = loaded;
+            this.lastAccess = loaded;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Bloom filter for Thing IDs. It answers whether an ID is definitely not in the set, or might be in it. Adding IDs is thread-safe and
+ * lock-free.
+ * <p>
+ * The number of bits and hash functions is derived from the expected number of IDs and the false positive rate. The bit positions are
+ * calculated by double hashing of the two halves of the UUID.
+ */
+class ThingIdBloomFilter {
+
+    private static final double LN_2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param expectedInsertions the expected number of IDs
+     * @param falsePositiveRate the false positive rate at the expected number of IDs
+     */
+    ThingIdBloomFilter(long expectedInsertions, double falsePositiveRate) {
+
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("Expected insertions must not be less than one!");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between zero and one!");
+        }
+
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN_2 * LN_2));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (optimalBits + 63) / 64));
+
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * LN_2));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * Adds an ID.
+     *
+     * @param id the ID
+     */
+    void put(UUID id) {
+
+        long hash1 = hash1(id);
+        long hash2 = hash2(id);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(hash1 + i * hash2);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            long value = words.get(word);
+            while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask)) {
+                value = words.get(word);
+            }
+        }
+        insertions.increment();
+    }
+
+    /**
+     * Checks an ID.
+     *
+     * @param id the ID
+     * @return {@code false} if the ID was definitely not added, {@code true} if it might have been added
+     */
+    boolean mightContain(UUID id) {
+
+        long hash1 = hash1(id);
+        long hash2 = hash2(id);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(hash1 + i * hash2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if more IDs were added than expected, i.e. the false positive rate is higher than configured.
+     *
+     * @return {@code true} if the filter is saturated
+     */
+    boolean isSaturated() {
+
+        return insertions.sum() > expectedInsertions;
+    }
+
+    long getMemoryBytes() {
+
+        return words.length() * 8L;
+    }
+
+    int getHashCount() {
+
+        return hashCount;
+    }
+
+    private long index(long combinedHash) {
+
+        return (combinedHash & Long.MAX_VALUE) % bitCount;
+    }
+
+    private static long hash1(UUID id) {
+
+        return mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits()));
+    }
+
+    private static long hash2(UUID id) {
+
+        // both hashes depend on both halves, since time-based IDs differ in one half only; an odd hash never degenerates to one position
+        return mix(id.getLeastSignificantBits() ^ mix(id.getMostSignificantBits() + 0x9e3779b97f4a7c15L)) | 1;
+    }
+
+    /**
+     * The finalization step of MurmurHash3, which spreads every input bit over the whole output.
+     */
+    private static long mix(long value) {
+
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
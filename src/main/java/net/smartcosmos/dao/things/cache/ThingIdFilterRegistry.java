@@ -0,0 +1,336 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PreDestroy;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.smartcosmos.dao.things.datasource.ThingRoutingContext;
+import net.smartcosmos.dao.things.repository.ThingRepository;
+
+/**
+ * Keeps a Bloom filter of the Thing IDs per tenant and type, so that duplicate checks for client-supplied URNs can skip the database
+ * for IDs that most likely don't exist.
+ * <p>
+ * The filter of a tenant and type is built from a scan of the IDs on a background thread, after its first use, and every ID inserted by
+ * the persistence service is added to it. Until a filter is built, all IDs are reported as possibly present, so callers fall back to the
+ * database. Since deleted IDs can't be removed and inserts of other application instances (or directly to the database) are not seen,
+ * an absent ID is only a hint: callers must still handle a duplicate key on insert. Filters are rebuilt in the background once they are
+ * older than the rebuild interval, or when more IDs were added than they were sized for, and the old filter is used in the meantime. The
+ * filters are bounded by their total memory, the least recently used filter is evicted first.
+ * <p>
+ * The registry is disabled by default, enable it with {@code smartcosmos.things.id-filter.enabled=true}.
+ */
+@Slf4j
+@Component
+public class ThingIdFilterRegistry {
+
+    private static final int BUILD_QUEUE_CAPACITY = 64;
+
+    private final ThingRepository repository;
+    private final boolean enabled;
+    private final double falsePositiveRate;
+    private final long minExpectedInsertions;
+    private final long maxMemoryBytes;
+    private final long rebuildIntervalMillis;
+    private final Executor buildExecutor;
+
+    private final Map<FilterKey, TypeFilter> filters = new ConcurrentHashMap<>();
+
+    private final LongAdder absentCount = new LongAdder();
+    private final LongAdder mightContainCount = new LongAdder();
+    private final LongAdder notReadyCount = new LongAdder();
+
+    @Autowired
+    public ThingIdFilterRegistry(
+        ThingRepository repository,
+        @Value("${smartcosmos.things.id-filter.enabled:false}") boolean enabled,
+        @Value("${smartcosmos.things.id-filter.false-positive-rate:0.01}") double falsePositiveRate,
+        @Value("${smartcosmos.things.id-filter.min-expected-insertions:1000}") long minExpectedInsertions,
+        @Value("${smartcosmos.things.id-filter.max-memory-bytes:67108864}") long maxMemoryBytes,
+        @Value("${smartcosmos.things.id-filter.rebuild-interval-millis:3600000}") long rebuildIntervalMillis) {
+
+        this(repository, enabled, falsePositiveRate, minExpectedInsertions, maxMemoryBytes, rebuildIntervalMillis, newBuildExecutor());
+    }
+
+    ThingIdFilterRegistry(
+        ThingRepository repository, boolean enabled, double falsePositiveRate, long minExpectedInsertions, long maxMemoryBytes,
+        long rebuildIntervalMillis, Executor buildExecutor) {
+
+        this.repository = repository;
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+        this.minExpectedInsertions = minExpectedInsertions;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.rebuildIntervalMillis = rebuildIntervalMillis;
+        this.buildExecutor = buildExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        if (buildExecutor instanceof ExecutorService) {
+            ((ExecutorService) buildExecutor).shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Checks if a Thing might exist. The first check of a tenant and type starts building its filter in the background.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     * @param id the ID
+     * @return {@code false} if the Thing was neither found by the last scan nor added since, {@code true} if it might exist and the
+     * database has to be checked
+     */
+    public boolean mightContain(UUID tenantId, String type, UUID id) {
+
+        if (!enabled) {
+            return true;
+        }
+
+        ThingIdBloomFilter filter = getTypeFilter(new FilterKey(tenantId, type)).filter;
+        if (filter == null) {
+            notReadyCount.increment();
+            return true;
+        }
+
+        if (filter.mightContain(id)) {
+            mightContainCount.increment();
+            return true;
+        }
+
+        absentCount.increment();
+        return false;
+    }
+
+    /**
+     * Adds the ID of a new Thing. Within a transaction, the ID is added once more after completion, so that a filter that is built
+     * concurrently doesn't miss it.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     * @param id the ID
+     */
+    public void add(UUID tenantId, String type, UUID id) {
+
+        if (!enabled) {
+            return;
+        }
+
+        FilterKey key = new FilterKey(tenantId, type);
+        put(key, id);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(int status) {
+
+                    put(key, id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Gets the statistics of the registry.
+     *
+     * @return the statistics
+     */
+    public FilterStats getStats() {
+
+        return FilterStats.builder()
+            .filterCount(filters.size())
+            .memoryBytes(getMemoryBytes())
+            .falsePositiveRate(falsePositiveRate)
+            .absentCount(absentCount.sum())
+            .mightContainCount(mightContainCount.sum())
+            .notReadyCount(notReadyCount.sum())
+            .build();
+    }
+
+    private void put(FilterKey key, UUID id) {
+
+        // IDs of filters that are not registered yet don't need to be added, the scan of the database will find them
+        TypeFilter typeFilter = filters.get(key);
+        if (typeFilter != null) {
+            ThingIdBloomFilter filter = typeFilter.filter;
+            if (filter != null) {
+                filter.put(id);
+            }
+            ThingIdBloomFilter pending = typeFilter.pending;
+            if (pending != null) {
+                pending.put(id);
+            }
+        }
+    }
+
+    private TypeFilter getTypeFilter(FilterKey key) {
+
+        long now = System.currentTimeMillis();
+        TypeFilter typeFilter = filters.computeIfAbsent(key, k -> new TypeFilter(now));
+        ThingIdBloomFilter filter = typeFilter.filter;
+        if (filter == null || now - typeFilter.created >= rebuildIntervalMillis || filter.isSaturated()) {
+            scheduleBuild(key, typeFilter);
+        }
+        typeFilter.lastAccess = now;
+
+        return typeFilter;
+    }
+
+    private void scheduleBuild(FilterKey key, TypeFilter typeFilter) {
+
+        if (typeFilter.building.compareAndSet(false, true)) {
+            try {
+                buildExecutor.execute(() -> build(key, typeFilter));
+            } catch (RejectedExecutionException e) {
+                // too many filters are waiting to be built, the next check will try again
+                typeFilter.building.set(false);
+            }
+        }
+    }
+
+    /**
+     * Builds the filter of a tenant and type. The new filter receives the IDs inserted during the scan, and replaces the current
+     * filter once the scan is complete.
+     */
+    private void build(FilterKey key, TypeFilter typeFilter) {
+
+        try {
+            // the filter is built from the primary database, a lagging replica would miss recent inserts
+            long count = ThingRoutingContext.onPrimary(() -> repository.countByTenantIdAndType(key.getTenantId(), key.getType()));
+            // leave room for growth until the next rebuild
+            ThingIdBloomFilter filter = new ThingIdBloomFilter(Math.max(minExpectedInsertions, count * 2), falsePositiveRate);
+            typeFilter.pending = filter;
+
+            long scanned = ThingRoutingContext.onPrimary(() -> repository.forEachIdByTenantIdAndType(key.getTenantId(), key.getType(),
+                                                                                                     filter::put));
+            typeFilter.created = System.currentTimeMillis();
+            typeFilter.filter = filter;
+            log.debug("Built ID filter of tenant '{}' and type '{}' with {} IDs", key.getTenantId(), key.getType(), scanned);
+        } catch (RuntimeException e) {
+            log.warn("Building the ID filter of tenant '{}' and type '{}' failed: {}", key.getTenantId(), key.getType(), e.toString());
+        } finally {
+            typeFilter.pending = null;
+            typeFilter.building.set(false);
+        }
+
+        evictIfNecessary(key);
+    }
+
+    private void evictIfNecessary(FilterKey keep) {
+
+        long memoryBytes = getMemoryBytes();
+        while (memoryBytes > maxMemoryBytes) {
+            FilterKey leastRecentlyUsed = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<FilterKey, TypeFilter> entry : filters.entrySet()) {
+                if (!entry.getKey()
+                    .equals(keep) && entry.getValue().lastAccess < oldestAccess) {
+                    oldestAccess = entry.getValue().lastAccess;
+                    leastRecentlyUsed = entry.getKey();
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                return;
+            }
+
+            TypeFilter evicted = filters.remove(leastRecentlyUsed);
+            if (evicted != null) {
+                memoryBytes -= evicted.getMemoryBytes();
+                log.debug("Evicted ID filter of tenant '{}' and type '{}'", leastRecentlyUsed.getTenantId(), leastRecentlyUsed.getType());
+            }
+        }
+    }
+
+    private long getMemoryBytes() {
+
+        long memoryBytes = 0;
+        for (TypeFilter typeFilter : filters.values()) {
+            memoryBytes += typeFilter.getMemoryBytes();
+        }
+        return memoryBytes;
+    }
+
+    private static Executor newBuildExecutor() {
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(BUILD_QUEUE_CAPACITY),
+                                                             runnable -> {
+                                                                 Thread thread = new Thread(runnable, "things-id-filter");
+                                                                 thread.setDaemon(true);
+                                                                 return thread;
+                                                             });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * The statistics of the registry: the number and memory use of the filters, the configured false positive rate, and how often an
+     * ID was definitely absent, might have been present, or could not be checked since the filter was still being built.
+     */
+    @Data
+    @Builder
+    public static class FilterStats {
+
+        private final int filterCount;
+        private final long memoryBytes;
+        private final double falsePositiveRate;
+        private final long absentCount;
+        private final long mightContainCount;
+        private final long notReadyCount;
+    }
+
+    @Data
+    private static class FilterKey {
+
+        private final UUID tenantId;
+        private final String type;
+    }
+
+    private static class TypeFilter {
+
+        private final AtomicBoolean building = new AtomicBoolean();
+        // the filter in use, null until the first build is complete
+        private volatile ThingIdBloomFilter filter;
+        // the filter that is being built
+        private volatile ThingIdBloomFilter pending;
+        private volatile long created;
+        private volatile long lastAccess;
+
+        TypeFilter(long lastAccess) {
+
+            this.lastAccess = lastAccess;
+        }
+
+        long getMemoryBytes() {
+
+            ThingIdBloomFilter current = filter;
+            ThingIdBloomFilter next = pending;
+            return (current != null ? current.getMemoryBytes() : 0) + (next != null ? next.getMemoryBytes() : 0);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Data;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.smartcosmos.dto.things.ThingResponse;
+
+/**
+ * A bounded read-through cache for single Thing lookups. It holds the converted {@link ThingResponse}, so that neither the query nor the
+ * conversion is repeated on a hit. Entries are evicted by size and expire a fixed time after they were loaded.
+ * <p>
+ * Entries are keyed by tenant ID, type and ID. Cross-tenant lookups are cached under a key without tenant ID, since the tenant is not
+ * known before the lookup, and invalidating a Thing always drops both keys. Absent Things are not cached, so creating a Thing never
+ * leaves a stale "not found" behind.
+ * <p>
+ * Invalidating a Thing waits for a concurrent load of the same entry, so a lookup that started before a write can't put the old state
+ * back afterwards. Within a transaction, entries are invalidated once more after completion, since other threads read the old state
+ * until the commit. Writes that don't go through the persistence service are only picked up once the entries expire.
+ * <p>
+ * The cache is disabled by default, enable it with {@code smartcosmos.things.cache.enabled=true}.
+ */
+@Component
+public class ThingResponseCache {
+
+    private final Cache<Key, ThingResponse> cache;
+
+    @Autowired
+    public ThingResponseCache(
+        @Value("${smartcosmos.things.cache.enabled:false}") boolean enabled,
+        @Value("${smartcosmos.things.cache.max-size:10000}") long maxSize,
+        @Value("${smartcosmos.things.cache.ttl-millis:60000}") long ttlMillis) {
+
+        this.cache = enabled ? Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build() : null;
+    }
+
+    public boolean isEnabled() {
+
+        return cache != null;
+    }
+
+    /**
+     * Gets a Thing from the cache, or loads and caches it.
+     *
+     * @param tenantId the tenant ID, or {@code null} for a cross-tenant lookup
+     * @param type the type
+     * @param id the ID
+     * @param loader loads the Thing on a cache miss
+     * @return the Thing, or empty if it does not exist
+     */
+    public Optional<ThingResponse> get(UUID tenantId, String type, UUID id, Supplier<Optional<ThingResponse>> loader) {
+
+        if (cache == null) {
+            return loader.get();
+        }
+
+        return Optional.ofNullable(cache.get(new Key(tenantId, type, id), key -> loader.get()
+            .orElse(null)));
+    }
+
+    /**
+     * Invalidates a Thing, including its cross-tenant entry.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     * @param id the ID
+     */
+    public void invalidate(UUID tenantId, String type, UUID id) {
+
+        if (cache != null) {
+            invalidateKeys(new Key(tenantId, type, id), new Key(null, type, id));
+        }
+    }
+
+    /**
+     * Invalidates a set of Things of a type, including their cross-tenant entries.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     * @param ids the IDs
+     */
+    public void invalidate(UUID tenantId, String type, Collection<UUID> ids) {
+
+        if (cache != null) {
+            Key[] keys = new Key[ids.size() * 2];
+            int i = 0;
+            for (UUID id : ids) {
+                keys[i++] = new Key(tenantId, type, id);
+                keys[i++] = new Key(null, type, id);
+            }
+            invalidateKeys(keys);
+        }
+    }
+
+    /**
+     * Invalidates all Things of a type of a tenant. Since the IDs are not known, this drops all cross-tenant entries of the type, too.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     */
+    public void invalidateAll(UUID tenantId, String type) {
+
+        if (cache != null) {
+            removeAll(tenantId, type);
+            afterCompletion(() -> removeAll(tenantId, type));
+        }
+    }
+
+    /**
+     * Invalidates the cross-tenant entry of a new Thing, since another tenant may have a Thing with the same ID and type.
+     *
+     * @param type the type
+     * @param id the ID
+     */
+    public void invalidateCrossTenant(String type, UUID id) {
+
+        if (cache != null) {
+            invalidateKeys(new Key(null, type, id));
+        }
+    }
+
+    /**
+     * Gets the approximate number of entries in the cache.
+     *
+     * @return the number of entries
+     */
+    public long size() {
+
+        return cache != null ? cache.estimatedSize() : 0;
+    }
+
+    /**
+     * Gets the hit, miss and eviction statistics of the cache.
+     *
+     * @return the statistics
+     */
+    public CacheStats getStats() {
+
+        return cache != null ? cache.stats() : CacheStats.empty();
+    }
+
+    private void invalidateKeys(Key... keys) {
+
+        for (Key key : keys) {
+            cache.invalidate(key);
+        }
+        afterCompletion(() -> {
+            for (Key key : keys) {
+                cache.invalidate(key);
+            }
+        });
+    }
+
+    private void removeAll(UUID tenantId, String type) {
+
+        cache.asMap()
+            .keySet()
+            .removeIf(key -> type.equals(key.getType()) && (key.getTenantId() == null || key.getTenantId()
+                .equals(tenantId)));
+    }
+
+    private static void afterCompletion(Runnable invalidation) {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(int status) {
+
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    @Data
+    private static class Key {
+
+        private final UUID tenantId;
+        private final String type;
+        private final UUID id;
+    }
+}
@@ -0,0 +1,109 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.UUID;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.domain.ThingId;
+
+/**
+ * Access to the Hibernate second-level cache regions of Things, for eviction and statistics. The cache itself is enabled with
+ * {@code smartcosmos.things.second-level-cache.enabled=true}, see
+ * {@link net.smartcosmos.dao.things.ThingSecondLevelCacheEnvironmentPostProcessor}.
+ * <p>
+ * Hibernate keeps the cache consistent with writes through the persistence context: saved entities are updated in the cache, removed
+ * ones are evicted, and bulk statements evict the whole region. The conditional insert of a new Thing keeps the region. Query results are
+ * invalidated by any write to the table.
+ */
+@Component
+public class ThingSecondLevelCache {
+
+    public static final String ENTITY_REGION = "thing";
+    public static final String QUERY_REGION = "thing-query";
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    @Autowired
+    public ThingSecondLevelCache(EntityManagerFactory entityManagerFactory) {
+
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    public boolean isEnabled() {
+
+        return sessionFactory.getEntityPersister(ThingEntity.class.getName())
+            .hasCache();
+    }
+
+    /**
+     * Checks if a Thing is in the cache.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     * @param id the ID
+     * @return {@code true} if the Thing is cached
+     */
+    public boolean contains(UUID tenantId, String type, UUID id) {
+
+        return sessionFactory.getCache()
+            .containsEntity(ThingEntity.class, new ThingId(id, type, tenantId));
+    }
+
+    /**
+     * Evicts a Thing from the cache. This is only necessary after the database was changed by another application.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     * @param id the ID
+     */
+    public void evict(UUID tenantId, String type, UUID id) {
+
+        sessionFactory.getCache()
+            .evictEntity(ThingEntity.class, new ThingId(id, type, tenantId));
+        sessionFactory.getCache()
+            .evictQueryRegion(QUERY_REGION);
+    }
+
+    /**
+     * Evicts all Things and query results from the cache.
+     */
+    public void evictAll() {
+
+        sessionFactory.getCache()
+            .evictEntityRegion(ThingEntity.class);
+        sessionFactory.getCache()
+            .evictQueryRegion(QUERY_REGION);
+    }
+
+    /**
+     * Gets the hit, miss and put counts and the size of the Thing region.
+     *
+     * @return the statistics, or {@code null} if the cache is disabled
+     */
+    public SecondLevelCacheStatistics getEntityStatistics() {
+
+        return getStatistics(ENTITY_REGION);
+    }
+
+    /**
+     * Gets the hit, miss and put counts and the size of the query result region.
+     *
+     * @return the statistics, or {@code null} if the cache is disabled
+     */
+    public SecondLevelCacheStatistics getQueryStatistics() {
+
+        return getStatistics(QUERY_REGION);
+    }
+
+    private SecondLevelCacheStatistics getStatistics(String region) {
+
+        return ((SessionFactory) sessionFactory).getStatistics()
+            .getSecondLevelCacheStatistics(region);
+    }
+}
@@ -0,0 +1,292 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.smartcosmos.dao.things.datasource.ThingRoutingContext;
+
+/**
+ * Maps Thing types to compact integer IDs, which are stored in the {@code type} column instead of the type names if
+ * {@code smartcosmos.things.type-dictionary.enabled=true} is set. This shrinks the primary key and every index that contains the type.
+ * <p>
+ * The mapping is kept in the {@code thing_type} table, and cached in process. The whole table is loaded on first use. Since the ID of a
+ * type never changes, the cache needs no invalidation, only types that are not cached yet are looked up in the database. Types that
+ * are not found are remembered for the miss TTL, so that lookups of unknown types don't query the database every time; a type that
+ * another application instance registered in the meantime is found once the TTL is over. The cached type names are interned, so all
+ * Things of a type share a single string instance.
+ * <p>
+ * All statements run on the connection of the current transaction, if there is one, so that the dictionary never holds a second
+ * connection of the pool. Types are registered when the first Thing of the type is inserted, within the transaction of the insert.
+ * Registrations are only cached once the transaction is committed, so that the cache never holds an ID that was rolled back.
+ * <p>
+ * The storage mode has to be chosen for a new database, switching it requires a migration of the {@code type} column.
+ */
+@Slf4j
+@Component
+public class ThingTypeDictionary {
+
+    private static final String SELECT_ALL = "SELECT id, name FROM thing_type";
+    private static final String SELECT_ID = "SELECT id FROM thing_type WHERE name = ?";
+    private static final String SELECT_ID_FOR_UPDATE = SELECT_ID + " FOR UPDATE";
+    private static final String SELECT_NAME = "SELECT name FROM thing_type WHERE id = ?";
+    private static final String INSERT = "INSERT INTO thing_type (name) VALUES (?)";
+
+    private static final int MAX_MISSES = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long missTtlMillis;
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, String> names = new ConcurrentHashMap<>();
+    // the expiry time of each type that was not found
+    private final ConcurrentMap<String, Long> misses = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    @Autowired
+    public ThingTypeDictionary(
+        DataSource dataSource,
+        @Value("${smartcosmos.things.type-dictionary.enabled:false}") boolean enabled,
+        @Value("${smartcosmos.things.type-dictionary.miss-ttl-millis:10000}") long missTtlMillis) {
+
+        // the template takes part in the transaction of the caller, see DataSourceUtils
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.enabled = enabled;
+        this.missTtlMillis = missTtlMillis;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Gets the ID of a type.
+     *
+     * @param name the type
+     * @return the ID, or {@code null} if the type was never registered
+     */
+    public Integer getId(String name) {
+
+        Integer id = getCachedId(name);
+        if (id != null) {
+            return id;
+        }
+
+        Long missExpiry = misses.get(name);
+        if (missExpiry != null && missExpiry > System.currentTimeMillis()) {
+            return null;
+        }
+
+        id = selectId(SELECT_ID, name);
+        if (id != null) {
+            put(id, name);
+        } else {
+            putMiss(name);
+        }
+
+        return id;
+    }
+
+    /**
+     * Gets the ID of a type, and registers the type if necessary. Within a transaction, the registration is part of the transaction.
+     *
+     * @param name the type
+     * @return the ID
+     */
+    public int register(String name) {
+
+        Integer id = getCachedId(name);
+        if (id != null) {
+            return id;
+        }
+
+        id = selectId(SELECT_ID, name);
+        if (id != null) {
+            put(id, name);
+            return id;
+        }
+
+        try {
+            ThingRoutingContext.onPrimary(() -> jdbcTemplate.update(INSERT, name));
+            log.debug("Registered Thing type '{}'", name);
+        } catch (DuplicateKeyException e) {
+            // registered concurrently
+            log.debug("Thing type '{}' was registered concurrently", name);
+        }
+
+        // a locking read sees the latest committed row, even within a transaction that reads from a snapshot
+        id = selectId(SELECT_ID_FOR_UPDATE, name);
+        if (id == null) {
+            throw new IllegalStateException(String.format("Thing type '%s' could not be registered", name));
+        }
+
+        Map<String, Integer> pending = getPendingRegistrations(true);
+        if (pending != null) {
+            pending.put(name, id);
+        } else {
+            put(id, name);
+        }
+
+        return id;
+    }
+
+    /**
+     * Gets the type of an ID.
+     *
+     * @param id the ID
+     * @return the interned type
+     * @throws IllegalStateException if the ID is unknown
+     */
+    public String getName(int id) throws IllegalStateException {
+
+        loadIfNecessary();
+
+        String name = names.get(id);
+        if (name == null) {
+            Map<String, Integer> pending = getPendingRegistrations(false);
+            if (pending != null) {
+                for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+                    if (entry.getValue() == id) {
+                        return entry.getKey();
+                    }
+                }
+            }
+
+            List<String> result = ThingRoutingContext.onPrimary(() -> jdbcTemplate.queryForList(SELECT_NAME, String.class, id));
+            if (result.isEmpty()) {
+                throw new IllegalStateException(String.format("Unknown Thing type ID %d", id));
+            }
+            name = put(id, result.get(0));
+        }
+
+        return name;
+    }
+
+    /**
+     * Gets the number of cached types.
+     *
+     * @return the number of types
+     */
+    public int size() {
+
+        return ids.size();
+    }
+
+    private Integer getCachedId(String name) {
+
+        loadIfNecessary();
+
+        Integer id = ids.get(name);
+        if (id == null) {
+            Map<String, Integer> pending = getPendingRegistrations(false);
+            if (pending != null) {
+                id = pending.get(name);
+            }
+        }
+
+        return id;
+    }
+
+    private void loadIfNecessary() {
+
+        if (!loaded) {
+            ThingRoutingContext.onPrimary(() -> {
+                jdbcTemplate.query(SELECT_ALL, rs -> {
+                    put(rs.getInt(1), rs.getString(2));
+                });
+                return null;
+            });
+            loaded = true;
+            log.debug("Loaded {} Thing types", ids.size());
+        }
+    }
+
+    private Integer selectId(String sql, String name) {
+
+        List<Integer> result = ThingRoutingContext.onPrimary(() -> jdbcTemplate.queryForList(sql, Integer.class, name));
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private String put(Integer id, String name) {
+
+        String interned = name.intern();
+        names.putIfAbsent(id, interned);
+        ids.putIfAbsent(interned, id);
+        misses.remove(interned);
+
+        return interned;
+    }
+
+    private void putMiss(String name) {
+
+        // lookups of arbitrary type names must not grow the map without bounds
+        if (misses.size() >= MAX_MISSES) {
+            misses.clear();
+        }
+        misses.put(name, System.currentTimeMillis() + missTtlMillis);
+    }
+
+    /**
+     * Gets the types registered by the current transaction, which are cached once it is committed.
+     *
+     * @param create whether to start tracking the registrations of the transaction if none were made yet
+     * @return the registered types, or {@code null} if there is no transaction or none were made and {@code create} is not set
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Integer> getPendingRegistrations(boolean create) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        Map<String, Integer> pending = (Map<String, Integer>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null && create) {
+            Map<String, Integer> registered = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void suspend() {
+
+                    TransactionSynchronizationManager.unbindResource(ThingTypeDictionary.this);
+                }
+
+                @Override
+                public void resume() {
+
+                    TransactionSynchronizationManager.bindResource(ThingTypeDictionary.this, registered);
+                }
+
+                @Override
+                public void afterCommit() {
+
+                    registered.forEach((name, id) -> put(id, name));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ThingTypeDictionary.this);
+                }
+            });
+            pending = registered;
+        }
+
+        return pending;
+    }
+}
@@ -1,47 +1,30 @@
 package net.smartcosmos.dao.things.converter;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.convert.ConversionService;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Component;
 
-import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.domain.ThingView;
 import net.smartcosmos.dto.things.Page;
-import net.smartcosmos.dto.things.PageInformation;
 import net.smartcosmos.dto.things.ThingResponse;
 
+/**
+ * Converts Spring Data pages into {@link Page} instances. Slices, i.e. pages without a total count, are converted as well: their page
+ * information reports the totals as {@link ThingResponseMapper#UNKNOWN_TOTAL}, unless the slice is the last one and the totals can be
+ * derived from it.
+ * <p>
+ * The content may be entities or projections, it is mapped in bulk by the {@link ThingResponseMapper}.
+ */
 @Component
 public class SpringDataPageToThingResponsePageConverter
-    extends ConversionServiceAwareConverter<org.springframework.data.domain.Page<ThingEntity>, Page<ThingResponse>> {
+    extends ConversionServiceAwareConverter<Slice<? extends ThingView>, Page<ThingResponse>> {
 
     @Autowired
-    private ConversionService conversionService;
-
-    protected ConversionService conversionService() {
-
-        return conversionService;
-    }
+    private ThingResponseMapper mapper;
 
     @Override
-    public Page<ThingResponse> convert(org.springframework.data.domain.Page<ThingEntity> page) {
-
-        PageInformation pageInformation = PageInformation.builder()
-            .number((page.getTotalElements() > 0 ? page.getNumber() + 1 : 0))
-            .totalElements(page.getTotalElements())
-            .size(page.getNumberOfElements())
-            .totalPages((page.getNumberOfElements() > 0 ? page.getTotalPages() : 0))
-            .build();
-
-        List<ThingResponse> data = page.getContent()
-            .stream()
-            .map(entity -> conversionService.convert(entity, ThingResponse.class))
-            .collect(Collectors.toList());
+    public Page<ThingResponse> convert(Slice<? extends ThingView> slice) {
 
-        return Page.<ThingResponse>builder()
-            .data(data)
-            .page(pageInformation)
-            .build();
+        return mapper.toPage(slice);
     }
 }
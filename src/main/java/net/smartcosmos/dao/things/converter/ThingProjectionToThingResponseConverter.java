@@ -0,0 +1,38 @@
+package net.smartcosmos.dao.things.converter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.format.FormatterRegistrar;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.stereotype.Component;
+
+import net.smartcosmos.dao.things.domain.ThingProjection;
+import net.smartcosmos.dto.things.ThingResponse;
+
+/**
+ * Registers the mapping of the {@link ThingResponseMapper} with the conversion service.
+ */
+@Component
+public class ThingProjectionToThingResponseConverter
+    implements Converter<ThingProjection, ThingResponse>, FormatterRegistrar {
+
+    private final ThingResponseMapper mapper;
+
+    @Autowired
+    public ThingProjectionToThingResponseConverter(ThingResponseMapper mapper) {
+
+        this.mapper = mapper;
+    }
+
+    @Override
+    public ThingResponse convert(ThingProjection projection) {
+
+        return mapper.toResponse(projection);
+    }
+
+    @Override
+    public void registerFormatters(FormatterRegistry registry) {
+
+        registry.addConverter(this);
+    }
+}
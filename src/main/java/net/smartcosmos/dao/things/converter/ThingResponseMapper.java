@@ -0,0 +1,137 @@
+package net.smartcosmos.dao.things.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import net.smartcosmos.dao.things.domain.ThingView;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.Page;
+import net.smartcosmos.dto.things.PageInformation;
+import net.smartcosmos.dto.things.ThingResponse;
+
+/**
+ * Maps entities and projections to {@link ThingResponse} instances in bulk. Unlike the conversion service, the mapper is typed, so there's
+ * no converter lookup per element. The result lists are pre-sized, and the tenant URN is only formatted again when the tenant changes,
+ * i.e. once per page of a tenant.
+ * <p>
+ * Pages are mapped with their page information. Slices, i.e. pages without a total count, report the totals as {@link #UNKNOWN_TOTAL},
+ * unless the slice is the last one and the totals can be derived from it.
+ */
+@Component
+public class ThingResponseMapper {
+
+    public static final int UNKNOWN_TOTAL = -1;
+
+    /**
+     * Maps a single Thing.
+     *
+     * @param thing the entity or projection
+     * @return the response, or {@code null} if the Thing is {@code null}
+     */
+    public ThingResponse toResponse(ThingView thing) {
+
+        if (thing == null) {
+            return null;
+        }
+
+        return toResponse(thing, UuidUtil.getTenantUrnFromUuid(thing.getTenantId()));
+    }
+
+    /**
+     * Maps a single Thing whose tenant URN is already known.
+     *
+     * @param thing the entity or projection
+     * @param tenantUrn the URN of the tenant of the Thing
+     * @return the response
+     */
+    public ThingResponse toResponse(ThingView thing, String tenantUrn) {
+
+        return ThingResponse.builder()
+            // Required
+            .urn(UuidUtil.getThingUrnFromUuid(thing.getId()))
+            .type(thing.getType())
+            .active(thing.getActive())
+            .tenantUrn(tenantUrn)
+            // Don't forget to build it!
+            .build();
+    }
+
+    /**
+     * Maps a list of Things.
+     *
+     * @param things the entities or projections
+     * @return the responses, in the same order
+     */
+    public List<ThingResponse> toResponses(List<? extends ThingView> things) {
+
+        List<ThingResponse> responses = new ArrayList<>(things.size());
+
+        UUID tenantId = null;
+        String tenantUrn = null;
+        for (ThingView thing : things) {
+            if (tenantUrn == null || !Objects.equals(tenantId, thing.getTenantId())) {
+                tenantId = thing.getTenantId();
+                tenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+            }
+            responses.add(toResponse(thing, tenantUrn));
+        }
+
+        return responses;
+    }
+
+    /**
+     * Maps a Spring Data page or slice of Things.
+     *
+     * @param slice the page or slice of entities or projections
+     * @return the page
+     */
+    public Page<ThingResponse> toPage(Slice<? extends ThingView> slice) {
+
+        PageInformation pageInformation;
+        if (slice instanceof org.springframework.data.domain.Page) {
+            pageInformation = getPageInformation((org.springframework.data.domain.Page<?>) slice);
+        } else {
+            pageInformation = getSliceInformation(slice);
+        }
+
+        return Page.<ThingResponse>builder()
+            .data(toResponses(slice.getContent()))
+            .page(pageInformation)
+            .build();
+    }
+
+    private PageInformation getPageInformation(org.springframework.data.domain.Page<?> page) {
+
+        return PageInformation.builder()
+            .number((page.getTotalElements() > 0 ? page.getNumber() + 1 : 0))
+            .totalElements(page.getTotalElements())
+            .size(page.getNumberOfElements())
+            .totalPages((page.getNumberOfElements() > 0 ? page.getTotalPages() : 0))
+            .build();
+    }
+
+    private PageInformation getSliceInformation(Slice<?> slice) {
+
+        long totalElements = UNKNOWN_TOTAL;
+        int totalPages = UNKNOWN_TOTAL;
+        if (!slice.hasNext() && slice.hasContent()) {
+            totalElements = (long) slice.getNumber() * slice.getSize() + slice.getNumberOfElements();
+            totalPages = slice.getNumber() + 1;
+        } else if (!slice.hasNext() && slice.getNumber() == 0) {
+            totalElements = 0;
+            totalPages = 0;
+        }
+
+        return PageInformation.builder()
+            .number((slice.hasContent() || slice.getNumber() > 0 ? slice.getNumber() + 1 : 0))
+            .totalElements(totalElements)
+            .size(slice.getNumberOfElements())
+            .totalPages(totalPages)
+            .build();
+    }
+}
@@ -0,0 +1,81 @@
+package net.smartcosmos.dao.things.datasource;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Replaces the data source by one that routes read-only transactions to a replica, if
+ * {@code smartcosmos.things.datasource.routing.enabled=true} is set.
+ * <p>
+ * The primary database is configured by the {@code spring.datasource} properties as usual, the replica by
+ * {@code smartcosmos.things.datasource.replica.url} (and optionally {@code username} and {@code password}, which default to the ones of the
+ * primary). Pool settings can be bound to either pool with the prefixes {@code smartcosmos.things.datasource.primary} and
+ * {@code smartcosmos.things.datasource.replica}.
+ * <p>
+ * After a write, the thread reads from the primary for {@code smartcosmos.things.datasource.routing.sticky-millis}, one second by
+ * default. In a web application, the stickiness ends with the request, see {@link ThingRoutingContextFilter}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "smartcosmos.things.datasource.routing.enabled", havingValue = "true")
+public class ThingDataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "smartcosmos.things.datasource.primary")
+    public DataSource thingPrimaryDataSource(DataSourceProperties properties) {
+
+        return properties.initializeDataSourceBuilder()
+            .build();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "smartcosmos.things.datasource.replica")
+    public DataSource thingReplicaDataSource(
+        DataSourceProperties properties,
+        @Value("${smartcosmos.things.datasource.replica.url}") String url,
+        @Value("${smartcosmos.things.datasource.replica.username:}") String username,
+        @Value("${smartcosmos.things.datasource.replica.password:}") String password) {
+
+        return DataSourceBuilder.create(properties.getClassLoader())
+            .type(properties.getType())
+            .url(url)
+            .username(StringUtils.isNotBlank(username) ? username : properties.determineUsername())
+            .password(StringUtils.isNotBlank(password) ? password : properties.determinePassword())
+            .build();
+    }
+
+    @Bean
+    public ThingRoutingDataSource thingRoutingDataSource(
+        @Qualifier("thingPrimaryDataSource") DataSource primary,
+        @Qualifier("thingReplicaDataSource") DataSource replica,
+        @Value("${smartcosmos.things.datasource.routing.sticky-millis:1000}") long stickyMillis) {
+
+        return new ThingRoutingDataSource(primary, replica, stickyMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ThingRoutingDataSource routingDataSource) {
+
+        // defers the routing decision until the transaction is marked read-only
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication
+    public ThingRoutingContextFilter thingRoutingContextFilter() {
+
+        return new ThingRoutingContextFilter();
+    }
+}
@@ -0,0 +1,113 @@
+package net.smartcosmos.dao.things.datasource;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * The routing state of the current thread, which can force read-only transactions to the primary database.
+ * <p>
+ * After a write transaction commits, the thread sticks to the primary for a configured time, so that its reads see its own writes even
+ * if the replica lags behind. The stickiness ends with {@link #clear()}, which {@link ThingRoutingContextFilter} calls at the end of each
+ * request; threads that don't serve requests should call it once their unit of work is done. Code that must not read stale data,
+ * like the initial load of the in-memory counters and ID filters, runs with {@link #onPrimary(Supplier)}.
+ */
+public final class ThingRoutingContext {
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private ThingRoutingContext() {
+    }
+
+    /**
+     * Runs an action with all transactions routed to the primary database.
+     *
+     * @param action the action
+     * @param <T> the result type
+     * @return the result of the action
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+
+        State state = STATE.get();
+        state.primaryDepth++;
+        try {
+            return action.get();
+        } finally {
+            state.primaryDepth--;
+        }
+    }
+
+    /**
+     * Ends the read-your-writes stickiness of the current thread.
+     */
+    public static void clear() {
+
+        STATE.get().stickyUntil = 0;
+    }
+
+    /**
+     * Wraps a task that runs on another thread, so that it is routed like the current thread. If the task writes, the current thread
+     * sticks to the primary afterwards as if it had written itself, so that it reads the results of an asynchronous write.
+     *
+     * @param task the task
+     * @param <T> the result type
+     * @return the wrapped task
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+
+        State caller = STATE.get();
+        long stickyUntil = caller.stickyUntil;
+        boolean primary = caller.primaryDepth > 0;
+
+        return () -> {
+            State state = STATE.get();
+            long previousStickyUntil = state.stickyUntil;
+            int previousPrimaryDepth = state.primaryDepth;
+            long propagatedStickyUntil = Math.max(previousStickyUntil, stickyUntil);
+            state.stickyUntil = propagatedStickyUntil;
+            state.primaryDepth += primary ? 1 : 0;
+            try {
+                return task.call();
+            } finally {
+                if (state.stickyUntil != propagatedStickyUntil) {
+                    // the task wrote, the caller must see it
+                    caller.stickTo(state.stickyUntil);
+                }
+                state.stickyUntil = previousStickyUntil;
+                state.primaryDepth = previousPrimaryDepth;
+            }
+        };
+    }
+
+    /**
+     * Checks if the current thread has to use the primary database.
+     *
+     * @return {@code true} within {@link #onPrimary(Supplier)} or while the thread sticks to the primary after a write
+     */
+    static boolean isPrimaryRequired() {
+
+        State state = STATE.get();
+        return state.primaryDepth > 0 || System.currentTimeMillis() < state.stickyUntil;
+    }
+
+    /**
+     * Lets the current thread stick to the primary database.
+     *
+     * @param stickyMillis the time to stick to the primary
+     */
+    static void stickToPrimary(long stickyMillis) {
+
+        STATE.get().stickTo(System.currentTimeMillis() + stickyMillis);
+    }
+
+    private static class State {
+
+        /* volatile, since tasks on other threads extend the stickiness of the thread that started them */
+        private volatile long stickyUntil;
+        private int primaryDepth;
+
+        private synchronized void stickTo(long until) {
+
+            stickyUntil = Math.max(stickyUntil, until);
+        }
+    }
+}
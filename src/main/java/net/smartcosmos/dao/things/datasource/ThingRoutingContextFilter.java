@@ -0,0 +1,27 @@
+package net.smartcosmos.dao.things.datasource;
+
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Ends the read-your-writes stickiness of the request thread once a request is complete, so that it doesn't carry over to the next
+ * request served by the same thread.
+ */
+public class ThingRoutingContextFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ThingRoutingContext.clear();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package net.smartcosmos.dao.things.datasource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes connections of read-only transactions to a replica, and all others to the primary database.
+ * <p>
+ * The decision is made when a connection is requested, so the data source has to be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager requests the connection before it
+ * marks the transaction as read-only, the proxy defers this until the first statement. Within {@link ThingRoutingContext#onPrimary}, and
+ * for the configured time after a write transaction of the same thread committed, read-only transactions use the primary as well.
+ */
+public class ThingRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long stickyMillis;
+
+    private final LongAdder primaryCount = new LongAdder();
+    private final LongAdder replicaCount = new LongAdder();
+
+    /**
+     * Creates a routing data source.
+     *
+     * @param primary the primary database, for writes
+     * @param replica the replica, for read-only transactions
+     * @param stickyMillis the time a thread sticks to the primary after a write, or {@code 0} to route reads to the replica right away
+     */
+    public ThingRoutingDataSource(DataSource primary, DataSource replica, long stickyMillis) {
+
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(Target.PRIMARY, primary);
+        targetDataSources.put(Target.REPLICA, replica);
+
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+        this.primary = primary;
+        this.replica = replica;
+        this.stickyMillis = stickyMillis;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !ThingRoutingContext.isPrimaryRequired()) {
+            replicaCount.increment();
+            return Target.REPLICA;
+        }
+
+        if (stickyMillis > 0 && TransactionSynchronizationManager.isActualTransactionActive()
+            && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCommit() {
+
+                    ThingRoutingContext.stickToPrimary(stickyMillis);
+                }
+            });
+        }
+        primaryCount.increment();
+        return Target.PRIMARY;
+    }
+
+    /**
+     * Gets the data sources that connections are routed to.
+     *
+     * @return the primary database and the replica
+     */
+    public List<DataSource> getTargets() {
+
+        return Arrays.asList(primary, replica);
+    }
+
+    /**
+     * Gets the number of connections routed to the primary database.
+     *
+     * @return the number of connections
+     */
+    public long getPrimaryCount() {
+
+        return primaryCount.sum();
+    }
+
+    /**
+     * Gets the number of connections routed to the replica.
+     *
+     * @return the number of connections
+     */
+    public long getReplicaCount() {
+
+        return replicaCount.sum();
+    }
+}
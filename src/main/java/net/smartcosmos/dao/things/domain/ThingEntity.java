@@ -10,6 +10,7 @@ import javax.persistence.Entity;
 import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.IdClass;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
@@ -33,8 +34,21 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Data
 @EntityListeners({ AuditingEntityListener.class })
-@Table(name = "thing", uniqueConstraints = @UniqueConstraint(columnNames = { "id", "type", "tenantId" }))
-public class ThingEntity implements Serializable {
+@Table(name = "thing",
+       uniqueConstraints = @UniqueConstraint(columnNames = { "id", "type", "tenantId" }),
+       indexes = { @Index(name = ThingEntity.TENANT_TYPE_ID_INDEX, columnList = "tenantId, type, id"),
+                   @Index(name = ThingEntity.TENANT_TYPE_LAST_MODIFIED_INDEX, columnList = "tenantId, type, lastModified, id"),
+                   @Index(name = ThingEntity.TENANT_TYPE_CREATED_INDEX, columnList = "tenantId, type, created, id") })
+public class ThingEntity implements Serializable, ThingView {
+
+    /*
+        The primary key starts with the ID, which serves the lookups by ID. All other queries are scoped to a tenant, and mostly to a type,
+        and are served by the indexes below, which also return the Things in the order of the ID or of the timestamps without sorting.
+        The same indexes are created by the DDL scripts in db/schema, for schemas that are not generated by Hibernate.
+     */
+    public static final String TENANT_TYPE_ID_INDEX = "thing_tenant_type_id_idx";
+    public static final String TENANT_TYPE_LAST_MODIFIED_INDEX = "thing_tenant_type_last_modified_idx";
+    public static final String TENANT_TYPE_CREATED_INDEX = "thing_tenant_type_created_idx";
 
     private static final int UUID_LENGTH = 16;
     private static final int TYPE_LENGTH = 255;
@@ -55,6 +69,7 @@ public class ThingEntity implements Serializable {
     @Id
     @NotEmpty
     @Size(max = TYPE_LENGTH)
+    @Type(type = ThingTypeUserType.NAME)
     @Column(name = "type", length = TYPE_LENGTH, nullable = false, updatable = false)
     private String type;
 
@@ -3,11 +3,13 @@ package net.smartcosmos.dao.things.domain;
 import java.io.Serializable;
 import java.util.UUID;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
+@AllArgsConstructor
 public class ThingId implements Serializable {
 
     private UUID id;
@@ -0,0 +1,21 @@
+package net.smartcosmos.dao.things.domain;
+
+import java.util.Date;
+import java.util.UUID;
+
+import lombok.Data;
+
+/**
+ * The columns of a Thing, as selected by the read queries of the repository with a constructor expression. Unlike a {@link ThingEntity},
+ * a projection is not managed by the persistence context, so there's neither an entry nor a snapshot for dirty checking per row.
+ */
+@Data
+public class ThingProjection implements ThingView {
+
+    private final UUID id;
+    private final String type;
+    private final UUID tenantId;
+    private final Date created;
+    private final Date lastModified;
+    private final Boolean active;
+}
@@ -0,0 +1,41 @@
+package net.smartcosmos.dao.things.domain;
+
+import java.io.Serializable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.validation.constraints.Size;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import org.hibernate.validator.constraints.NotEmpty;
+
+/**
+ * An entry of the type dictionary, which maps Thing types to compact integer IDs. The entries are managed by
+ * {@link net.smartcosmos.dao.things.cache.ThingTypeDictionary}, the entity only declares the table. It is only part of the persistence
+ * unit while the dictionary is enabled, see {@link net.smartcosmos.dao.things.ThingPersistenceConfig}.
+ */
+@Entity(name = "thing_type")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Data
+@Table(name = "thing_type", uniqueConstraints = @UniqueConstraint(columnNames = { "name" }))
+public class ThingTypeEntity implements Serializable {
+
+    private static final int NAME_LENGTH = 255;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Integer id;
+
+    @NotEmpty
+    @Size(max = NAME_LENGTH)
+    @Column(name = "name", length = NAME_LENGTH, nullable = false, updatable = false)
+    private String name;
+}
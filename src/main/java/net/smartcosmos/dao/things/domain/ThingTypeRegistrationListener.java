@@ -0,0 +1,32 @@
+package net.smartcosmos.dao.things.domain;
+
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+
+import net.smartcosmos.dao.things.cache.ThingTypeDictionary;
+
+/**
+ * Registers the type of a new Thing in the type dictionary right before the insert, if the dictionary is enabled. The registration
+ * runs on the connection of the insert.
+ */
+public class ThingTypeRegistrationListener implements PreInsertEventListener {
+
+    private final ThingTypeDictionary dictionary;
+
+    public ThingTypeRegistrationListener(ThingTypeDictionary dictionary) {
+
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+
+        Object entity = event.getEntity();
+        if (dictionary.isEnabled() && entity instanceof ThingEntity && ((ThingEntity) entity).getType() != null) {
+            dictionary.register(((ThingEntity) entity).getType());
+        }
+
+        // never veto the insert
+        return false;
+    }
+}
@@ -0,0 +1,116 @@
+package net.smartcosmos.dao.things.domain;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.usertype.UserType;
+
+import net.smartcosmos.dao.things.cache.ThingTypeDictionary;
+
+/**
+ * Maps the type of a Thing to the {@code type} column. If the type dictionary is enabled, the column holds the integer ID of the type,
+ * otherwise the type name itself. Either way, the entity and all queries use the type name.
+ * <p>
+ * Binding a type never registers it. Types that are not in the dictionary yet are bound as an ID that matches no row, so lookups of
+ * unknown types don't write to the dictionary. New types are registered before the insert by {@link ThingTypeRegistrationListener}.
+ * <p>
+ * The type is not instantiated by Hibernate, but registered under {@link #NAME} with the dictionary of the application context, see
+ * {@link net.smartcosmos.dao.things.ThingPersistenceConfig}.
+ */
+public class ThingTypeUserType implements UserType {
+
+    public static final String NAME = "thing-type";
+
+    static final int UNKNOWN_TYPE_ID = -1;
+
+    private final ThingTypeDictionary dictionary;
+
+    public ThingTypeUserType(ThingTypeDictionary dictionary) {
+
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public int[] sqlTypes() {
+
+        return new int[] { dictionary.isEnabled() ? Types.INTEGER : Types.VARCHAR };
+    }
+
+    @Override
+    public Class returnedClass() {
+
+        return String.class;
+    }
+
+    @Override
+    public boolean equals(Object x, Object y) throws HibernateException {
+
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(Object x) throws HibernateException {
+
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public Object nullSafeGet(ResultSet rs, String[] names, SessionImplementor session, Object owner) throws HibernateException, SQLException {
+
+        if (!dictionary.isEnabled()) {
+            return rs.getString(names[0]);
+        }
+
+        int id = rs.getInt(names[0]);
+        return rs.wasNull() ? null : dictionary.getName(id);
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, Object value, int index, SessionImplementor session) throws HibernateException, SQLException {
+
+        if (!dictionary.isEnabled()) {
+            st.setString(index, (String) value);
+        } else if (value == null) {
+            st.setNull(index, Types.INTEGER);
+        } else {
+            Integer id = dictionary.getId((String) value);
+            st.setInt(index, id != null ? id : UNKNOWN_TYPE_ID);
+        }
+    }
+
+    @Override
+    public Object deepCopy(Object value) throws HibernateException {
+
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(Object value) throws HibernateException {
+
+        return (Serializable) value;
+    }
+
+    @Override
+    public Object assemble(Serializable cached, Object owner) throws HibernateException {
+
+        return cached;
+    }
+
+    @Override
+    public Object replace(Object original, Object target, Object owner) throws HibernateException {
+
+        return original;
+    }
+}
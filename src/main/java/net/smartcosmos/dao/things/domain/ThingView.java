@@ -0,0 +1,17 @@
+package net.smartcosmos.dao.things.domain;
+
+import java.util.UUID;
+
+/**
+ * The fields of a Thing that make up a response, shared by {@link ThingEntity} and {@link ThingProjection}.
+ */
+public interface ThingView {
+
+    UUID getId();
+
+    String getType();
+
+    UUID getTenantId();
+
+    Boolean getActive();
+}
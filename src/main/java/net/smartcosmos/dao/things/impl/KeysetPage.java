@@ -0,0 +1,33 @@
+package net.smartcosmos.dao.things.impl;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * A page of a keyset (seek) paginated result. Instead of a page number, the next page is requested with the continuation token.
+ *
+ * @param <T> the type of the page content
+ */
+@Data
+@Builder
+public class KeysetPage<T> {
+
+    private final List<T> data;
+
+    /**
+     * The number of elements on this page.
+     */
+    private final int size;
+
+    /**
+     * The opaque token to request the next page with, {@code null} if this is the last page.
+     */
+    private final String continuationToken;
+
+    public boolean hasNext() {
+
+        return continuationToken != null;
+    }
+}
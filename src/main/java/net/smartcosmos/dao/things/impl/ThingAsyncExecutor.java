@@ -0,0 +1,249 @@
+package net.smartcosmos.dao.things.impl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The executor of the asynchronous persistence service. It is bounded by the number of pending tasks, i.e. queued or running ones: a
+ * task beyond the bound fails right away instead of blocking the caller. The number of submitted, rejected, completed and failed
+ * tasks, as well as the time tasks waited and ran, are recorded without locks and available from {@link #getStats()}.
+ * <p>
+ * On a JVM with virtual threads (Java 21 or later), every task runs on a virtual thread of its own, unless
+ * {@code smartcosmos.things.async.virtual-threads=false} is set. Otherwise the tasks run on a fixed pool of daemon threads. Either way,
+ * at most {@code pool-size} tasks run at the same time, so that they can't take more database connections than that: virtual threads
+ * wait for a permit before they run their task.
+ */
+@Slf4j
+@Component
+public class ThingAsyncExecutor {
+
+    private static final String VIRTUAL_THREAD_FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final int poolSize;
+    private final int maxPending;
+    private final Semaphore pending;
+    // bounds the running tasks if each task has a thread of its own, null for the thread pool
+    private final Semaphore running;
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+    @Autowired
+    public ThingAsyncExecutor(
+        @Value("${smartcosmos.things.async.pool-size:16}") int poolSize,
+        @Value("${smartcosmos.things.async.max-pending:1024}") int maxPending,
+        @Value("${smartcosmos.things.async.virtual-threads:true}") boolean virtualThreads) {
+
+        this(poolSize, maxPending, virtualThreads ? newVirtualThreadExecutor() : null);
+    }
+
+    /**
+     * Creates an executor.
+     *
+     * @param poolSize the maximum number of running tasks
+     * @param maxPending the maximum number of pending tasks
+     * @param perTaskExecutor an executor that runs each task on a thread of its own, or {@code null} to use a thread pool
+     */
+    ThingAsyncExecutor(int poolSize, int maxPending, ExecutorService perTaskExecutor) {
+
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must not be less than one!");
+        }
+        if (maxPending < poolSize) {
+            throw new IllegalArgumentException("Max pending tasks must not be less than the pool size!");
+        }
+
+        if (perTaskExecutor != null) {
+            this.executor = perTaskExecutor;
+            this.virtual = true;
+            this.running = new Semaphore(poolSize);
+        } else {
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                                                             // the permits keep the queue from overflowing
+                                                             new ArrayBlockingQueue<>(maxPending),
+                                                             runnable -> {
+                                                                 Thread thread = new Thread(runnable, "things-async-" + threadCount.incrementAndGet());
+                                                                 thread.setDaemon(true);
+                                                                 return thread;
+                                                             });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.virtual = false;
+            this.running = null;
+        }
+        this.poolSize = poolSize;
+        this.maxPending = maxPending;
+        this.pending = new Semaphore(maxPending);
+
+        log.info("Asynchronous Thing operations run on {}, with at most {} running and {} pending tasks",
+                 virtual ? "virtual threads" : "a pool of threads", poolSize, maxPending);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        executor.shutdown();
+    }
+
+    public boolean isVirtual() {
+
+        return virtual;
+    }
+
+    /**
+     * Runs a task asynchronously.
+     *
+     * @param task the task
+     * @param <T> the result type
+     * @return the future result of the task, which fails with a {@link RejectedExecutionException} if the maximum number of pending
+     * tasks is reached
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!pending.tryAcquire()) {
+            rejectedCount.increment();
+            future.completeExceptionally(new RejectedExecutionException(String.format("Too many pending Thing operations, the maximum is %d",
+                                                                                      maxPending)));
+            return future;
+        }
+
+        long submitted = System.nanoTime();
+        try {
+            executor.execute(() -> run(task, future, submitted));
+            submittedCount.increment();
+        } catch (RejectedExecutionException e) {
+            // the executor is shut down
+            pending.release();
+            rejectedCount.increment();
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Gets the statistics of the executor.
+     *
+     * @return the statistics
+     */
+    public ExecutorStats getStats() {
+
+        return ExecutorStats.builder()
+            .virtual(virtual)
+            .pendingCount(maxPending - pending.availablePermits())
+            .runningCount(getRunningCount())
+            .submittedCount(submittedCount.sum())
+            .rejectedCount(rejectedCount.sum())
+            .completedCount(completedCount.sum())
+            .failedCount(failedCount.sum())
+            .waitNanos(waitNanos.sum())
+            .runNanos(runNanos.sum())
+            .maxRunNanos(maxRunNanos.get())
+            .build();
+    }
+
+    private int getRunningCount() {
+
+        return running != null ? poolSize - running.availablePermits() : ((ThreadPoolExecutor) executor).getActiveCount();
+    }
+
+    private <T> void run(Supplier<T> task, CompletableFuture<T> future, long submitted) {
+
+        if (running != null) {
+            running.acquireUninterruptibly();
+        }
+
+        long started = System.nanoTime();
+        waitNanos.add(started - submitted);
+
+        T result = null;
+        Throwable failure = null;
+        try {
+            result = task.get();
+            completedCount.increment();
+        } catch (Throwable e) {
+            failedCount.increment();
+            failure = e;
+        } finally {
+            long duration = System.nanoTime() - started;
+            runNanos.add(duration);
+            maxRunNanos.accumulate(duration);
+            if (running != null) {
+                running.release();
+            }
+            pending.release();
+        }
+
+        // the task is accounted for before anyone waiting for the future resumes
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(result);
+        }
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread. The factory method is looked up by reflection, since this code
+     * is compiled for Java 8.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod(VIRTUAL_THREAD_FACTORY_METHOD);
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Virtual threads are not available: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * The statistics of the executor: whether it uses virtual threads, the number of currently pending and running tasks, the number of
+     * submitted, rejected, completed and failed tasks, the total time tasks waited for a thread and ran, and the longest run time.
+     */
+    @Data
+    @Builder
+    public static class ExecutorStats {
+
+        private final boolean virtual;
+        private final int pendingCount;
+        private final int runningCount;
+        private final long submittedCount;
+        private final long rejectedCount;
+        private final long completedCount;
+        private final long failedCount;
+        private final long waitNanos;
+        private final long runNanos;
+        private final long maxRunNanos;
+    }
+}
@@ -0,0 +1,229 @@
+package net.smartcosmos.dao.things.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import net.smartcosmos.dao.things.SortOrder;
+import net.smartcosmos.dao.things.datasource.ThingRoutingContext;
+import net.smartcosmos.dto.things.Page;
+import net.smartcosmos.dto.things.ThingCreate;
+import net.smartcosmos.dto.things.ThingResponse;
+import net.smartcosmos.dto.things.ThingUpdate;
+
+/**
+ * Asynchronous variants of the operations of {@link ThingPersistenceService}, which return at once with a {@link CompletableFuture}.
+ * The operations run on the {@link ThingAsyncExecutor}, if it has too many pending operations, the future fails with a
+ * {@link java.util.concurrent.RejectedExecutionException}.
+ * <p>
+ * Each operation calls the transactional persistence service on the worker thread, so its transactions are bound to that thread.
+ * Consequently, an operation never joins a transaction of the caller, and doesn't see its uncommitted writes. The security context and
+ * the read-replica routing state of the caller are carried over to the worker thread, and after a write the caller sticks to the primary
+ * database, like after a synchronous one.
+ */
+@Service
+public class ThingAsyncPersistenceService {
+
+    private final ThingPersistenceService persistenceService;
+    private final ThingAsyncExecutor executor;
+
+    @Autowired
+    public ThingAsyncPersistenceService(ThingPersistenceService persistenceService, ThingAsyncExecutor executor) {
+
+        this.persistenceService = persistenceService;
+        this.executor = executor;
+    }
+
+    // region Create
+
+    public CompletableFuture<Optional<ThingResponse>> create(String tenantUrn, ThingCreate createThing) {
+
+        return async(() -> persistenceService.create(tenantUrn, createThing));
+    }
+
+    public CompletableFuture<List<ThingCreateResult>> createAll(String tenantUrn, List<ThingCreate> createThings) {
+
+        return async(() -> persistenceService.createAll(tenantUrn, createThings));
+    }
+
+    // endregion
+
+    // region Update
+
+    public CompletableFuture<Optional<ThingResponse>> update(String tenantUrn, String type, String urn, ThingUpdate updateThing) {
+
+        return async(() -> persistenceService.update(tenantUrn, type, urn, updateThing));
+    }
+
+    public CompletableFuture<Integer> updateAll(String tenantUrn, String type, Collection<String> urns, ThingUpdate updateThing) {
+
+        return async(() -> persistenceService.updateAll(tenantUrn, type, urns, updateThing));
+    }
+
+    public CompletableFuture<Integer> updateAllOfType(String tenantUrn, String type, ThingUpdate updateThing) {
+
+        return async(() -> persistenceService.updateAllOfType(tenantUrn, type, updateThing));
+    }
+
+    // endregion
+
+    // region Delete
+
+    public CompletableFuture<Optional<ThingResponse>> delete(String tenantUrn, String type, String urn) {
+
+        return async(() -> persistenceService.delete(tenantUrn, type, urn));
+    }
+
+    public CompletableFuture<Integer> deleteAll(String tenantUrn, String type, Collection<String> urns) {
+
+        return async(() -> persistenceService.deleteAll(tenantUrn, type, urns));
+    }
+
+    public CompletableFuture<List<ThingResponse>> deleteAllAndReturn(String tenantUrn, String type, Collection<String> urns) {
+
+        return async(() -> persistenceService.deleteAllAndReturn(tenantUrn, type, urns));
+    }
+
+    public CompletableFuture<Integer> deleteAllOfType(String tenantUrn, String type) {
+
+        return async(() -> persistenceService.deleteAllOfType(tenantUrn, type));
+    }
+
+    // endregion
+
+    // region Find By Type
+
+    public CompletableFuture<Page<ThingResponse>> findByType(String tenantUrn, String type) {
+
+        return async(() -> persistenceService.findByType(tenantUrn, type));
+    }
+
+    public CompletableFuture<Page<ThingResponse>> findByType(String tenantUrn, String type, SortOrder sortOrder, String sortBy) {
+
+        return async(() -> persistenceService.findByType(tenantUrn, type, sortOrder, sortBy));
+    }
+
+    public CompletableFuture<Page<ThingResponse>> findByType(String tenantUrn, String type, Integer page, Integer size) {
+
+        return async(() -> persistenceService.findByType(tenantUrn, type, page, size));
+    }
+
+    public CompletableFuture<Page<ThingResponse>> findByType(
+        String tenantUrn, String type, Integer page, Integer size, SortOrder sortOrder, String sortBy) {
+
+        return async(() -> persistenceService.findByType(tenantUrn, type, page, size, sortOrder, sortBy));
+    }
+
+    public CompletableFuture<Page<ThingResponse>> findByTypeWithoutTotals(
+        String tenantUrn, String type, Integer page, Integer size, SortOrder sortOrder, String sortBy) {
+
+        return async(() -> persistenceService.findByTypeWithoutTotals(tenantUrn, type, page, size, sortOrder, sortBy));
+    }
+
+    public CompletableFuture<KeysetPage<ThingResponse>> findByTypeAfter(
+        String tenantUrn, String type, String continuationToken, Integer size, SortOrder sortOrder, String sortBy) {
+
+        return async(() -> persistenceService.findByTypeAfter(tenantUrn, type, continuationToken, size, sortOrder, sortBy));
+    }
+
+    // endregion
+
+    // region Find By Type and URN
+
+    public CompletableFuture<Optional<ThingResponse>> findByTypeAndUrn(String tenantUrn, String type, String urn) {
+
+        return async(() -> persistenceService.findByTypeAndUrn(tenantUrn, type, urn));
+    }
+
+    // endregion
+
+    // region Find by URNs
+
+    public CompletableFuture<List<ThingResponse>> findByTypeAndUrns(String tenantUrn, String type, Collection<String> urns) {
+
+        return async(() -> persistenceService.findByTypeAndUrns(tenantUrn, type, urns));
+    }
+
+    public CompletableFuture<List<ThingResponse>> findByTypeAndUrns(
+        String tenantUrn, String type, Collection<String> urns, SortOrder sortOrder, String sortBy) {
+
+        return async(() -> persistenceService.findByTypeAndUrns(tenantUrn, type, urns, sortOrder, sortBy));
+    }
+
+    // endregion
+
+    // region Find All
+
+    public CompletableFuture<Page<ThingResponse>> findAll(String tenantUrn) {
+
+        return async(() -> persistenceService.findAll(tenantUrn));
+    }
+
+    public CompletableFuture<Page<ThingResponse>> findAll(String tenantUrn, SortOrder sortOrder, String sortBy) {
+
+        return async(() -> persistenceService.findAll(tenantUrn, sortOrder, sortBy));
+    }
+
+    public CompletableFuture<Page<ThingResponse>> findAll(String tenantUrn, Integer page, Integer size) {
+
+        return async(() -> persistenceService.findAll(tenantUrn, page, size));
+    }
+
+    public CompletableFuture<Page<ThingResponse>> findAll(String tenantUrn, Integer page, Integer size, SortOrder sortOrder, String sortBy) {
+
+        return async(() -> persistenceService.findAll(tenantUrn, page, size, sortOrder, sortBy));
+    }
+
+    public CompletableFuture<Page<ThingResponse>> findAllWithoutTotals(
+        String tenantUrn, Integer page, Integer size, SortOrder sortOrder, String sortBy) {
+
+        return async(() -> persistenceService.findAllWithoutTotals(tenantUrn, page, size, sortOrder, sortBy));
+    }
+
+    public CompletableFuture<KeysetPage<ThingResponse>> findAllAfter(
+        String tenantUrn, String continuationToken, Integer size, SortOrder sortOrder, String sortBy) {
+
+        return async(() -> persistenceService.findAllAfter(tenantUrn, continuationToken, size, sortOrder, sortBy));
+    }
+
+    // endregion
+
+    // region Helper Methods
+
+    /**
+     * Runs an operation on the executor, with the security context and the routing state of the calling thread.
+     *
+     * @param operation the operation
+     * @param <T> the result type
+     * @return the future result
+     */
+    private <T> CompletableFuture<T> async(Supplier<T> operation) {
+
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        Callable<T> task = ThingRoutingContext.propagate(operation::get);
+
+        return executor.supply(() -> {
+            SecurityContextHolder.setContext(securityContext);
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+    }
+
+    // endregion
+}
@@ -0,0 +1,47 @@
+package net.smartcosmos.dao.things.impl;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import net.smartcosmos.dto.things.ThingResponse;
+
+/**
+ * The outcome of a single item of a {@link ThingPersistenceService#createAll(String, java.util.List)} batch.
+ */
+@Data
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ThingCreateResult {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE
+    }
+
+    private final Status status;
+
+    /**
+     * The URN of the Thing, either supplied by the client or generated.
+     */
+    private final String urn;
+
+    /**
+     * The created Thing, {@code null} for duplicates.
+     */
+    private final ThingResponse thing;
+
+    public static ThingCreateResult created(ThingResponse thing) {
+
+        return new ThingCreateResult(Status.CREATED, thing.getUrn(), thing);
+    }
+
+    public static ThingCreateResult duplicate(String urn) {
+
+        return new ThingCreateResult(Status.DUPLICATE, urn, null);
+    }
+
+    public boolean isCreated() {
+
+        return status == Status.CREATED;
+    }
+}
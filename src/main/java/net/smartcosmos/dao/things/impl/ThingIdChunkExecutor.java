@@ -0,0 +1,318 @@
+package net.smartcosmos.dao.things.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadata;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProviders;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.smartcosmos.dao.things.datasource.ThingRoutingContext;
+import net.smartcosmos.dao.things.datasource.ThingRoutingDataSource;
+
+/**
+ * Runs queries with an {@code IN} clause of IDs in chunks, in parallel, and merges the results.
+ * <p>
+ * The IDs are deduplicated and split into chunks of a fixed size, which is a power of two. The last chunk is padded to the next power
+ * of two by repeating its last ID, so that only a few distinct statements are ever prepared, instead of one per list length. This keeps
+ * the Hibernate query plan cache and the statement caches of driver and database small, and every statement well below the parameter
+ * limits.
+ * <p>
+ * The first chunk runs on the calling thread, the others on a bounded pool. If the pool and its queue are full, chunks run on the
+ * calling thread as well. Each chunk result must be ordered by the given comparator, so that the results can be merged without sorting;
+ * the comparator has to order exactly like the database. The pool threads are routed to the primary database or the replica like the
+ * calling thread.
+ * <p>
+ * Chunks on the pool run in their own transactions, with their own connections, so they don't read from the snapshot of the caller.
+ * Within a transaction, all chunks therefore run on the calling thread, and see the same snapshot and the uncommitted changes of the
+ * transaction. Since all callers share the pool, the pool threads hold at most {@code parallelism} connections at a time. The
+ * parallelism is capped below the maximum size of the JDBC connection pool, so that the calling threads always find a connection.
+ */
+@Slf4j
+@Component
+public class ThingIdChunkExecutor {
+
+    private static final int QUEUE_CAPACITY_PER_THREAD = 16;
+
+    private final int chunkSize;
+    // null if all chunks run on the calling thread
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public ThingIdChunkExecutor(
+        @Value("${smartcosmos.things.find-by-ids.chunk-size:512}") int chunkSize,
+        @Value("${smartcosmos.things.find-by-ids.parallelism:4}") int parallelism,
+        DataSource dataSource,
+        Optional<List<DataSourcePoolMetadataProvider>> metadataProviders) {
+
+        this(chunkSize, capParallelism(parallelism, getMaxPoolSize(dataSource, new DataSourcePoolMetadataProviders(
+            metadataProviders.orElse(new ArrayList<>())))));
+    }
+
+    /**
+     * Creates an executor.
+     *
+     * @param chunkSize the chunk size, which is rounded up to the next power of two
+     * @param parallelism the number of pool threads, or {@code 0} to run all chunks on the calling thread
+     */
+    ThingIdChunkExecutor(int chunkSize, int parallelism) {
+
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must not be less than one!");
+        }
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Parallelism must not be negative!");
+        }
+
+        this.chunkSize = nextPowerOfTwo(chunkSize);
+
+        if (parallelism == 0) {
+            this.executor = null;
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                                               new ArrayBlockingQueue<>(parallelism * QUEUE_CAPACITY_PER_THREAD),
+                                               runnable -> {
+                                                   Thread thread = new Thread(runnable, "things-in-query-" + threadCount.incrementAndGet());
+                                                   thread.setDaemon(true);
+                                                   return thread;
+                                               },
+                                               new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public int getChunkSize() {
+
+        return chunkSize;
+    }
+
+    /**
+     * Gets the number of pool threads.
+     *
+     * @return the number of threads, or {@code 0} if all chunks run on the calling thread
+     */
+    public int getParallelism() {
+
+        return executor != null ? executor.getMaximumPoolSize() : 0;
+    }
+
+    /**
+     * Runs a query for a collection of IDs in chunks and merges the ordered chunk results.
+     *
+     * @param ids the IDs, may contain duplicates
+     * @param query the query for a chunk of IDs, which returns an ordered result
+     * @param order the order of the query results
+     * @param <T> the result type
+     * @return the merged results, ordered like the chunk results
+     */
+    public <T> List<T> findAll(Collection<UUID> ids, Function<List<UUID>, List<T>> query, Comparator<? super T> order) {
+
+        List<List<UUID>> chunks = getChunks(ids);
+        if (chunks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (chunks.size() == 1) {
+            return query.apply(chunks.get(0));
+        }
+
+        if (executor == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            // within a transaction, the chunks must see its snapshot, which only its connection does
+            List<List<T>> results = new ArrayList<>(chunks.size());
+            for (List<UUID> chunk : chunks) {
+                results.add(query.apply(chunk));
+            }
+            return merge(results, order);
+        }
+
+        List<Future<List<T>>> futures = new ArrayList<>(chunks.size() - 1);
+        for (List<UUID> chunk : chunks.subList(1, chunks.size())) {
+            futures.add(executor.submit(ThingRoutingContext.propagate(() -> query.apply(chunk))));
+        }
+
+        List<List<T>> results = new ArrayList<>(chunks.size());
+        results.add(query.apply(chunks.get(0)));
+        for (Future<List<T>> future : futures) {
+            results.add(getResult(future));
+        }
+
+        return merge(results, order);
+    }
+
+    /**
+     * Deduplicates the IDs and splits them into chunks, padding the last chunk to a power of two.
+     *
+     * @param ids the IDs
+     * @return the chunks
+     */
+    List<List<UUID>> getChunks(Collection<UUID> ids) {
+
+        List<UUID> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<UUID>> chunks = new ArrayList<>((distinctIds.size() + chunkSize - 1) / chunkSize);
+
+        for (int start = 0; start < distinctIds.size(); start += chunkSize) {
+            int end = Math.min(start + chunkSize, distinctIds.size());
+            List<UUID> chunk = new ArrayList<>(distinctIds.subList(start, end));
+
+            int paddedSize = nextPowerOfTwo(chunk.size());
+            UUID last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < paddedSize) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Merges ordered lists with a k-way merge.
+     *
+     * @param lists the ordered lists
+     * @param order the order
+     * @param <T> the element type
+     * @return the merged list
+     */
+    static <T> List<T> merge(List<List<T>> lists, Comparator<? super T> order) {
+
+        int size = 0;
+        for (List<T> list : lists) {
+            size += list.size();
+        }
+
+        // the heap holds the index of the list and the position of its current head element
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, lists.size()), (a, b) -> {
+            int result = order.compare(lists.get(a[0])
+                                           .get(a[1]), lists.get(b[0])
+                                           .get(b[1]));
+            // equal elements keep the order of the lists
+            return result != 0 ? result : Integer.compare(a[0], b[0]);
+        });
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i)
+                .isEmpty()) {
+                heads.add(new int[] { i, 0 });
+            }
+        }
+
+        List<T> merged = new ArrayList<>(size);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> list = lists.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Caps the parallelism below the maximum size of the connection pool, so that at least one connection remains for the calling
+     * threads.
+     *
+     * @param parallelism the configured parallelism, {@code 0} to run all chunks on the calling thread
+     * @param maxPoolSize the maximum size of the connection pool, or {@code null} if it is unknown
+     * @return the capped parallelism, {@code 0} if the pool has a single connection
+     */
+    static int capParallelism(int parallelism, Integer maxPoolSize) {
+
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Parallelism must not be negative!");
+        }
+
+        if (maxPoolSize != null && parallelism >= maxPoolSize) {
+            int capped = Math.max(0, maxPoolSize - 1);
+            log.warn("Capping the parallelism of chunked ID queries from {} to {}, the connection pool has at most {} connections", parallelism,
+                     capped, maxPoolSize);
+            return capped;
+        }
+
+        return parallelism;
+    }
+
+    /**
+     * Gets the maximum size of the connection pool behind a data source. Proxies are unwrapped, and of a routing data source the smaller
+     * pool counts.
+     *
+     * @param dataSource the data source
+     * @param metadataProvider the provider of the pool metadata
+     * @return the maximum number of connections, or {@code null} if it is unknown or unlimited
+     */
+    static Integer getMaxPoolSize(DataSource dataSource, DataSourcePoolMetadataProvider metadataProvider) {
+
+        if (dataSource instanceof DelegatingDataSource) {
+            return getMaxPoolSize(((DelegatingDataSource) dataSource).getTargetDataSource(), metadataProvider);
+        }
+
+        if (dataSource instanceof ThingRoutingDataSource) {
+            Integer maxPoolSize = null;
+            for (DataSource target : ((ThingRoutingDataSource) dataSource).getTargets()) {
+                Integer targetMaxPoolSize = getMaxPoolSize(target, metadataProvider);
+                if (targetMaxPoolSize != null && (maxPoolSize == null || targetMaxPoolSize < maxPoolSize)) {
+                    maxPoolSize = targetMaxPoolSize;
+                }
+            }
+            return maxPoolSize;
+        }
+
+        DataSourcePoolMetadata metadata = dataSource != null ? metadataProvider.getDataSourcePoolMetadata(dataSource) : null;
+        Integer max = metadata != null ? metadata.getMax() : null;
+
+        // -1 means unlimited
+        return max != null && max > 0 ? max : null;
+    }
+
+    private static <T> List<T> getResult(Future<List<T>> future) {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a chunk query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Chunk query failed", e.getCause());
+        }
+    }
+
+    private static int nextPowerOfTwo(int value) {
+
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+}
@@ -1,9 +1,17 @@
 package net.smartcosmos.dao.things.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.validation.ConstraintViolationException;
 
@@ -13,16 +21,28 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.ConversionService;
-import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import net.smartcosmos.dao.things.SortOrder;
 import net.smartcosmos.dao.things.ThingDao;
+import net.smartcosmos.dao.things.cache.ThingCountRegistry;
+import net.smartcosmos.dao.things.cache.ThingIdFilterRegistry;
+import net.smartcosmos.dao.things.cache.ThingResponseCache;
+import net.smartcosmos.dao.things.converter.ThingResponseMapper;
 import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.domain.ThingId;
+import net.smartcosmos.dao.things.domain.ThingProjection;
+import net.smartcosmos.dao.things.repository.Keyset;
 import net.smartcosmos.dao.things.repository.ThingRepository;
 import net.smartcosmos.dao.things.util.ThingPersistenceUtil;
 import net.smartcosmos.dao.things.util.UuidUtil;
@@ -32,45 +52,144 @@ import net.smartcosmos.dto.things.ThingCreate;
 import net.smartcosmos.dto.things.ThingResponse;
 import net.smartcosmos.dto.things.ThingUpdate;
 
-import static net.smartcosmos.dao.things.util.ThingPersistenceUtil.emptyPage;
-
 @Slf4j
 @Service
 public class ThingPersistenceService implements ThingDao {
 
     private final ThingRepository repository;
     private final ConversionService conversionService;
+    private final ThingCountRegistry countRegistry;
+    private final ThingResponseCache responseCache;
+    private final ThingIdFilterRegistry idFilter;
+    private final ThingIdChunkExecutor idChunkExecutor;
+    private final ThingResponseMapper responseMapper;
 
     @Autowired
     public ThingPersistenceService(
         ThingRepository repository,
-        ConversionService conversionService) {
+        ConversionService conversionService,
+        ThingCountRegistry countRegistry,
+        ThingResponseCache responseCache,
+        ThingIdFilterRegistry idFilter,
+        ThingIdChunkExecutor idChunkExecutor,
+        ThingResponseMapper responseMapper) {
 
         this.repository = repository;
         this.conversionService = conversionService;
+        this.countRegistry = countRegistry;
+        this.responseCache = responseCache;
+        this.idFilter = idFilter;
+        this.idChunkExecutor = idChunkExecutor;
+        this.responseMapper = responseMapper;
     }
 
     // region Create
 
     @Override
-    public Optional<ThingResponse> create(String tenantUrn, ThingCreate createThing) {
+    public Optional<ThingResponse> create(String tenantUrn, ThingCreate createThing) throws ConstraintViolationException {
 
-        if (!alreadyExists(tenantUrn, createThing)) {
-            UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
 
-            ThingEntity entity = conversionService.convert(createThing, ThingEntity.class);
-            entity.setTenantId(tenantId);
+        ThingEntity entity = conversionService.convert(createThing, ThingEntity.class);
+        entity.setTenantId(tenantId);
 
-            entity = persist(entity);
-            ThingResponse response = conversionService.convert(entity, ThingResponse.class);
+        if (insertIfAbsent(entity)) {
+            afterCommit(() -> {
+                countRegistry.add(tenantId, entity.getType(), 1);
+                responseCache.invalidateCrossTenant(entity.getType(), entity.getId());
+                idFilter.add(tenantId, entity.getType(), entity.getId());
+            });
+            ThingResponse response = responseMapper.toResponse(entity);
 
             return Optional.ofNullable(response);
-
         }
 
         return Optional.empty();
     }
 
+    /**
+     * Creates a batch of Things for a tenant. All client-supplied URNs are checked for duplicates in a single query, and the new Things
+     * are inserted using JDBC batching. Duplicates within the batch itself are reported like duplicates of existing Things.
+     * <p>
+     * The duplicate check can miss Things that are created concurrently, or on another node. If the batch insert fails with a duplicate
+     * key, the batch is inserted once more item by item, and the Things that exist by then are reported as duplicates. This only works
+     * if the method isn't called within a transaction, since the failed batch insert marks such a transaction rollback-only.
+     *
+     * @param tenantUrn the tenant URN
+     * @param createThings the Things to create
+     * @return the result for each item of the batch, in the same order
+     * @throws ConstraintViolationException if one of the Things is invalid, in which case none of them is created
+     */
+    public List<ThingCreateResult> createAll(String tenantUrn, List<ThingCreate> createThings) throws ConstraintViolationException {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+
+        int newIdCount = 0;
+        for (ThingCreate createThing : createThings) {
+            if (StringUtils.isBlank(createThing.getUrn())) {
+                newIdCount++;
+            }
+        }
+
+        // the IDs of Things without client-supplied URN are reserved in a single block
+        List<ThingEntity> entities = UuidUtil.withReservedUuids(newIdCount, () -> {
+            List<ThingEntity> convertedEntities = new ArrayList<>(createThings.size());
+            for (ThingCreate createThing : createThings) {
+                ThingEntity entity = conversionService.convert(createThing, ThingEntity.class);
+                entity.setTenantId(tenantId);
+                convertedEntities.add(entity);
+            }
+            return convertedEntities;
+        });
+
+        Set<ThingId> existingIds = getExistingThingIds(tenantId, createThings, entities);
+
+        List<ThingEntity> newEntities = new ArrayList<>(entities.size());
+        boolean[] duplicates = new boolean[entities.size()];
+        for (int i = 0; i < entities.size(); i++) {
+            ThingEntity entity = entities.get(i);
+            if (StringUtils.isNotBlank(createThings.get(i).getUrn())
+                && !existingIds.add(new ThingId(entity.getId(), entity.getType(), tenantId))) {
+                duplicates[i] = true;
+            } else {
+                newEntities.add(entity);
+            }
+        }
+
+        boolean[] inserted = persistAll(newEntities);
+        List<ThingEntity> insertedEntities = new ArrayList<>(newEntities.size());
+        for (int i = 0, j = 0; i < entities.size(); i++) {
+            if (duplicates[i]) {
+                continue;
+            }
+            if (inserted[j++]) {
+                insertedEntities.add(entities.get(i));
+            } else {
+                duplicates[i] = true;
+            }
+        }
+
+        afterCommit(() -> {
+            for (ThingEntity entity : insertedEntities) {
+                countRegistry.add(tenantId, entity.getType(), 1);
+                responseCache.invalidateCrossTenant(entity.getType(), entity.getId());
+                idFilter.add(tenantId, entity.getType(), entity.getId());
+            }
+        });
+
+        String normalizedTenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+        List<ThingCreateResult> results = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            if (duplicates[i]) {
+                results.add(ThingCreateResult.duplicate(createThings.get(i).getUrn()));
+            } else {
+                results.add(ThingCreateResult.created(responseMapper.toResponse(entities.get(i), normalizedTenantUrn)));
+            }
+        }
+
+        return results;
+    }
+
     // endregion
 
     // region Update
@@ -85,7 +204,8 @@ public class ThingPersistenceService implements ThingDao {
         if (thing.isPresent()) {
             ThingEntity updateEntity = ThingPersistenceUtil.merge(thing.get(), updateThing);
             updateEntity = persist(updateEntity);
-            final ThingResponse response = conversionService.convert(updateEntity, ThingResponse.class);
+            afterCommit(() -> responseCache.invalidate(tenantId, type, id));
+            final ThingResponse response = responseMapper.toResponse(updateEntity);
 
             return Optional.ofNullable(response);
         }
@@ -93,6 +213,55 @@ public class ThingPersistenceService implements ThingDao {
         return Optional.empty();
     }
 
+    /**
+     * Updates a set of Things of a type with a single {@code UPDATE} statement, which also sets their modification date.
+     * Unparseable URNs are ignored.
+     *
+     * @param tenantUrn the tenant URN
+     * @param type the type of the Things
+     * @param urns the URNs of the Things
+     * @param updateThing the update content
+     * @return the number of updated Things
+     */
+    public int updateAll(String tenantUrn, String type, Collection<String> urns, ThingUpdate updateThing) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        List<UUID> ids = getUuidListFromUrnCollection(tenantUrn, urns);
+
+        if (ids.isEmpty() || updateThing.getActive() == null) {
+            return 0;
+        }
+
+        int updateCount = repository.updateActiveByTenantIdAndTypeAndIdIn(tenantId, type, ids, updateThing.getActive(), new Date());
+        repository.detach(tenantId, type, ids);
+        afterCommit(() -> responseCache.invalidate(tenantId, type, ids));
+
+        return updateCount;
+    }
+
+    /**
+     * Updates all Things of a type with a single {@code UPDATE} statement, which also sets their modification date.
+     *
+     * @param tenantUrn the tenant URN
+     * @param type the type of the Things
+     * @param updateThing the update content
+     * @return the number of updated Things
+     */
+    public int updateAllOfType(String tenantUrn, String type, ThingUpdate updateThing) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+
+        if (updateThing.getActive() == null) {
+            return 0;
+        }
+
+        int updateCount = repository.updateActiveByTenantIdAndType(tenantId, type, updateThing.getActive(), new Date());
+        repository.detach(tenantId, type, null);
+        afterCommit(() -> responseCache.invalidateAll(tenantId, type));
+
+        return updateCount;
+    }
+
     // endregion
 
     // region Delete
@@ -102,15 +271,101 @@ public class ThingPersistenceService implements ThingDao {
 
         UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
         UUID id = UuidUtil.getUuidFromUrn(urn);
-        List<ThingEntity> deleteList = repository.deleteByIdAndTenantIdAndType(id, tenantId, type);
+        Optional<ThingEntity> entity = repository.findByIdAndTenantIdAndType(id, tenantId, type);
 
-        if (!deleteList.isEmpty()) {
-            return Optional.ofNullable(conversionService.convert(deleteList.get(0), ThingResponse.class));
+        // a bulk delete by ID saves loading the entity into the persistence context for em.remove()
+        if (entity.isPresent() && repository.deleteAllByTenantIdAndTypeAndIdIn(tenantId, type, Collections.singletonList(id)) > 0) {
+            repository.detach(tenantId, type, Collections.singletonList(id));
+            afterCommit(() -> {
+                countRegistry.add(tenantId, type, -1);
+                responseCache.invalidate(tenantId, type, id);
+            });
+            return Optional.ofNullable(responseMapper.toResponse(entity.get()));
         }
 
         return Optional.empty();
     }
 
+    /**
+     * Deletes a set of Things of a type with a single {@code DELETE} statement. Unparseable URNs are ignored.
+     *
+     * @param tenantUrn the tenant URN
+     * @param type the type of the Things
+     * @param urns the URNs of the Things
+     * @return the number of deleted Things
+     */
+    public int deleteAll(String tenantUrn, String type, Collection<String> urns) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        List<UUID> ids = getUuidListFromUrnCollection(tenantUrn, urns);
+
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        int deleteCount = repository.deleteAllByTenantIdAndTypeAndIdIn(tenantId, type, ids);
+        repository.detach(tenantId, type, ids);
+        afterCommit(() -> {
+            countRegistry.add(tenantId, type, -deleteCount);
+            responseCache.invalidate(tenantId, type, ids);
+        });
+
+        return deleteCount;
+    }
+
+    /**
+     * Deletes a set of Things of a type and returns them. The Things are read with one query and deleted with a single {@code DELETE}
+     * statement. Use {@link #deleteAll(String, String, Collection)} if the deleted Things are not needed.
+     *
+     * @param tenantUrn the tenant URN
+     * @param type the type of the Things
+     * @param urns the URNs of the Things
+     * @return the deleted Things
+     */
+    @Transactional
+    public List<ThingResponse> deleteAllAndReturn(String tenantUrn, String type, Collection<String> urns) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        List<UUID> ids = getUuidListFromUrnCollection(tenantUrn, urns);
+
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<ThingEntity> entityList = repository.findByTenantIdAndTypeAndIdIn(tenantId, type, ids);
+        if (!entityList.isEmpty()) {
+            int deleteCount = repository.deleteAllByTenantIdAndTypeAndIdIn(tenantId, type, ids);
+            repository.detach(tenantId, type, ids);
+            afterCommit(() -> {
+                countRegistry.add(tenantId, type, -deleteCount);
+                responseCache.invalidate(tenantId, type, ids);
+            });
+        }
+
+        return responseMapper.toResponses(entityList);
+    }
+
+    /**
+     * Deletes all Things of a type with a single {@code DELETE} statement.
+     *
+     * @param tenantUrn the tenant URN
+     * @param type the type of the Things
+     * @return the number of deleted Things
+     */
+    public int deleteAllOfType(String tenantUrn, String type) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+
+        int deleteCount = repository.deleteAllByTenantIdAndType(tenantId, type);
+        repository.detach(tenantId, type, null);
+        afterCommit(() -> {
+            countRegistry.reset(tenantId, type);
+            responseCache.invalidateAll(tenantId, type);
+        });
+
+        return deleteCount;
+    }
+
     // endregion
 
     // region Find By Type
@@ -141,12 +396,61 @@ public class ThingPersistenceService implements ThingDao {
                                                        ThingPersistenceUtil.getSortDirection(sortOrder)));
     }
 
+    /**
+     * Finds Things of a type without counting all matching Things, which saves the {@code COUNT} query of the other {@code findByType}
+     * methods. Total elements and total pages are reported as {@code -1} (unknown), unless the requested page is the last one.
+     *
+     * @param tenantUrn the tenant URN
+     * @param type the type
+     * @param page the page number
+     * @param size the page size
+     * @param sortOrder the sort order
+     * @param sortBy the name of the field to sort by
+     * @return the page
+     */
+    public Page<ThingResponse> findByTypeWithoutTotals(String tenantUrn, String type, Integer page, Integer size, SortOrder sortOrder, String sortBy) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        Pageable pageable = getPageable(page, size, ThingPersistenceUtil.getSortByFieldName(sortBy), getSortDirection(sortOrder));
+        Slice<ThingProjection> sliceResponse = repository.findProjectionSliceByTenantIdAndType(tenantId, type, pageable);
+
+        return responseMapper.toPage(sliceResponse);
+    }
+
+    /**
+     * Finds Things of a type using keyset (seek) pagination. Unlike page numbers, the continuation token keeps deep pages as fast as the
+     * first one. The ID is used as tie-breaker for the sort order.
+     *
+     * @param tenantUrn the tenant URN
+     * @param type the type
+     * @param continuationToken the token of the previous page, or {@code null} for the first page
+     * @param size the page size
+     * @param sortOrder the sort order, ignored if a continuation token is given
+     * @param sortBy the name of the field to sort by, ignored if a continuation token is given
+     * @return the page
+     * @throws IllegalArgumentException if the continuation token is invalid
+     */
+    public KeysetPage<ThingResponse> findByTypeAfter(
+        String tenantUrn, String type, String continuationToken, Integer size, SortOrder sortOrder, String sortBy)
+        throws IllegalArgumentException {
+
+        return findAfter(tenantUrn, type, continuationToken, size, sortOrder, sortBy);
+    }
+
     private Page<ThingResponse> findByType(String tenantUrn, String type, Pageable pageable) {
 
         UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
-        org.springframework.data.domain.Page<ThingEntity> pageResponse = repository.findByTenantIdAndType(tenantId, type, pageable);
 
-        return conversionService.convert(pageResponse, emptyPage().getClass());
+        org.springframework.data.domain.Page<ThingProjection> pageResponse;
+        if (countRegistry.isEnabled()) {
+            // the total comes from the count registry, so there's no need for the repository to count
+            Slice<ThingProjection> sliceResponse = repository.findProjectionSliceByTenantIdAndType(tenantId, type, pageable);
+            pageResponse = new PageImpl<>(sliceResponse.getContent(), pageable, countRegistry.count(tenantId, type));
+        } else {
+            pageResponse = repository.findProjectionsByTenantIdAndType(tenantId, type, pageable);
+        }
+
+        return responseMapper.toPage(pageResponse);
     }
 
     // endregion
@@ -157,20 +461,22 @@ public class ThingPersistenceService implements ThingDao {
     public Optional<ThingResponse> findByTypeAndUrn(String tenantUrn, String type, String urn) {
 
         UUID id = UuidUtil.getUuidFromUrn(urn);
+        UUID tenantId = StringUtils.isNotBlank(tenantUrn) ? UuidUtil.getUuidFromUrn(tenantUrn) : null;
 
-        Optional<ThingEntity> entity;
-        if (StringUtils.isNotBlank(tenantUrn)) {
-            UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
-            entity = repository.findByIdAndTenantIdAndType(id, tenantId, type);
-        } else {
-            entity = repository.findByIdAndType(id, type);
-        }
+        return responseCache.get(tenantId, type, id, () -> {
+            Optional<ThingProjection> projection;
+            if (tenantId != null) {
+                projection = repository.findProjectionByIdAndTenantIdAndType(id, tenantId, type);
+            } else {
+                projection = repository.findProjectionByIdAndType(id, type);
+            }
 
-        if (entity.isPresent()) {
-            return Optional.ofNullable(conversionService.convert(entity.get(), ThingResponse.class));
-        }
+            if (projection.isPresent()) {
+                return Optional.ofNullable(responseMapper.toResponse(projection.get()));
+            }
 
-        return Optional.empty();
+            return Optional.empty();
+        });
     }
 
     // endregion
@@ -233,14 +539,30 @@ public class ThingPersistenceService implements ThingDao {
         UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
         List<UUID> ids = getUuidListFromUrnCollection(tenantUrn, urns);
 
-        List<ThingEntity> entityList;
-        if (sort != null) {
-            entityList = repository.findByTenantIdAndTypeAndIdIn(tenantId, type, ids, sort);
+        // large ID lists are queried in chunks, and the chunk results are merged in the requested order
+        Sort.Order order = sort != null ? sort.iterator()
+            .next() : null;
+        List<ThingProjection> projectionList;
+        if (order != null && !"type".equals(order.getProperty()) && !"tenantId".equals(order.getProperty())) {
+            // unless sorted by ID, the ID breaks ties in the database and in the merge alike, so that both order exactly the same way
+            boolean byId = "id".equals(order.getProperty());
+            Sort chunkSort = byId ? sort : sort.and(new Sort(Sort.Direction.ASC, "id"));
+            Comparator<ThingProjection> comparator = ThingPersistenceUtil.getFieldComparator(order.getProperty(), order.getDirection());
+            projectionList = idChunkExecutor.findAll(ids,
+                                                     chunk -> repository.findProjectionsByTenantIdAndTypeAndIdIn(tenantId, type, chunk, chunkSort),
+                                                     byId ? comparator
+                                                          : comparator.thenComparing(ThingPersistenceUtil.getFieldComparator("id",
+                                                                                                                             Sort.Direction.ASC)));
         } else {
-            entityList = repository.findByTenantIdAndTypeAndIdIn(tenantId, type, ids);
+            // the type and tenant are the same for all results, so sorting by them is sorting by ID, like without explicit sort; the
+            // chunks must be ordered for the merge
+            Sort idSort = new Sort(Sort.Direction.ASC, "id");
+            projectionList = idChunkExecutor.findAll(ids,
+                                                     chunk -> repository.findProjectionsByTenantIdAndTypeAndIdIn(tenantId, type, chunk, idSort),
+                                                     ThingPersistenceUtil.getFieldComparator("id", Sort.Direction.ASC));
         }
 
-        return convertList(entityList, ThingEntity.class, ThingResponse.class);
+        return responseMapper.toResponses(projectionList);
     }
 
     // endregion
@@ -274,21 +596,152 @@ public class ThingPersistenceService implements ThingDao {
     private Page<ThingResponse> findAll(String tenantUrn, Pageable pageable) {
 
         UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
-        org.springframework.data.domain.Page<ThingEntity> pageResponse = repository.findByTenantId(tenantId, pageable);
 
-        return conversionService.convert(pageResponse, emptyPage().getClass());
+        org.springframework.data.domain.Page<ThingProjection> pageResponse;
+        if (countRegistry.isEnabled()) {
+            // the total comes from the count registry, so there's no need for the repository to count
+            Slice<ThingProjection> sliceResponse = repository.findProjectionSliceByTenantId(tenantId, pageable);
+            pageResponse = new PageImpl<>(sliceResponse.getContent(), pageable, countRegistry.count(tenantId));
+        } else {
+            pageResponse = repository.findProjectionsByTenantId(tenantId, pageable);
+        }
+
+        return responseMapper.toPage(pageResponse);
+    }
+
+    /**
+     * Finds all Things of a tenant without counting them, which saves the {@code COUNT} query of the other {@code findAll} methods.
+     * Total elements and total pages are reported as {@code -1} (unknown), unless the requested page is the last one.
+     *
+     * @param tenantUrn the tenant URN
+     * @param page the page number
+     * @param size the page size
+     * @param sortOrder the sort order
+     * @param sortBy the name of the field to sort by
+     * @return the page
+     */
+    public Page<ThingResponse> findAllWithoutTotals(String tenantUrn, Integer page, Integer size, SortOrder sortOrder, String sortBy) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        Pageable pageable = getPageable(page, size, ThingPersistenceUtil.getSortByFieldName(sortBy), getSortDirection(sortOrder));
+        Slice<ThingProjection> sliceResponse = repository.findProjectionSliceByTenantId(tenantId, pageable);
+
+        return responseMapper.toPage(sliceResponse);
+    }
+
+    /**
+     * Finds all Things of a tenant using keyset (seek) pagination. Unlike page numbers, the continuation token keeps deep pages as fast as
+     * the first one. The ID and type are used as tie-breakers for the sort order.
+     *
+     * @param tenantUrn the tenant URN
+     * @param continuationToken the token of the previous page, or {@code null} for the first page
+     * @param size the page size
+     * @param sortOrder the sort order, ignored if a continuation token is given
+     * @param sortBy the name of the field to sort by, ignored if a continuation token is given
+     * @return the page
+     * @throws IllegalArgumentException if the continuation token is invalid
+     */
+    public KeysetPage<ThingResponse> findAllAfter(String tenantUrn, String continuationToken, Integer size, SortOrder sortOrder, String sortBy)
+        throws IllegalArgumentException {
+
+        return findAfter(tenantUrn, null, continuationToken, size, sortOrder, sortBy);
+    }
+
+    private KeysetPage<ThingResponse> findAfter(
+        String tenantUrn, String type, String continuationToken, Integer size, SortOrder sortOrder, String sortBy) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        if (size == null) {
+            size = DEFAULT_SIZE;
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must not be less than one!");
+        }
+
+        Keyset after = null;
+        Sort.Direction direction;
+        if (StringUtils.isNotBlank(continuationToken)) {
+            after = Keyset.fromToken(continuationToken);
+            sortBy = after.getSortBy();
+            direction = after.getDirection();
+        } else {
+            sortBy = ThingPersistenceUtil.getSortByFieldName(sortBy);
+            direction = ThingPersistenceUtil.getSortDirection(sortOrder != null ? sortOrder : DEFAULT_SORT_ORDER);
+        }
+
+        // fetch one more entity than requested to find out if there is a next page
+        List<ThingEntity> entityList = repository.findByTenantIdAndTypeAfter(tenantId, type, sortBy, direction, after, size + 1);
+
+        String nextToken = null;
+        if (entityList.size() > size) {
+            entityList = entityList.subList(0, size);
+            nextToken = Keyset.of(entityList.get(size - 1), sortBy, direction)
+                .toToken();
+        }
+
+        return KeysetPage.<ThingResponse>builder()
+            .data(responseMapper.toResponses(entityList))
+            .size(entityList.size())
+            .continuationToken(nextToken)
+            .build();
     }
 
     /**
      * This is a temporary function for development purposes -- eventually we don't want
      * to support a "get everything" call, since theoretically that'd be billions of
-     * objects.
+     * objects. Use {@link #streamAll(String, Consumer)} to read all Things of a tenant.
      *
      * @return All the objects.
      */
     public Page<ThingResponse> getThings() {
 
-        return convertPage(repository.findAll(getPageable(null, null, null, null)), ThingEntity.class, ThingResponse.class);
+        org.springframework.data.domain.Page<ThingEntity> page = repository.findAll(getPageable(null, null, null, null));
+
+        return Page.<ThingResponse>builder()
+            .page(conversionService.convert(page, PageInformation.class))
+            .data(responseMapper.toResponses(page.getContent()))
+            .build();
+    }
+
+    // endregion
+
+    // region Stream
+
+    /**
+     * Reads all Things of a type, e.g. for export or reconciliation. The Things are read with a database cursor and passed to the
+     * consumer one by one, so memory use does not depend on the number of Things. They come in no particular order.
+     *
+     * @param tenantUrn the tenant URN
+     * @param type the type
+     * @param consumer receives each Thing
+     * @return the number of Things
+     */
+    public long streamByType(String tenantUrn, String type, Consumer<? super ThingResponse> consumer) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        String normalizedTenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+
+        return repository.forEachByTenantIdAndType(tenantId, type, entity -> {
+            consumer.accept(responseMapper.toResponse(entity, normalizedTenantUrn));
+        });
+    }
+
+    /**
+     * Reads all Things of a tenant, e.g. for export or reconciliation. The Things are read with a database cursor and passed to the
+     * consumer one by one, so memory use does not depend on the number of Things. They come in no particular order.
+     *
+     * @param tenantUrn the tenant URN
+     * @param consumer receives each Thing
+     * @return the number of Things
+     */
+    public long streamAll(String tenantUrn, Consumer<? super ThingResponse> consumer) {
+
+        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
+        String normalizedTenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+
+        return repository.forEachByTenantIdAndType(tenantId, null, entity -> {
+            consumer.accept(responseMapper.toResponse(entity, normalizedTenantUrn));
+        });
     }
 
     // endregion
@@ -318,6 +771,75 @@ public class ThingPersistenceService implements ThingDao {
         }
     }
 
+    /**
+     * Inserts a new entity with a single statement, unless it already exists.
+     *
+     * @param entity the new entity
+     * @return {@code true} if the entity was inserted, {@code false} if it already exists
+     * @throws ConstraintViolationException if the entity is invalid
+     */
+    private boolean insertIfAbsent(ThingEntity entity) throws ConstraintViolationException {
+
+        try {
+            return repository.insertIfAbsent(entity);
+        } catch (DataIntegrityViolationException e) {
+            if (!ThingPersistenceUtil.isDuplicateKey(e)) {
+                throw e;
+            }
+            // the same Thing was inserted concurrently, after the existence check of the conditional insert
+            log.debug("Thing '{}' of type '{}' already exists: {}", entity.getId(), entity.getType(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Runs an action once the current transaction is committed, or right away if there is none. The in-memory counts, caches and ID
+     * filters are only updated for committed changes, so that a rollback leaves them consistent with the database.
+     *
+     * @param action the action
+     */
+    private static void afterCommit(Runnable action) {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCommit() {
+
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Inserts new entities using JDBC batching. If the batch fails because one of the entities already exists, the entities are inserted
+     * one by one unless they exist.
+     *
+     * @param entities the new entities
+     * @return for each entity, {@code true} if it was inserted, {@code false} if it already exists
+     * @throws ConstraintViolationException if one of the entities is invalid
+     */
+    private boolean[] persistAll(List<ThingEntity> entities) throws ConstraintViolationException {
+
+        try {
+            repository.persistAll(entities);
+        } catch (DataIntegrityViolationException e) {
+            if (!ThingPersistenceUtil.isDuplicateKey(e)) {
+                throw e;
+            }
+            // a Thing was inserted concurrently or on another node, after the duplicate check; the batch was rolled back as a whole
+            log.debug("Batch of {} Things contains an existing Thing, inserting one by one: {}", entities.size(), e.getMessage());
+            return repository.insertAllIfAbsent(entities);
+        }
+
+        boolean[] inserted = new boolean[entities.size()];
+        Arrays.fill(inserted, true);
+        return inserted;
+    }
+
     private List<UUID> getUuidListFromUrnCollection(String tenantUrn, Collection<String> urns) {
 
         return urns.stream()
@@ -333,60 +855,34 @@ public class ThingPersistenceService implements ThingDao {
             .collect(Collectors.toList());
     }
 
-    private boolean alreadyExists(String tenantUrn, ThingCreate createThing) {
-
-        return StringUtils.isNotBlank(createThing.getUrn()) && findByUrnAndType(tenantUrn, createThing.getUrn(), createThing.getType()).isPresent();
-    }
-
-    private Optional<ThingResponse> findByUrnAndType(String tenantUrn, String urn, String type) {
-
-        UUID tenantId = UuidUtil.getUuidFromUrn(tenantUrn);
-        UUID id = UuidUtil.getUuidFromUrn(urn);
-
-        Optional<ThingEntity> entity = repository.findByIdAndTenantIdAndType(id, tenantId, type);
-        if (entity.isPresent()) {
-            return Optional.ofNullable(conversionService.convert(entity.get(), ThingResponse.class));
-        }
-
-        return Optional.empty();
-    }
-
     /**
-     * Uses the conversion service to convert a typed list into another typed list.
+     * Looks up which of the client-supplied Thing IDs already exist for the tenant. The IDs are queried in chunks, and only the key columns
+     * are selected. IDs that don't exist according to the ID filter are not queried, and if none is left, the query is skipped. The filter only knows the Things of this node, so
+     * absence is a hint to skip the query, not a guarantee: the insert still has to handle duplicate keys.
      *
-     * @param list the list
-     * @param sourceClass the class of the source type
-     * @param targetClass the class of the target type
-     * @param <S> the generic source type
-     * @param <T> the generic target type
-     * @return the converted typed list
+     * @param tenantId the tenant ID
+     * @param createThings the create requests
+     * @param entities the entities converted from the create requests
+     * @return the IDs of the existing Things
      */
-    @SuppressWarnings("unchecked")
-    private <S, T> List<T> convertList(List<S> list, Class sourceClass, Class targetClass) {
+    private Set<ThingId> getExistingThingIds(UUID tenantId, List<ThingCreate> createThings, List<ThingEntity> entities) {
 
-        TypeDescriptor sourceDescriptor = TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(sourceClass));
-        TypeDescriptor targetDescriptor = TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(targetClass));
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < entities.size(); i++) {
+            ThingEntity entity = entities.get(i);
+            if (StringUtils.isNotBlank(createThings.get(i).getUrn()) && idFilter.mightContain(tenantId, entity.getType(), entity.getId())) {
+                ids.add(entity.getId());
+            }
+        }
 
-        return (List<T>) conversionService.convert(list, sourceDescriptor, targetDescriptor);
+        return new HashSet<>(idChunkExecutor.findAll(ids,
+                                                     chunk -> repository.findThingIdsByTenantIdAndIdIn(tenantId, chunk),
+                                                     (a, b) -> ThingPersistenceUtil.compareUnsigned(a.getId(), b.getId())));
     }
 
-    /**
-     * Uses the conversion service to covert a typed {@link org.springframework.data.domain.Page} into a typed {@link Page}, i.e. converts the page
-     * information and the content list.
-     *
-     * @param page the page
-     * @param sourceClass the class of the source type
-     * @param targetClass the class of the target type
-     * @param <S> the generic source type
-     * @param <T> the generic target type
-     * @return the converted typed page
-     */
-    private <S, T> Page<T> convertPage(org.springframework.data.domain.Page<S> page, Class sourceClass, Class targetClass) {
+    private Sort.Direction getSortDirection(SortOrder sortOrder) {
 
-        return Page.<T>builder()
-            .page(conversionService.convert(page, PageInformation.class))
-            .data(convertList(page.getContent(), sourceClass, targetClass))
-            .build();
+        return sortOrder != null ? ThingPersistenceUtil.getSortDirection(sortOrder) : null;
     }
 
     /**
@@ -0,0 +1,113 @@
+package net.smartcosmos.dao.things.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values, e.g. latencies in nanoseconds or row counts. Recording is lock-free and does not allocate.
+ * <p>
+ * The buckets are log-linear: each power of two is split into {@value #SUB_BUCKET_COUNT} buckets of equal width, so a percentile is
+ * reported with a relative error of at most 1/{@value #SUB_BUCKET_COUNT}, whatever the magnitude of the values. Values below
+ * {@value #SUB_BUCKET_COUNT} are counted exactly. The buckets cover the whole range of {@code long}, in 4 KB per histogram.
+ */
+class ThingHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value the value
+     */
+    void record(long value) {
+
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    long getCount() {
+
+        return count.sum();
+    }
+
+    long getSum() {
+
+        return sum.sum();
+    }
+
+    long getMax() {
+
+        return max.get();
+    }
+
+    /**
+     * Gets the value below which a given fraction of the recorded values falls. The result is the upper bound of the bucket of the
+     * percentile, but never more than the maximum. Concurrent recording may shift the result by the values recorded meanwhile.
+     *
+     * @param fraction the fraction, e.g. {@code 0.99} for the 99th percentile
+     * @return the value, or zero if no value was recorded
+     */
+    long getValueAtPercentile(double fraction) {
+
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    static int index(long value) {
+
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long lowerBound(int index) {
+
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        return (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long upperBound(int index) {
+
+        return index + 1 < BUCKET_COUNT ? lowerBound(index + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,424 @@
+package net.smartcosmos.dao.things.metrics;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.persistence.EntityManagerFactory;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Builder;
+import lombok.Data;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import net.smartcosmos.dao.things.cache.ThingIdFilterRegistry;
+import net.smartcosmos.dao.things.cache.ThingResponseCache;
+import net.smartcosmos.dao.things.datasource.ThingRoutingDataSource;
+import net.smartcosmos.dao.things.impl.KeysetPage;
+import net.smartcosmos.dao.things.impl.ThingAsyncExecutor;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.Page;
+
+/**
+ * Records the latency and the result size of the operations of the persistence service, see {@link ThingOperationMetricsInterceptor}.
+ * Operations are named after the service methods, overloads share a name. Per operation, there's a latency histogram, the number of
+ * failed calls, and a histogram of the rows returned or affected: the elements of a page or list, zero or one for a single Thing, and
+ * the count for bulk updates, deletes and streams.
+ * <p>
+ * Optionally, the latencies are also recorded per tenant, for at most {@code max-tenants} tenants, further tenants are only counted in
+ * the totals. Tenants are told apart by their UUID, so differently spelled URNs of a tenant share their metrics. Recording takes no
+ * locks and, once an operation and tenant have been seen, only allocates the parsed tenant UUID.
+ * <p>
+ * The statistics are available from {@link #getStats()}. Besides the operations, they include the statistics of the other components
+ * of the DAO: the Hibernate statistics of statements, entity loads, flushes and the second-level cache, the hit rates of the response
+ * cache, the checks of the ID filters, the connections per target of the read replica routing, and the queue of the asynchronous
+ * operations. The metrics are disabled by default, enable them with {@code smartcosmos.things.metrics.enabled=true}.
+ */
+@Component
+public class ThingOperationMetrics {
+
+    private static final double P50 = 0.5;
+    private static final double P99 = 0.99;
+    private static final double P999 = 0.999;
+
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final ObjectProvider<ThingResponseCache> responseCache;
+    private final ObjectProvider<ThingIdFilterRegistry> idFilter;
+    private final ObjectProvider<ThingRoutingDataSource> routingDataSource;
+    private final ObjectProvider<ThingAsyncExecutor> asyncExecutor;
+    private final boolean enabled;
+    private final boolean perTenant;
+    private final int maxTenants;
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, ConcurrentMap<String, OperationMetrics>> tenants = new ConcurrentHashMap<>();
+    // reserved before a tenant is added, so that concurrent first calls of different tenants can't exceed the maximum
+    private final AtomicInteger tenantCount = new AtomicInteger();
+
+    @Autowired
+    public ThingOperationMetrics(
+        ObjectProvider<EntityManagerFactory> entityManagerFactory,
+        ObjectProvider<ThingResponseCache> responseCache,
+        ObjectProvider<ThingIdFilterRegistry> idFilter,
+        ObjectProvider<ThingRoutingDataSource> routingDataSource,
+        ObjectProvider<ThingAsyncExecutor> asyncExecutor,
+        @Value("${smartcosmos.things.metrics.enabled:false}") boolean enabled,
+        @Value("${smartcosmos.things.metrics.per-tenant:false}") boolean perTenant,
+        @Value("${smartcosmos.things.metrics.max-tenants:100}") int maxTenants) {
+
+        this.entityManagerFactory = entityManagerFactory;
+        this.responseCache = responseCache;
+        this.idFilter = idFilter;
+        this.routingDataSource = routingDataSource;
+        this.asyncExecutor = asyncExecutor;
+        this.enabled = enabled;
+        this.perTenant = perTenant;
+        this.maxTenants = maxTenants;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Records a call of an operation.
+     *
+     * @param operation the name of the operation
+     * @param tenantUrn the URN of the tenant, or {@code null} if the operation is not scoped to a tenant
+     * @param nanos the duration of the call
+     * @param result the result of the call
+     * @param failed {@code true} if the call threw an exception
+     */
+    public void record(String operation, String tenantUrn, long nanos, Object result, boolean failed) {
+
+        if (!enabled) {
+            return;
+        }
+
+        OperationMetrics metrics = getOperationMetrics(operations, operation, true);
+        metrics.record(nanos, failed);
+        if (!failed) {
+            long rows = getRowCount(result);
+            if (rows >= 0) {
+                metrics.rows.record(rows);
+            }
+        }
+
+        if (perTenant && tenantUrn != null) {
+            ConcurrentMap<String, OperationMetrics> tenantOperations = getTenantOperations(getTenantId(tenantUrn));
+            if (tenantOperations != null) {
+                getOperationMetrics(tenantOperations, operation, false).record(nanos, failed);
+            }
+        }
+    }
+
+    /**
+     * Gets the statistics of all operations, per tenant if enabled, of Hibernate, and of the other components of the DAO.
+     *
+     * @return the statistics
+     */
+    public MetricsStats getStats() {
+
+        Map<String, Map<String, OperationStats>> tenantStats = new HashMap<>();
+        for (Map.Entry<UUID, ConcurrentMap<String, OperationMetrics>> tenant : tenants.entrySet()) {
+            tenantStats.put(UuidUtil.getTenantUrnFromUuid(tenant.getKey()), getOperationStats(tenant.getValue()));
+        }
+
+        ThingIdFilterRegistry filterRegistry = idFilter.getIfAvailable();
+        ThingAsyncExecutor executor = asyncExecutor.getIfAvailable();
+
+        return MetricsStats.builder()
+            .operations(getOperationStats(operations))
+            .tenants(tenantStats)
+            .hibernate(getHibernateStats())
+            .responseCache(getResponseCacheStats())
+            .idFilter(filterRegistry != null ? filterRegistry.getStats() : null)
+            .routing(getRoutingStats())
+            .asyncExecutor(executor != null ? executor.getStats() : null)
+            .build();
+    }
+
+    /**
+     * Gets the number of rows of a result.
+     *
+     * @param result the result
+     * @return the number of rows, or {@code -1} if the result has no row count
+     */
+    static long getRowCount(Object result) {
+
+        if (result instanceof Page) {
+            Collection<?> data = ((Page<?>) result).getData();
+            return data != null ? data.size() : 0;
+        }
+        if (result instanceof KeysetPage) {
+            return ((KeysetPage<?>) result).getSize();
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue();
+        }
+
+        return -1;
+    }
+
+    private static UUID getTenantId(String tenantUrn) {
+
+        try {
+            return UuidUtil.getUuidFromUrn(tenantUrn);
+        } catch (IllegalArgumentException e) {
+            // the call fails anyway, it's only counted in the totals
+            return null;
+        }
+    }
+
+    private ConcurrentMap<String, OperationMetrics> getTenantOperations(UUID tenantId) {
+
+        if (tenantId == null) {
+            return null;
+        }
+
+        ConcurrentMap<String, OperationMetrics> tenantOperations = tenants.get(tenantId);
+        if (tenantOperations == null && tenantCount.incrementAndGet() <= maxTenants) {
+            tenantOperations = new ConcurrentHashMap<>();
+            ConcurrentMap<String, OperationMetrics> previous = tenants.putIfAbsent(tenantId, tenantOperations);
+            if (previous != null) {
+                tenantOperations = previous;
+                tenantCount.decrementAndGet();
+            }
+        } else if (tenantOperations == null) {
+            tenantCount.decrementAndGet();
+        }
+
+        return tenantOperations;
+    }
+
+    private static OperationMetrics getOperationMetrics(ConcurrentMap<String, OperationMetrics> metricsMap, String operation, boolean withRows) {
+
+        // get() first, since computeIfAbsent() may lock the bin even if the key is present
+        OperationMetrics metrics = metricsMap.get(operation);
+        if (metrics == null) {
+            metrics = new OperationMetrics(withRows);
+            OperationMetrics previous = metricsMap.putIfAbsent(operation, metrics);
+            if (previous != null) {
+                metrics = previous;
+            }
+        }
+
+        return metrics;
+    }
+
+    private static Map<String, OperationStats> getOperationStats(Map<String, OperationMetrics> metricsMap) {
+
+        Map<String, OperationStats> stats = new HashMap<>();
+        for (Map.Entry<String, OperationMetrics> entry : metricsMap.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue()
+                .getStats());
+        }
+
+        return stats;
+    }
+
+    private HibernateStats getHibernateStats() {
+
+        EntityManagerFactory factory = entityManagerFactory.getIfAvailable();
+        if (factory == null) {
+            return null;
+        }
+
+        Statistics statistics = factory.unwrap(SessionFactory.class)
+            .getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return null;
+        }
+
+        return HibernateStats.builder()
+            .prepareStatementCount(statistics.getPrepareStatementCount())
+            .queryExecutionCount(statistics.getQueryExecutionCount())
+            .queryExecutionMaxNanos(statistics.getQueryExecutionMaxTime() * 1000000L)
+            .entityLoadCount(statistics.getEntityLoadCount())
+            .entityFetchCount(statistics.getEntityFetchCount())
+            .entityInsertCount(statistics.getEntityInsertCount())
+            .entityUpdateCount(statistics.getEntityUpdateCount())
+            .entityDeleteCount(statistics.getEntityDeleteCount())
+            .flushCount(statistics.getFlushCount())
+            .transactionCount(statistics.getTransactionCount())
+            .secondLevelCacheHitCount(statistics.getSecondLevelCacheHitCount())
+            .secondLevelCacheMissCount(statistics.getSecondLevelCacheMissCount())
+            .secondLevelCachePutCount(statistics.getSecondLevelCachePutCount())
+            .build();
+    }
+
+    private ResponseCacheStats getResponseCacheStats() {
+
+        ThingResponseCache cache = responseCache.getIfAvailable();
+        if (cache == null) {
+            return null;
+        }
+
+        CacheStats stats = cache.getStats();
+        return ResponseCacheStats.builder()
+            .size(cache.size())
+            .hitCount(stats.hitCount())
+            .missCount(stats.missCount())
+            .hitRate(stats.hitRate())
+            .evictionCount(stats.evictionCount())
+            .build();
+    }
+
+    private RoutingStats getRoutingStats() {
+
+        ThingRoutingDataSource dataSource = routingDataSource.getIfAvailable();
+        if (dataSource == null) {
+            return null;
+        }
+
+        return RoutingStats.builder()
+            .primaryCount(dataSource.getPrimaryCount())
+            .replicaCount(dataSource.getReplicaCount())
+            .build();
+    }
+
+    /**
+     * The statistics of the operations, of the operations per tenant by tenant URN, of Hibernate, and of the other components. The
+     * Hibernate statistics are {@code null} unless {@code hibernate.generate_statistics} is enabled, the routing statistics unless the
+     * read replica routing is enabled.
+     */
+    @Data
+    @Builder
+    public static class MetricsStats {
+
+        private final Map<String, OperationStats> operations;
+        private final Map<String, Map<String, OperationStats>> tenants;
+        private final HibernateStats hibernate;
+        private final ResponseCacheStats responseCache;
+        private final ThingIdFilterRegistry.FilterStats idFilter;
+        private final RoutingStats routing;
+        private final ThingAsyncExecutor.ExecutorStats asyncExecutor;
+    }
+
+    /**
+     * The statistics of an operation: the number of calls and failed calls, their total, maximum and percentile latencies, and the
+     * total, maximum and percentile number of rows. The row statistics are zero for the operations of a tenant.
+     */
+    @Data
+    @Builder
+    public static class OperationStats {
+
+        private final long count;
+        private final long failedCount;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+        private final long totalRows;
+        private final long maxRows;
+        private final long p50Rows;
+        private final long p99Rows;
+    }
+
+    /**
+     * The Hibernate statistics of the persistence unit, which also include statements that were not issued by the persistence service.
+     */
+    @Data
+    @Builder
+    public static class HibernateStats {
+
+        private final long prepareStatementCount;
+        private final long queryExecutionCount;
+        private final long queryExecutionMaxNanos;
+        private final long entityLoadCount;
+        private final long entityFetchCount;
+        private final long entityInsertCount;
+        private final long entityUpdateCount;
+        private final long entityDeleteCount;
+        private final long flushCount;
+        private final long transactionCount;
+        private final long secondLevelCacheHitCount;
+        private final long secondLevelCacheMissCount;
+        private final long secondLevelCachePutCount;
+    }
+
+    /**
+     * The statistics of the response cache: the number of cached responses, hits, misses and evictions, and the hit rate. The counts are
+     * zero if the cache is disabled.
+     */
+    @Data
+    @Builder
+    public static class ResponseCacheStats {
+
+        private final long size;
+        private final long hitCount;
+        private final long missCount;
+        private final double hitRate;
+        private final long evictionCount;
+    }
+
+    /**
+     * The number of connections that were routed to the primary database and to the replica.
+     */
+    @Data
+    @Builder
+    public static class RoutingStats {
+
+        private final long primaryCount;
+        private final long replicaCount;
+    }
+
+    private static class OperationMetrics {
+
+        private final ThingHistogram latency = new ThingHistogram();
+        private final ThingHistogram rows;
+        private final LongAdder failedCount = new LongAdder();
+
+        OperationMetrics(boolean withRows) {
+
+            this.rows = withRows ? new ThingHistogram() : null;
+        }
+
+        void record(long nanos, boolean failed) {
+
+            latency.record(nanos);
+            if (failed) {
+                failedCount.increment();
+            }
+        }
+
+        OperationStats getStats() {
+
+            OperationStats.OperationStatsBuilder stats = OperationStats.builder()
+                .count(latency.getCount())
+                .failedCount(failedCount.sum())
+                .totalNanos(latency.getSum())
+                .maxNanos(latency.getMax())
+                .p50Nanos(latency.getValueAtPercentile(P50))
+                .p99Nanos(latency.getValueAtPercentile(P99))
+                .p999Nanos(latency.getValueAtPercentile(P999));
+            if (rows != null) {
+                stats.totalRows(rows.getSum())
+                    .maxRows(rows.getMax())
+                    .p50Rows(rows.getValueAtPercentile(P50))
+                    .p99Rows(rows.getValueAtPercentile(P99));
+            }
+
+            return stats.build();
+        }
+    }
+}
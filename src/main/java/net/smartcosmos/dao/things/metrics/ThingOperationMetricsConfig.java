@@ -0,0 +1,43 @@
+package net.smartcosmos.dao.things.metrics;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+import net.smartcosmos.dao.things.impl.ThingPersistenceService;
+
+/**
+ * Applies the {@link ThingOperationMetricsInterceptor} to the public methods of the persistence service. The advisor is an
+ * infrastructure bean, like the transaction advisor, so it joins the existing proxy of the service instead of adding another one. It runs
+ * outside of the transaction, so the latency includes the commit.
+ */
+@Configuration
+public class ThingOperationMetricsConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor thingOperationMetricsAdvisor(ThingOperationMetrics metrics) {
+
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new StaticMethodMatcherPointcut() {
+
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+
+                return ThingPersistenceService.class.isAssignableFrom(targetClass)
+                       && Modifier.isPublic(method.getModifiers())
+                       && method.getDeclaringClass() != Object.class;
+            }
+        }, new ThingOperationMetricsInterceptor(metrics));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+        return advisor;
+    }
+}
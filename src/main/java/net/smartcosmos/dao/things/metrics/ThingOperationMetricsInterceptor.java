@@ -0,0 +1,41 @@
+package net.smartcosmos.dao.things.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Times the calls of the persistence service and records them in the {@link ThingOperationMetrics}. The operation is named after the
+ * method, the tenant is taken from the first argument, which is the tenant URN for all tenant-scoped operations.
+ */
+public class ThingOperationMetricsInterceptor implements MethodInterceptor {
+
+    private final ThingOperationMetrics metrics;
+
+    public ThingOperationMetricsInterceptor(ThingOperationMetrics metrics) {
+
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        if (!metrics.isEnabled()) {
+            return invocation.proceed();
+        }
+
+        Object[] arguments = invocation.getArguments();
+        String tenantUrn = arguments.length > 0 && arguments[0] instanceof String ? (String) arguments[0] : null;
+
+        long started = System.nanoTime();
+        Object result = null;
+        boolean failed = true;
+        try {
+            result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            metrics.record(invocation.getMethod()
+                               .getName(), tenantUrn, System.nanoTime() - started, result, failed);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package net.smartcosmos.dao.things.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+import lombok.Data;
+
+import org.springframework.data.domain.Sort;
+
+import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.util.ThingPersistenceUtil;
+
+/**
+ * The position of the last Thing on a page for keyset (seek) pagination, i.e. its sort field value, which may be {@code null}, and its ID
+ * and type as tie-breakers.
+ * A keyset is handed out to clients as opaque continuation token, see {@link #toToken()} and {@link #fromToken(String)}.
+ */
+@Data
+public class Keyset {
+
+    private static final byte TOKEN_VERSION = 2;
+
+    private final String sortBy;
+    private final Sort.Direction direction;
+    private final Object sortValue;
+    private final UUID id;
+    private final String type;
+
+    /**
+     * Creates the keyset for a given entity.
+     *
+     * @param entity the last entity on a page
+     * @param sortBy the name of the field to sort by
+     * @param direction the sort direction
+     * @return the keyset
+     */
+    public static Keyset of(ThingEntity entity, String sortBy, Sort.Direction direction) {
+
+        return new Keyset(sortBy, direction, ThingPersistenceUtil.getFieldValue(entity, sortBy), entity.getId(), entity.getType());
+    }
+
+    /**
+     * Encodes the keyset as URL-safe continuation token.
+     *
+     * @return the token
+     */
+    public String toToken() {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(TOKEN_VERSION);
+            out.writeUTF(sortBy);
+            out.writeBoolean(direction.isAscending());
+            writeValue(out, sortValue);
+            writeUuid(out, id);
+            out.writeUTF(type);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't encode continuation token", e);
+        }
+
+        return Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes a continuation token.
+     *
+     * @param token the token
+     * @return the keyset
+     * @throws IllegalArgumentException if the token is invalid
+     */
+    public static Keyset fromToken(String token) throws IllegalArgumentException {
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder()
+                                                                                   .decode(token)))) {
+            if (in.readByte() != TOKEN_VERSION) {
+                throw new IllegalArgumentException(String.format("Unsupported continuation token '%s'", token));
+            }
+
+            String sortBy = in.readUTF();
+            if (!ThingPersistenceUtil.isThingEntityField(sortBy)) {
+                throw new IllegalArgumentException(String.format("Invalid continuation token '%s'", token));
+            }
+            Sort.Direction direction = in.readBoolean() ? Sort.Direction.ASC : Sort.Direction.DESC;
+            Object sortValue = readValue(in, sortBy);
+            UUID id = readUuid(in);
+            String type = in.readUTF();
+
+            return new Keyset(sortBy, direction, sortValue, id, type);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(String.format("Invalid continuation token '%s'", token), e);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+
+        out.writeBoolean(value != null);
+        if (value == null) {
+            return;
+        }
+
+        if (value instanceof UUID) {
+            writeUuid(out, (UUID) value);
+        } else if (value instanceof Date) {
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Boolean) {
+            out.writeBoolean((Boolean) value);
+        } else {
+            out.writeUTF(String.valueOf(value));
+        }
+    }
+
+    private static Object readValue(DataInputStream in, String sortBy) throws IOException {
+
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        Class<?> fieldType = ThingPersistenceUtil.getFieldType(sortBy);
+        if (UUID.class.equals(fieldType)) {
+            return readUuid(in);
+        }
+        if (Date.class.equals(fieldType)) {
+            return new Date(in.readLong());
+        }
+        if (Boolean.class.equals(fieldType)) {
+            return in.readBoolean();
+        }
+        return in.readUTF();
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
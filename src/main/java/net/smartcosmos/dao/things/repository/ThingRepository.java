@@ -1,38 +1,154 @@
 package net.smartcosmos.dao.things.repository;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import javax.persistence.QueryHint;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.query.QueryByExampleExecutor;
 import org.springframework.transaction.annotation.Transactional;
 
+import net.smartcosmos.dao.things.cache.ThingSecondLevelCache;
 import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.domain.ThingId;
+import net.smartcosmos.dao.things.domain.ThingProjection;
 
 public interface ThingRepository
     extends JpaRepository<ThingEntity, UUID>, PagingAndSortingRepository<ThingEntity, UUID>, QueryByExampleExecutor<ThingEntity>,
-            JpaSpecificationExecutor<ThingEntity> {
+            JpaSpecificationExecutor<ThingEntity>, ThingRepositoryCustom {
+
+    /*
+        The read queries select a ThingProjection instead of managed entities. They run in read-only transactions, which also sets the
+        Hibernate flush mode to MANUAL, so there's no flush and no dirty check.
+     */
+    String SELECT_PROJECTION = "SELECT new net.smartcosmos.dao.things.domain.ThingProjection(t.id, t.type, t.tenantId, t.created, "
+                               + "t.lastModified, t.active) FROM thing t ";
+
+    /*
+        The bulk updates and deletes flush pending changes first, so that they aren't lost. They don't clear the persistence context,
+        which would detach every other entity of the caller's transaction; the service detaches only the affected Things, see
+        ThingRepositoryCustom.detach().
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM thing t WHERE t.tenantId = :tenantId AND t.type = :type AND t.id IN :ids")
+    int deleteAllByTenantIdAndTypeAndIdIn(@Param("tenantId") UUID tenantId, @Param("type") String type, @Param("ids") Collection<UUID> ids);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM thing t WHERE t.tenantId = :tenantId AND t.type = :type")
+    int deleteAllByTenantIdAndType(@Param("tenantId") UUID tenantId, @Param("type") String type);
 
     @Transactional
-    List<ThingEntity> deleteByIdAndTenantIdAndType(UUID id, UUID tenantId, String type);
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE thing t SET t.active = :active, t.lastModified = :lastModified "
+           + "WHERE t.tenantId = :tenantId AND t.type = :type AND t.id IN :ids")
+    int updateActiveByTenantIdAndTypeAndIdIn(
+        @Param("tenantId") UUID tenantId,
+        @Param("type") String type,
+        @Param("ids") Collection<UUID> ids,
+        @Param("active") Boolean active,
+        @Param("lastModified") Date lastModified);
 
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE thing t SET t.active = :active, t.lastModified = :lastModified WHERE t.tenantId = :tenantId AND t.type = :type")
+    int updateActiveByTenantIdAndType(
+        @Param("tenantId") UUID tenantId,
+        @Param("type") String type,
+        @Param("active") Boolean active,
+        @Param("lastModified") Date lastModified);
+
+    /*
+        The lookups by ID are cacheable, which only takes effect if the query cache is enabled, see ThingSecondLevelCacheEnvironmentPostProcessor.
+     */
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                  @QueryHint(name = "org.hibernate.cacheRegion", value = ThingSecondLevelCache.QUERY_REGION) })
     Optional<ThingEntity> findByIdAndTenantIdAndType(UUID id, UUID tenantId, String type);
 
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                  @QueryHint(name = "org.hibernate.cacheRegion", value = ThingSecondLevelCache.QUERY_REGION) })
     Optional<ThingEntity> findByIdAndType(UUID id, String type);
 
     Optional<ThingEntity> findByIdAndTenantId(UUID id, UUID tenantId);
 
+    @Transactional(readOnly = true)
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                  @QueryHint(name = "org.hibernate.cacheRegion", value = ThingSecondLevelCache.QUERY_REGION) })
+    @Query(SELECT_PROJECTION + "WHERE t.id = :id AND t.tenantId = :tenantId AND t.type = :type")
+    Optional<ThingProjection> findProjectionByIdAndTenantIdAndType(
+        @Param("id") UUID id,
+        @Param("tenantId") UUID tenantId,
+        @Param("type") String type);
+
+    @Transactional(readOnly = true)
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                  @QueryHint(name = "org.hibernate.cacheRegion", value = ThingSecondLevelCache.QUERY_REGION) })
+    @Query(SELECT_PROJECTION + "WHERE t.id = :id AND t.type = :type")
+    Optional<ThingProjection> findProjectionByIdAndType(@Param("id") UUID id, @Param("type") String type);
+
+    @Transactional(readOnly = true)
+    @Query(value = SELECT_PROJECTION + "WHERE t.tenantId = :tenantId AND t.type = :type",
+           countQuery = "SELECT COUNT(t) FROM thing t WHERE t.tenantId = :tenantId AND t.type = :type")
+    Page<ThingProjection> findProjectionsByTenantIdAndType(@Param("tenantId") UUID tenantId, @Param("type") String type, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query(value = SELECT_PROJECTION + "WHERE t.tenantId = :tenantId",
+           countQuery = "SELECT COUNT(t) FROM thing t WHERE t.tenantId = :tenantId")
+    Page<ThingProjection> findProjectionsByTenantId(@Param("tenantId") UUID tenantId, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_PROJECTION + "WHERE t.tenantId = :tenantId AND t.type = :type")
+    Slice<ThingProjection> findProjectionSliceByTenantIdAndType(@Param("tenantId") UUID tenantId, @Param("type") String type, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_PROJECTION + "WHERE t.tenantId = :tenantId")
+    Slice<ThingProjection> findProjectionSliceByTenantId(@Param("tenantId") UUID tenantId, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_PROJECTION + "WHERE t.tenantId = :tenantId AND t.type = :type AND t.id IN :ids")
+    List<ThingProjection> findProjectionsByTenantIdAndTypeAndIdIn(
+        @Param("tenantId") UUID tenantId,
+        @Param("type") String type,
+        @Param("ids") Collection<UUID> ids);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_PROJECTION + "WHERE t.tenantId = :tenantId AND t.type = :type AND t.id IN :ids")
+    List<ThingProjection> findProjectionsByTenantIdAndTypeAndIdIn(
+        @Param("tenantId") UUID tenantId,
+        @Param("type") String type,
+        @Param("ids") Collection<UUID> ids,
+        Sort sort);
+
     Page<ThingEntity> findByTenantIdAndType(UUID tenantId, String type, Pageable pageable);
 
     Page<ThingEntity> findByTenantId(UUID tenantId, Pageable pageable);
 
+    long countByTenantIdAndType(UUID tenantId, String type);
+
+    List<ThingEntity> findByTenantIdAndIdIn(UUID tenantId, Collection<UUID> ids);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new net.smartcosmos.dao.things.domain.ThingId(t.id, t.type, t.tenantId) FROM thing t "
+           + "WHERE t.tenantId = :tenantId AND t.id IN :ids ORDER BY t.id")
+    List<ThingId> findThingIdsByTenantIdAndIdIn(@Param("tenantId") UUID tenantId, @Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT t.type, COUNT(t) FROM thing t WHERE t.tenantId = :tenantId GROUP BY t.type")
+    List<Object[]> countByTenantIdGroupByType(@Param("tenantId") UUID tenantId);
+
     List<ThingEntity> findByTenantIdAndTypeAndIdIn(UUID tenantId, String type, Collection<UUID> ids);
 
     List<ThingEntity> findByTenantIdAndTypeAndIdIn(UUID tenantId, String type, Collection<UUID> ids, Sort sort);
@@ -0,0 +1,97 @@
+package net.smartcosmos.dao.things.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import javax.validation.ConstraintViolationException;
+
+import org.springframework.data.domain.Sort;
+
+import net.smartcosmos.dao.things.domain.ThingEntity;
+
+/**
+ * Repository operations that are implemented directly on the {@link javax.persistence.EntityManager}, see {@link ThingRepositoryImpl}.
+ */
+public interface ThingRepositoryCustom {
+
+    /**
+     * Persists new entities in JDBC batches. Unlike {@code save()}, this never merges, i.e. does not issue a {@code SELECT} per entity.
+     * The persistence context is flushed after each batch, and the entities of the batch are detached; other entities stay managed.
+     *
+     * @param entities the new entities
+     * @param <S> the entity type
+     * @return the persisted entities
+     */
+    <S extends ThingEntity> List<S> persistAll(Iterable<S> entities);
+
+    /**
+     * Inserts a new entity with a single conditional {@code INSERT} statement, unless an entity with the same ID, type and tenant ID
+     * already exists. The creation and modification dates of the given entity are set on success.
+     *
+     * @param entity the new entity
+     * @return {@code true} if the entity was inserted, {@code false} if it already exists
+     * @throws ConstraintViolationException if the entity is invalid
+     */
+    boolean insertIfAbsent(ThingEntity entity) throws ConstraintViolationException;
+
+    /**
+     * Inserts new entities one by one with the conditional {@code INSERT} statement of {@link #insertIfAbsent(ThingEntity)}, in a single
+     * transaction. All entities are validated before the first one is inserted.
+     *
+     * @param entities the new entities
+     * @return for each entity, {@code true} if it was inserted, {@code false} if it already exists
+     * @throws ConstraintViolationException if one of the entities is invalid, in which case none of them is inserted
+     */
+    boolean[] insertAllIfAbsent(List<? extends ThingEntity> entities) throws ConstraintViolationException;
+
+    /**
+     * Detaches the Things of a tenant and type that the persistence context of the current transaction manages, after a bulk update or
+     * delete changed them behind its back. Other entities stay managed. Outside of a transaction, no entities are managed, so there's
+     * nothing to do.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     * @param ids the IDs, or {@code null} for all Things of the type
+     * @return the number of detached Things
+     */
+    int detach(UUID tenantId, String type, Collection<UUID> ids);
+
+    /**
+     * Gets a page of Things using keyset (seek) pagination, i.e. the page starts right after a given position rather than at an offset.
+     * The Things are ordered by the sort field, then by ID and type as tie-breakers. {@code null} values of the sort field come first in
+     * ascending and last in descending order.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type, or {@code null} for Things of any type
+     * @param sortBy the name of the field to sort by
+     * @param direction the sort direction
+     * @param after the position after which the page starts, or {@code null} for the first page
+     * @param limit the maximum number of Things
+     * @return the Things
+     */
+    List<ThingEntity> findByTenantIdAndTypeAfter(UUID tenantId, String type, String sortBy, Sort.Direction direction, Keyset after, int limit);
+
+    /**
+     * Scans the IDs of all Things of a type with a forward-only cursor. Only the IDs are read, so neither the entities nor the full
+     * result are held in memory, no matter how many Things there are. The scan always runs in a new read-only transaction.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type
+     * @param consumer receives each ID
+     * @return the number of IDs
+     */
+    long forEachIdByTenantIdAndType(UUID tenantId, String type, Consumer<UUID> consumer);
+
+    /**
+     * Scans all Things of a tenant, or of a tenant and type, with a forward-only cursor in a read-only transaction. Each entity is
+     * detached after the consumer has been called, so memory use does not grow with the number of Things. The Things come in no
+     * particular order.
+     *
+     * @param tenantId the tenant ID
+     * @param type the type, or {@code null} for Things of any type
+     * @param consumer receives each Thing
+     * @return the number of Things
+     */
+    long forEachByTenantIdAndType(UUID tenantId, String type, Consumer<? super ThingEntity> consumer);
+}
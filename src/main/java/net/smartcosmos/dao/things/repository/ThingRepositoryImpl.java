@@ -0,0 +1,429 @@
+package net.smartcosmos.dao.things.repository;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.CacheMode;
+import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.UpdateTimestampsCache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import net.smartcosmos.dao.things.ThingPersistenceConfig;
+import net.smartcosmos.dao.things.cache.ThingTypeDictionary;
+import net.smartcosmos.dao.things.domain.ThingEntity;
+
+public class ThingRepositoryImpl implements ThingRepositoryCustom {
+
+    /*
+        The query space of the conditional insert. Hibernate evicts the whole cache region of every entity that is mapped to a query
+        space of a native statement, and of all entities if the statement declares none. A new row can't make a cached Thing stale,
+        so the insert declares a space of its own, and only invalidates the cached query results of the thing table.
+     */
+    private static final String INSERT_QUERY_SPACE = "thing_insert_if_absent";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ThingTypeDictionary typeDictionary;
+
+    @Autowired
+    @Qualifier(ThingPersistenceConfig.THING_VALIDATOR)
+    private Validator validator;
+
+    /*
+        Flushing in steps of the JDBC batch size lets Hibernate send every flush as a single batch, as long as
+        hibernate.jdbc.batch_size (and hibernate.order_inserts) are configured for the persistence unit.
+     */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Value("${smartcosmos.things.scan.fetch-size:1000}")
+    private int scanFetchSize;
+
+    private volatile String insertIfAbsentSql;
+
+    @Override
+    @Transactional
+    public <S extends ThingEntity> List<S> persistAll(Iterable<S> entities) {
+
+        Session session = entityManager.unwrap(Session.class);
+        List<S> persisted = new ArrayList<>();
+        int flushed = 0;
+        for (S entity : entities) {
+            entityManager.persist(entity);
+            persisted.add(entity);
+
+            // without JDBC batching, everything is flushed at the end
+            if (batchSize > 0 && persisted.size() - flushed == batchSize) {
+                flush(session, persisted.subList(flushed, persisted.size()));
+                flushed = persisted.size();
+            }
+        }
+        flush(session, persisted.subList(flushed, persisted.size()));
+
+        return persisted;
+    }
+
+    @Override
+    @Transactional
+    public boolean insertIfAbsent(ThingEntity entity) throws ConstraintViolationException {
+
+        validate(entity);
+        return insert(entity);
+    }
+
+    @Override
+    @Transactional
+    public boolean[] insertAllIfAbsent(List<? extends ThingEntity> entities) throws ConstraintViolationException {
+
+        for (ThingEntity entity : entities) {
+            validate(entity);
+        }
+
+        boolean[] inserted = new boolean[entities.size()];
+        for (int i = 0; i < entities.size(); i++) {
+            inserted[i] = insert(entities.get(i));
+        }
+
+        return inserted;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<ThingEntity> findByTenantIdAndTypeAfter(
+        UUID tenantId, String type, String sortBy, Sort.Direction direction, Keyset after, int limit) {
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ThingEntity> query = cb.createQuery(ThingEntity.class);
+        Root<ThingEntity> thing = query.from(ThingEntity.class);
+
+        // the ordering key: sort field, then ID and type as tie-breakers, since only (id, type) is unique within a tenant
+        List<String> keyFields = new ArrayList<>();
+        keyFields.add(sortBy);
+        for (String tieBreaker : new String[] { "id", "type" }) {
+            if (!keyFields.contains(tieBreaker) && !(type != null && "type".equals(tieBreaker))) {
+                keyFields.add(tieBreaker);
+            }
+        }
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(thing.get("tenantId"), tenantId));
+        if (type != null) {
+            predicates.add(cb.equal(thing.get("type"), type));
+        }
+
+        if (after != null) {
+            // (k1, k2, ...) > (v1, v2, ...) expands to k1 > v1 OR (k1 = v1 AND k2 > v2) OR ...
+            List<Predicate> seekPredicates = new ArrayList<>();
+            List<Predicate> equalPredicates = new ArrayList<>();
+            for (String keyField : keyFields) {
+                Expression<Comparable> path = thing.get(keyField);
+                Comparable value = (Comparable) getKeysetValue(after, keyField);
+
+                List<Predicate> seekPredicate = new ArrayList<>(equalPredicates);
+                seekPredicate.add(getBeyondPredicate(cb, path, value, direction));
+                seekPredicates.add(cb.and(seekPredicate.toArray(new Predicate[seekPredicate.size()])));
+
+                equalPredicates.add(value != null ? cb.equal(path, value) : cb.isNull(path));
+            }
+            predicates.add(cb.or(seekPredicates.toArray(new Predicate[seekPredicates.size()])));
+        }
+
+        List<Order> orders = new ArrayList<>();
+        for (String keyField : keyFields) {
+            orders.add(direction.isAscending() ? cb.asc(thing.get(keyField)) : cb.desc(thing.get(keyField)));
+        }
+
+        query.select(thing)
+            .where(predicates.toArray(new Predicate[predicates.size()]))
+            .orderBy(orders);
+
+        // the entities are only read to build the response and the continuation token, so Hibernate keeps no snapshot of them
+        return entityManager.createQuery(query)
+            .setHint("org.hibernate.readOnly", true)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    /*
+        The scan runs in a transaction of its own, so that it sees all Things that were committed before it started, even if the
+        caller's transaction has an older snapshot.
+     */
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
+    public long forEachIdByTenantIdAndType(UUID tenantId, String type, Consumer<UUID> consumer) {
+
+        ScrollableResults results = entityManager.unwrap(Session.class)
+            .createQuery("SELECT t.id FROM thing t WHERE t.tenantId = :tenantId AND t.type = :type")
+            .setParameter("tenantId", tenantId)
+            .setParameter("type", type)
+            .setFetchSize(scanFetchSize)
+            .setReadOnly(true)
+            .scroll(ScrollMode.FORWARD_ONLY);
+
+        long count = 0;
+        try {
+            while (results.next()) {
+                consumer.accept((UUID) results.get(0));
+                count++;
+            }
+        } finally {
+            results.close();
+        }
+
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long forEachByTenantIdAndType(UUID tenantId, String type, Consumer<? super ThingEntity> consumer) {
+
+        Session session = entityManager.unwrap(Session.class);
+        org.hibernate.Query query;
+        if (type != null) {
+            query = session.createQuery("SELECT t FROM thing t WHERE t.tenantId = :tenantId AND t.type = :type")
+                .setParameter("type", type);
+        } else {
+            query = session.createQuery("SELECT t FROM thing t WHERE t.tenantId = :tenantId");
+        }
+
+        // a full scan would only displace the hot entries of the second-level cache
+        ScrollableResults results = query.setParameter("tenantId", tenantId)
+            .setFetchSize(scanFetchSize)
+            .setReadOnly(true)
+            .setCacheMode(CacheMode.IGNORE)
+            .scroll(ScrollMode.FORWARD_ONLY);
+
+        long count = 0;
+        try {
+            while (results.next()) {
+                ThingEntity entity = (ThingEntity) results.get(0);
+                consumer.accept(entity);
+                count++;
+
+                // keeps the persistence context from growing with the number of Things; unlike clear(), this is safe within the
+                // transaction of a caller that has pending changes
+                session.evict(entity);
+            }
+        } finally {
+            results.close();
+        }
+
+        return count;
+    }
+
+    @Override
+    public int detach(UUID tenantId, String type, Collection<UUID> ids) {
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return 0;
+        }
+
+        Session session = entityManager.unwrap(Session.class);
+        List<ThingEntity> affected = new ArrayList<>();
+        for (Object entity : ((SessionImplementor) session).getPersistenceContext()
+            .getEntitiesByKey()
+            .values()) {
+            if (entity instanceof ThingEntity) {
+                ThingEntity thing = (ThingEntity) entity;
+                if (Objects.equals(tenantId, thing.getTenantId()) && Objects.equals(type, thing.getType())
+                    && (ids == null || ids.contains(thing.getId()))) {
+                    affected.add(thing);
+                }
+            }
+        }
+
+        // evicted after the iteration, since eviction modifies the map
+        for (ThingEntity thing : affected) {
+            session.evict(thing);
+        }
+
+        return affected.size();
+    }
+
+    /**
+     * Flushes the persistence context and detaches the given entities, so that it doesn't grow with the number of entities persisted.
+     * Unlike clear(), this leaves other entities of the caller's transaction managed.
+     */
+    private static void flush(Session session, List<? extends ThingEntity> entities) {
+
+        session.flush();
+        for (ThingEntity entity : entities) {
+            session.evict(entity);
+        }
+    }
+
+    private void validate(ThingEntity entity) throws ConstraintViolationException {
+
+        // the native statement bypasses the Bean Validation, auditing and type registration listeners, so we do their job here
+        Set<ConstraintViolation<ThingEntity>> violations = validator.validate(entity);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+    }
+
+    private boolean insert(ThingEntity entity) {
+
+        Object type = typeDictionary.isEnabled() ? typeDictionary.register(entity.getType()) : entity.getType();
+
+        Date now = new Date();
+        Query query = entityManager.createNativeQuery(getInsertIfAbsentSql());
+        query.unwrap(SQLQuery.class)
+            .addSynchronizedQuerySpace(INSERT_QUERY_SPACE);
+        int insertCount = query.setParameter("id", toBytes(entity.getId()))
+            .setParameter("type", type)
+            .setParameter("tenantId", toBytes(entity.getTenantId()))
+            .setParameter("created", now, TemporalType.TIMESTAMP)
+            .setParameter("lastModified", now, TemporalType.TIMESTAMP)
+            .setParameter("active", entity.getActive())
+            .executeUpdate();
+
+        if (insertCount > 0) {
+            invalidateQueryResults();
+            entity.setCreated(now);
+            entity.setLastModified(now);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Invalidates the cached query results of the thing table, like Hibernate does when an entity is persisted: the timestamp of the
+     * table is set before the transaction completes, so that results read in the meantime aren't cached, and once more afterwards.
+     * Nothing needs to be done if the query cache is disabled.
+     */
+    private void invalidateQueryResults() {
+
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        UpdateTimestampsCache timestamps = session.getFactory()
+            .getUpdateTimestampsCache();
+        if (timestamps == null) {
+            return;
+        }
+
+        Serializable[] spaces = session.getFactory()
+            .getEntityPersister(ThingEntity.class.getName())
+            .getQuerySpaces();
+        timestamps.preInvalidate(spaces, session);
+        ((EventSource) session).getActionQueue()
+            .registerProcess((success, completedSession) -> timestamps.invalidate(spaces, completedSession));
+    }
+
+    /**
+     * Gets the predicate for the rows beyond a key value in sort order. Nullable sort fields, like the creation date of Things that were
+     * inserted without auditing, are ordered like H2 and MariaDB do: {@code NULL} sorts before any value, i.e. first in ascending and
+     * last in descending order.
+     */
+    @SuppressWarnings("unchecked")
+    private static Predicate getBeyondPredicate(CriteriaBuilder cb, Expression<Comparable> path, Comparable value, Sort.Direction direction) {
+
+        if (direction.isAscending()) {
+            return value != null ? cb.greaterThan(path, value) : cb.isNotNull(path);
+        }
+        // an empty disjunction is false: nothing sorts after NULL in descending order
+        return value != null ? cb.or(cb.lessThan(path, value), cb.isNull(path)) : cb.disjunction();
+    }
+
+    private static Object getKeysetValue(Keyset keyset, String field) {
+
+        if (field.equals(keyset.getSortBy())) {
+            return keyset.getSortValue();
+        }
+        return "id".equals(field) ? keyset.getId() : keyset.getType();
+    }
+
+    /**
+     * Builds the conditional insert statement for the database in use. MySQL and MariaDB ignore duplicate keys with
+     * {@code INSERT IGNORE}, all other databases (e.g. H2) insert from a {@code SELECT ... WHERE NOT EXISTS}. {@code MERGE} is no option,
+     * since it would overwrite an existing row.
+     * The physical table and column names are taken from the Hibernate mapping, so they honor the configured naming strategy.
+     *
+     * @return the SQL statement
+     */
+    private String getInsertIfAbsentSql() {
+
+        if (insertIfAbsentSql == null) {
+            AbstractEntityPersister persister = (AbstractEntityPersister) entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getEntityPersister(ThingEntity.class.getName());
+
+            String table = persister.getTableName();
+            String id = persister.getPropertyColumnNames("id")[0];
+            String type = persister.getPropertyColumnNames("type")[0];
+            String tenantId = persister.getPropertyColumnNames("tenantId")[0];
+            String columns = StringUtils.join(new String[] { id,
+                                                             type,
+                                                             tenantId,
+                                                             persister.getPropertyColumnNames("created")[0],
+                                                             persister.getPropertyColumnNames("lastModified")[0],
+                                                             persister.getPropertyColumnNames("active")[0] }, ", ");
+            String values = ":id, :type, :tenantId, :created, :lastModified, :active";
+
+            String databaseName = entityManager.unwrap(Session.class)
+                .doReturningWork(connection -> connection.getMetaData()
+                    .getDatabaseProductName());
+
+            if (StringUtils.containsIgnoreCase(databaseName, "mysql") || StringUtils.containsIgnoreCase(databaseName, "mariadb")) {
+                insertIfAbsentSql = "INSERT IGNORE INTO " + table + " (" + columns + ") VALUES (" + values + ")";
+            } else {
+                insertIfAbsentSql = "INSERT INTO " + table + " (" + columns + ") SELECT " + values
+                                    + " WHERE NOT EXISTS (SELECT 1 FROM " + table
+                                    + " WHERE " + id + " = :id AND " + type + " = :type AND " + tenantId + " = :tenantId)";
+            }
+        }
+
+        return insertIfAbsentSql;
+    }
+
+    /**
+     * Converts a UUID into the binary format of the {@code uuid-binary} Hibernate type.
+     *
+     * @param uuid the UUID
+     * @return the 16 bytes of the UUID
+     */
+    private static byte[] toBytes(UUID uuid) {
+
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
+}
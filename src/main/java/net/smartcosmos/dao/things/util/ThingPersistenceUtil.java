@@ -1,16 +1,27 @@
 package net.smartcosmos.dao.things.util;
 
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.UUID;
+
 import org.apache.commons.lang.StringUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Sort;
 
 import net.smartcosmos.dao.things.SortOrder;
 import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.domain.ThingProjection;
 import net.smartcosmos.dto.things.Page;
 import net.smartcosmos.dto.things.ThingResponse;
 import net.smartcosmos.dto.things.ThingUpdate;
 
 public class ThingPersistenceUtil {
 
+    private static final String SQL_STATE_UNIQUE_VIOLATION = "23505";
+    private static final String SQL_STATE_INTEGRITY_VIOLATION = "23000";
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+
     /**
      * Merges a {@link ThingEntity} instance with the content of a {@link ThingUpdate} instance.
      *
@@ -96,6 +107,124 @@ public class ThingPersistenceUtil {
         return sortBy;
     }
 
+    /**
+     * Gets the type of a {@link ThingEntity} field.
+     *
+     * @param fieldName the field name
+     * @return the field type
+     * @throws IllegalArgumentException if the field does not exist
+     */
+    public static Class<?> getFieldType(String fieldName) throws IllegalArgumentException {
+
+        try {
+            return ThingEntity.class.getDeclaredField(fieldName)
+                .getType();
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException(String.format("Unknown field '%s'", fieldName), e);
+        }
+    }
+
+    /**
+     * Gets the value of a {@link ThingEntity} field.
+     *
+     * @param thingEntity the entity
+     * @param fieldName the field name
+     * @return the field value
+     * @throws IllegalArgumentException if the field does not exist
+     */
+    public static Object getFieldValue(ThingEntity thingEntity, String fieldName) throws IllegalArgumentException {
+
+        switch (fieldName) {
+            case "id":
+                return thingEntity.getId();
+            case "type":
+                return thingEntity.getType();
+            case "tenantId":
+                return thingEntity.getTenantId();
+            case "created":
+                return thingEntity.getCreated();
+            case "lastModified":
+                return thingEntity.getLastModified();
+            case "active":
+                return thingEntity.getActive();
+            default:
+                throw new IllegalArgumentException(String.format("Unknown field '%s'", fieldName));
+        }
+    }
+
+    /**
+     * Gets the value of a {@link ThingProjection} field.
+     *
+     * @param projection the projection
+     * @param fieldName the field name
+     * @return the field value
+     * @throws IllegalArgumentException if the field does not exist
+     */
+    public static Object getFieldValue(ThingProjection projection, String fieldName) throws IllegalArgumentException {
+
+        switch (fieldName) {
+            case "id":
+                return projection.getId();
+            case "type":
+                return projection.getType();
+            case "tenantId":
+                return projection.getTenantId();
+            case "created":
+                return projection.getCreated();
+            case "lastModified":
+                return projection.getLastModified();
+            case "active":
+                return projection.getActive();
+            default:
+                throw new IllegalArgumentException(String.format("Unknown field '%s'", fieldName));
+        }
+    }
+
+    /**
+     * Gets a comparator that orders {@link ThingProjection} instances by a field, like the database does. UUIDs are compared by their
+     * unsigned bytes, as they are stored in the {@code uuid-binary} columns, and {@code null} values come first in ascending order.
+     * String fields are not supported, since their order depends on the collation of the database.
+     *
+     * @param fieldName the field name
+     * @param direction the sort direction
+     * @return the comparator
+     * @throws IllegalArgumentException if the field does not exist or is a string
+     */
+    @SuppressWarnings("unchecked")
+    public static Comparator<ThingProjection> getFieldComparator(String fieldName, Sort.Direction direction) throws IllegalArgumentException {
+
+        Class<?> fieldType = getFieldType(fieldName);
+        if (String.class.equals(fieldType)) {
+            throw new IllegalArgumentException(String.format("Field '%s' is ordered by the collation of the database", fieldName));
+        }
+
+        Comparator<Object> valueComparator;
+        if (UUID.class.equals(fieldType)) {
+            valueComparator = (a, b) -> compareUnsigned((UUID) a, (UUID) b);
+        } else {
+            valueComparator = (a, b) -> ((Comparable<Object>) a).compareTo(b);
+        }
+
+        Comparator<ThingProjection> comparator = Comparator.comparing(projection -> getFieldValue(projection, fieldName),
+                                                                      Comparator.nullsFirst(valueComparator));
+
+        return direction.isAscending() ? comparator : comparator.reversed();
+    }
+
+    /**
+     * Compares two UUIDs by their unsigned bytes, which is the order of the {@code uuid-binary} columns in the database, unlike
+     * {@link UUID#compareTo(UUID)}.
+     *
+     * @param a the first UUID
+     * @param b the second UUID
+     * @return a negative number, zero, or a positive number as the first UUID is ordered before, equal to, or after the second
+     */
+    public static int compareUnsigned(UUID a, UUID b) {
+
+        int result = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return result != 0 ? result : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
     /**
      * Converts the {@link SortOrder} value to a Spring-compatible {@link org.springframework.data.domain.Sort.Direction} sort direction.
      *
@@ -116,6 +245,33 @@ public class ThingPersistenceUtil {
         return direction;
     }
 
+    /**
+     * Checks if a data access exception was caused by a duplicate key, i.e. the violation of a primary key or unique constraint, rather
+     * than by another integrity constraint. The SQL state {@code 23505} is used by H2 and most other databases, MySQL and MariaDB report
+     * the error code {@code 1062} with the generic SQL state {@code 23000}.
+     *
+     * @param exception the exception
+     * @return {@code true} if one of the causes is a duplicate key error
+     */
+    public static boolean isDuplicateKey(DataAccessException exception) {
+
+        if (exception instanceof DuplicateKeyException) {
+            return true;
+        }
+
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                if (SQL_STATE_UNIQUE_VIOLATION.equals(sqlException.getSQLState())
+                    || (SQL_STATE_INTEGRITY_VIOLATION.equals(sqlException.getSQLState()) && sqlException.getErrorCode() == MYSQL_DUPLICATE_ENTRY)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Creates an empty {@link Page<ThingResponse>} instance.
      *
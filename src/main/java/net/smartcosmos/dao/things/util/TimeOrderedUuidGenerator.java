@@ -0,0 +1,148 @@
+package net.smartcosmos.dao.things.util;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates time-based UUIDs whose most significant bits are the version nibble followed by the 60 bit timestamp (in 100 ns intervals
+ * since 1582-10-15), i.e. a version 1 UUID with the timestamp fields in descending order of significance. The UUIDs sort by creation
+ * time, as strings and as unsigned bytes, which keeps inserts at the end of the primary key index.
+ * <p>
+ * The layout is built from the two longs directly. The timestamps come from a lock-free counter that never goes backwards: if the clock
+ * did not advance since the last UUID, or went backwards, the last timestamp is incremented instead. So all UUIDs of a generator are
+ * unique and strictly ordered by generation, across all threads. Under a sustained rate of more than 10 million UUIDs per second, the
+ * timestamps run ahead of the clock until the rate drops. The least significant bits hold a random clock sequence and a random
+ * multicast node address, chosen once per generator, which tell the UUIDs of different generators apart.
+ */
+public class TimeOrderedUuidGenerator {
+
+    /**
+     * The number of 100 ns intervals between the UUID epoch (1582-10-15) and the Unix epoch.
+     */
+    private static final long UUID_EPOCH_OFFSET = 0x01B21DD213814000L;
+    private static final long INTERVALS_PER_MILLI = 10000;
+
+    private static final long VERSION = 0x1000000000000000L;
+    private static final long TIMESTAMP_MASK = 0x0FFFFFFFFFFFFFFFL;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long CLOCK_SEQUENCE_MASK = 0x3FFFL;
+    private static final long NODE_MASK = 0xFFFFFFFFFFFFL;
+    private static final long MULTICAST_BIT = 0x010000000000L;
+
+    private final LongSupplier clockMillis;
+    private final long leastSigBits;
+    private final AtomicLong lastTimestamp = new AtomicLong();
+
+    public TimeOrderedUuidGenerator() {
+
+        this(System::currentTimeMillis, new SecureRandom());
+    }
+
+    TimeOrderedUuidGenerator(LongSupplier clockMillis, Random random) {
+
+        this.clockMillis = clockMillis;
+        this.leastSigBits = VARIANT | (random.nextLong() & CLOCK_SEQUENCE_MASK) << 48 | (random.nextLong() & NODE_MASK) | MULTICAST_BIT;
+    }
+
+    /**
+     * Generates a UUID.
+     *
+     * @return the UUID
+     */
+    public UUID generate() {
+
+        return toUuid(reserve(1));
+    }
+
+    /**
+     * Reserves a block of consecutive UUIDs at once, which takes a single update of the shared counter.
+     *
+     * @param count the number of UUIDs
+     * @return the block
+     */
+    public Block generate(int count) {
+
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must not be less than one!");
+        }
+
+        return new Block(reserve(count), count);
+    }
+
+    /**
+     * Reserves a range of timestamps.
+     *
+     * @param count the number of timestamps
+     * @return the first timestamp of the range
+     */
+    private long reserve(int count) {
+
+        while (true) {
+            long last = lastTimestamp.get();
+            long first = Math.max(clockMillis.getAsLong() * INTERVALS_PER_MILLI + UUID_EPOCH_OFFSET, last + 1);
+            if (lastTimestamp.compareAndSet(last, first + count - 1)) {
+                return first;
+            }
+        }
+    }
+
+    private UUID toUuid(long timestamp) {
+
+        return new UUID(VERSION | (timestamp & TIMESTAMP_MASK), leastSigBits);
+    }
+
+    /**
+     * Gets the timestamp of a UUID of this layout.
+     *
+     * @param uuid the UUID
+     * @return the timestamp in 100 ns intervals since 1582-10-15
+     */
+    static long getTimestamp(UUID uuid) {
+
+        return uuid.getMostSignificantBits() & TIMESTAMP_MASK;
+    }
+
+    /**
+     * A block of reserved UUIDs, which are handed out in ascending order. A block is not thread-safe.
+     */
+    public class Block {
+
+        private final long firstTimestamp;
+        private final int count;
+        private int position;
+
+        private Block(long firstTimestamp, int count) {
+
+            this.firstTimestamp = firstTimestamp;
+            this.count = count;
+        }
+
+        public boolean hasNext() {
+
+            return position < count;
+        }
+
+        public int remaining() {
+
+            return count - position;
+        }
+
+        /**
+         * Gets the next UUID of the block.
+         *
+         * @return the UUID
+         * @throws IllegalStateException if the block is exhausted
+         */
+        public UUID next() throws IllegalStateException {
+
+            if (position >= count) {
+                throw new IllegalStateException(String.format("All %d UUIDs of the block have been used", count));
+            }
+
+            return toUuid(firstTimestamp + position++);
+        }
+    }
+}
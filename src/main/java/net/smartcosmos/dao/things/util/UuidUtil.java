@@ -1,10 +1,8 @@
 package net.smartcosmos.dao.things.util;
 
+import java.util.Arrays;
 import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import com.fasterxml.uuid.Generators;
+import java.util.function.Supplier;
 
 public class UuidUtil {
 
@@ -17,19 +15,127 @@ public class UuidUtil {
     private static final String USER_PREFIX = "user";
     private static final String THING_PREFIX = "thing";
 
-    public static UUID getUuidFromUrn(String urn) throws IllegalArgumentException {
+    private static final String URN_SCHEME = "urn:{prefix}:uuid:{uuid}";
+    private static final String URN_SCHEME_START = URN_PREFIX + URN_SEPARATOR;
+    private static final String URN_SCHEME_UUID = URN_SEPARATOR + UUID_TYPE + URN_SEPARATOR;
+    private static final int UUID_STRING_LENGTH = 36;
+
+    private static final byte[] HEX_VALUES = new byte[128];
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /*
+        A direct-mapped cache of tenant URNs: each UUID has a single slot, which holds the last tenant URN formatted for that slot. Hits
+        neither allocate nor lock. The entries are immutable and have final fields only, so they are safely published through the plain
+        array, and a lost update merely costs formatting the URN once more.
+     */
+    private static final int TENANT_URN_CACHE_SIZE = 1024;
+    private static final CachedUrn[] TENANT_URN_CACHE = new CachedUrn[TENANT_URN_CACHE_SIZE];
+
+    private static final TimeOrderedUuidGenerator UUID_GENERATOR = new TimeOrderedUuidGenerator();
+    private static final ThreadLocal<TimeOrderedUuidGenerator.Block> RESERVED_UUIDS = new ThreadLocal<>();
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
 
-        String urnScheme = "^urn:.*:uuid:([A-F0-9]{8}-[A-F0-9]{4}-[A-F0-9]{4}-[A-F0-9]{4}-[A-F0-9]{12})$";
+    public static UUID getUuidFromUrn(String urn) throws IllegalArgumentException {
 
-        Pattern p = Pattern.compile(urnScheme, Pattern.CASE_INSENSITIVE);
-        Matcher m = p.matcher(urn);
-        if (m.find()) {
-            return UUID.fromString(m.group(1));
+        UUID uuid = parseUrn(urn);
+        if (uuid != null) {
+            return uuid;
         }
 
         throw new IllegalArgumentException(String.format("Provided URN '%s' does not match the required URN scheme '%s'",
                                                          urn,
-                                                         "urn:{prefix}:uuid:{uuid}"));
+                                                         URN_SCHEME));
+    }
+
+    /**
+     * Parses a URN of the scheme {@code urn:{prefix}:uuid:{uuid}} (case-insensitive) without regular expressions or intermediate strings.
+     * The UUID is scanned from the end of the string and its hex digits are decoded directly into the two halves of the {@link UUID}.
+     *
+     * @param urn the URN
+     * @return the parsed UUID, or {@code null} if the URN does not match the scheme
+     */
+    static UUID parseUrn(String urn) {
+
+        if (urn == null) {
+            return null;
+        }
+
+        // like the former "...$" expression, tolerate a single line terminator at the very end
+        int end = urn.length();
+        if (end > 1 && urn.charAt(end - 2) == '\r' && urn.charAt(end - 1) == '\n') {
+            end -= 2;
+        } else if (end > 0 && isLineTerminator(urn.charAt(end - 1))) {
+            end--;
+        }
+
+        final int uuidStart = end - UUID_STRING_LENGTH;
+        final int uuidTypeStart = uuidStart - URN_SCHEME_UUID.length();
+        if (uuidTypeStart < URN_SCHEME_START.length()
+            || !regionMatchesIgnoreAsciiCase(urn, 0, URN_SCHEME_START)
+            || !regionMatchesIgnoreAsciiCase(urn, uuidTypeStart, URN_SCHEME_UUID)) {
+            return null;
+        }
+
+        // the prefix may be anything but a line terminator, as it was with the former "^urn:.*:uuid:" expression
+        for (int i = URN_SCHEME_START.length(); i < uuidTypeStart; i++) {
+            if (isLineTerminator(urn.charAt(i))) {
+                return null;
+            }
+        }
+
+        long mostSigBits = 0;
+        long leastSigBits = 0;
+        for (int i = 0; i < UUID_STRING_LENGTH; i++) {
+            char c = urn.charAt(uuidStart + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return null;
+                }
+                continue;
+            }
+
+            int digit = c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+            if (digit < 0) {
+                return null;
+            }
+
+            if (i < 18) {
+                mostSigBits = (mostSigBits << 4) | digit;
+            } else {
+                leastSigBits = (leastSigBits << 4) | digit;
+            }
+        }
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    private static boolean regionMatchesIgnoreAsciiCase(String value, int offset, String lowerCaseExpected) {
+
+        for (int i = 0; i < lowerCaseExpected.length(); i++) {
+            char c = value.charAt(offset + i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            if (c != lowerCaseExpected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLineTerminator(char c) {
+
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 
     public static String getThingUrnFromUuid(UUID uuid) {
@@ -37,9 +143,27 @@ public class UuidUtil {
         return getPrefixUrnFromUuid(THING_PREFIX, uuid);
     }
 
+    /**
+     * Gets the URN of a tenant. Since there are only a few tenants, but each of them appears in many responses, the URNs of recently used
+     * tenants are cached.
+     *
+     * @param uuid the tenant ID
+     * @return the tenant URN
+     */
     public static String getTenantUrnFromUuid(UUID uuid) {
 
-        return getPrefixUrnFromUuid(TENANT_PREFIX, uuid);
+        int hash = uuid.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (TENANT_URN_CACHE_SIZE - 1);
+
+        CachedUrn cached = TENANT_URN_CACHE[slot];
+        if (cached != null && cached.uuid.equals(uuid)) {
+            return cached.urn;
+        }
+
+        String urn = getPrefixUrnFromUuid(TENANT_PREFIX, uuid);
+        TENANT_URN_CACHE[slot] = new CachedUrn(uuid, urn);
+
+        return urn;
     }
 
     public static String getUserUrnFromUuid(UUID uuid) {
@@ -47,39 +171,113 @@ public class UuidUtil {
         return getPrefixUrnFromUuid(USER_PREFIX, uuid);
     }
 
+    /**
+     * Formats a URN of the scheme {@code urn:{prefix}:uuid:{uuid}} in lower case. The hex digits of the UUID are written directly into a
+     * char array of the exact length, so there are no intermediate strings.
+     *
+     * @param prefix the prefix
+     * @param uuid the UUID
+     * @return the URN
+     */
     static String getPrefixUrnFromUuid(String prefix, UUID uuid) {
 
-        return new StringBuilder(URN_PREFIX)
-            .append(URN_SEPARATOR)
-            .append(prefix)
-            .append(URN_SEPARATOR)
-            .append(UUID_TYPE)
-            .append(URN_SEPARATOR)
-            .append(uuid.toString())
-            .toString()
-            .toLowerCase();
+        // the prefixes are constants in lower case already, for which toLowerCase() returns the same instance
+        String lowerCasePrefix = prefix.toLowerCase();
+
+        int prefixStart = URN_SCHEME_START.length();
+        int uuidTypeStart = prefixStart + lowerCasePrefix.length();
+        int uuidStart = uuidTypeStart + URN_SCHEME_UUID.length();
+
+        char[] urn = new char[uuidStart + UUID_STRING_LENGTH];
+        URN_SCHEME_START.getChars(0, prefixStart, urn, 0);
+        lowerCasePrefix.getChars(0, lowerCasePrefix.length(), urn, prefixStart);
+        URN_SCHEME_UUID.getChars(0, URN_SCHEME_UUID.length(), urn, uuidTypeStart);
+        formatUuid(uuid, urn, uuidStart);
+
+        return new String(urn);
+    }
+
+    /**
+     * Writes a UUID in its canonical form with lower case hex digits, like {@code UUID.toString().toLowerCase()}.
+     */
+    private static void formatUuid(UUID uuid, char[] destination, int offset) {
+
+        long mostSigBits = uuid.getMostSignificantBits();
+        long leastSigBits = uuid.getLeastSignificantBits();
+
+        formatHex(mostSigBits >>> 32, destination, offset, 8);
+        destination[offset + 8] = '-';
+        formatHex(mostSigBits >>> 16, destination, offset + 9, 4);
+        destination[offset + 13] = '-';
+        formatHex(mostSigBits, destination, offset + 14, 4);
+        destination[offset + 18] = '-';
+        formatHex(leastSigBits >>> 48, destination, offset + 19, 4);
+        destination[offset + 23] = '-';
+        formatHex(leastSigBits, destination, offset + 24, 12);
+    }
+
+    private static void formatHex(long value, char[] destination, int offset, int digits) {
+
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            destination[i] = HEX_DIGITS[(int) value & 0xF];
+            value >>>= 4;
+        }
     }
 
+    /**
+     * Generates a new time-ordered UUID. Within {@link #withReservedUuids(int, Supplier)}, the UUID is taken from the reserved block.
+     *
+     * @return the UUID
+     * @see TimeOrderedUuidGenerator
+     */
     public static UUID getNewUuid() {
 
-        String baseUuidString = Generators.timeBasedGenerator()
-            .generate()
-            .toString();
-        String[] parts = baseUuidString.split("-");
-
-        String sortedUuidString = new StringBuilder(36)
-            .append(parts[2])
-            .append(parts[1])
-            .append("-")
-            .append(parts[0].substring(0, 4))
-            .append("-")
-            .append(parts[0].substring(4, 8))
-            .append("-")
-            .append(parts[3])
-            .append("-")
-            .append(parts[4])
-            .toString();
-
-        return UUID.fromString(sortedUuidString);
+        TimeOrderedUuidGenerator.Block block = RESERVED_UUIDS.get();
+        if (block != null && block.hasNext()) {
+            return block.next();
+        }
+
+        return UUID_GENERATOR.generate();
+    }
+
+    /**
+     * Runs an action that generates a known number of UUIDs, e.g. a batch create, with a block of UUIDs reserved up front. The calls of
+     * {@link #getNewUuid()} by the action on the current thread take their UUIDs from the block, once it is used up they generate
+     * UUIDs as usual.
+     *
+     * @param count the number of UUIDs to reserve
+     * @param action the action
+     * @param <T> the result type
+     * @return the result of the action
+     */
+    public static <T> T withReservedUuids(int count, Supplier<T> action) {
+
+        if (count < 1) {
+            return action.get();
+        }
+
+        TimeOrderedUuidGenerator.Block previous = RESERVED_UUIDS.get();
+        RESERVED_UUIDS.set(UUID_GENERATOR.generate(count));
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                RESERVED_UUIDS.set(previous);
+            } else {
+                RESERVED_UUIDS.remove();
+            }
+        }
+    }
+
+    private static final class CachedUrn {
+
+        private final UUID uuid;
+        private final String urn;
+
+        CachedUrn(UUID uuid, String urn) {
+
+            this.uuid = uuid;
+            this.urn = urn;
+        }
     }
 }
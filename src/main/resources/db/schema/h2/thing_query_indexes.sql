@@ -0,0 +1,12 @@
+-- Indexes for the tenant-scoped queries of the Things DAO, see ThingEntity.
+-- The column names are the ones of the @Column annotations, as with the naming strategy prescribed by ThingEntity
+-- (org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl, formerly org.hibernate.cfg.EJB3NamingStrategy).
+-- For a schema generated with the default naming strategy of Spring Boot (tenant_id, last_modified), use
+-- thing_query_indexes_snake_case.sql instead.
+-- Apply manually, or from your own migration tool, if the schema is not generated by Hibernate. The script can be rerun safely.
+
+CREATE INDEX IF NOT EXISTS thing_tenant_type_id_idx ON thing (tenantId, type, id);
+
+CREATE INDEX IF NOT EXISTS thing_tenant_type_last_modified_idx ON thing (tenantId, type, lastModified, id);
+
+CREATE INDEX IF NOT EXISTS thing_tenant_type_created_idx ON thing (tenantId, type, created, id);
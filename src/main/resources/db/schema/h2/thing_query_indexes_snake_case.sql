@@ -0,0 +1,10 @@
+-- Indexes for the tenant-scoped queries of the Things DAO, see ThingEntity.
+-- The column names follow the default physical naming strategy of Spring Boot (SpringPhysicalNamingStrategy), which converts
+-- camel case to snake case. For the naming strategy prescribed by ThingEntity, use thing_query_indexes.sql instead.
+-- Apply manually, or from your own migration tool, if the schema is not generated by Hibernate. The script can be rerun safely.
+
+CREATE INDEX IF NOT EXISTS thing_tenant_type_id_idx ON thing (tenant_id, type, id);
+
+CREATE INDEX IF NOT EXISTS thing_tenant_type_last_modified_idx ON thing (tenant_id, type, last_modified, id);
+
+CREATE INDEX IF NOT EXISTS thing_tenant_type_created_idx ON thing (tenant_id, type, created, id);
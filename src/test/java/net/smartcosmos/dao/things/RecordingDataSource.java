@@ -0,0 +1,71 @@
+package net.smartcosmos.dao.things;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Records the SQL statements of all connections with the {@link RecordingStatementInspector}, at the JDBC level. Unlike the inspector
+ * registered with Hibernate, this also sees the statements that don't go through Hibernate, e.g. those of a {@code JdbcTemplate}.
+ * Statements are recorded when they are prepared, or when they are executed if they are not prepared.
+ */
+public class RecordingDataSource extends DelegatingDataSource {
+
+    private final RecordingStatementInspector inspector = new RecordingStatementInspector();
+
+    public RecordingDataSource(DataSource targetDataSource) {
+
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        return recording(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+
+        return recording(Connection.class, super.getConnection(username, password));
+    }
+
+    private <T> T recording(Class<T> type, T target) {
+
+        InvocationHandler handler = (proxy, method, args) -> {
+            record(method, args);
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement && "createStatement".equals(method.getName())) {
+                return recording(Statement.class, (Statement) result);
+            }
+            return result;
+        };
+
+        return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private void record(Method method, Object[] args) {
+
+        String name = method.getName();
+        boolean withSql = args != null && args.length > 0 && args[0] instanceof String;
+        if (withSql && (name.startsWith("prepare") || name.startsWith("execute") || "addBatch".equals(name))) {
+            inspector.inspect((String) args[0]);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package net.smartcosmos.dao.things;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wraps the {@code dataSource} bean in a {@link RecordingDataSource}, so that the tests can count all SQL statements with
+ * {@link SqlStatementCounts}, including those that bypass Hibernate. Don't register the {@link RecordingStatementInspector} with
+ * Hibernate as well, or the statements of Hibernate are counted twice.
+ */
+@Configuration
+public class RecordingDataSourceConfig {
+
+    @Bean
+    public static BeanPostProcessor recordingDataSourcePostProcessor() {
+
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+
+                if ("dataSource".equals(beanName) && bean instanceof DataSource) {
+                    return new RecordingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+}
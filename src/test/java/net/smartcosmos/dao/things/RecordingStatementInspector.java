@@ -0,0 +1,52 @@
+package net.smartcosmos.dao.things;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Records the SQL statements that Hibernate prepares while recording is on. Register it with
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}. Statements of all threads are recorded, so tests must
+ * not record concurrently.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+    private static volatile boolean recording;
+
+    @Override
+    public String inspect(String sql) {
+
+        if (recording) {
+            synchronized (STATEMENTS) {
+                STATEMENTS.add(sql);
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Starts recording, and drops the statements recorded before.
+     */
+    public static void start() {
+
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+        recording = true;
+    }
+
+    /**
+     * Stops recording.
+     *
+     * @return the statements recorded since the start
+     */
+    public static List<String> stop() {
+
+        recording = false;
+        synchronized (STATEMENTS) {
+            return new ArrayList<>(STATEMENTS);
+        }
+    }
+}
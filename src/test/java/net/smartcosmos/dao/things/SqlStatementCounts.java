@@ -0,0 +1,118 @@
+package net.smartcosmos.dao.things;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import lombok.Data;
+
+import static org.junit.Assert.*;
+
+/**
+ * The number of SQL statements of each type that were prepared while an action ran, as recorded by the
+ * {@link RecordingStatementInspector}, either registered with Hibernate or through the {@link RecordingDataSource}. Statements are
+ * classified by their first keyword, leading comments are skipped.
+ */
+@Data
+public class SqlStatementCounts {
+
+    private final int selectCount;
+    private final int insertCount;
+    private final int updateCount;
+    private final int deleteCount;
+    private final int otherCount;
+    private final List<String> statements;
+
+    /**
+     * Runs an action and counts the statements it prepared.
+     *
+     * @param action the action
+     * @return the statement counts
+     */
+    public static SqlStatementCounts count(Runnable action) {
+
+        List<String> statements;
+        RecordingStatementInspector.start();
+        try {
+            action.run();
+        } finally {
+            statements = RecordingStatementInspector.stop();
+        }
+
+        return of(statements);
+    }
+
+    /**
+     * Counts a list of statements by type.
+     *
+     * @param statements the statements
+     * @return the statement counts
+     */
+    public static SqlStatementCounts of(List<String> statements) {
+
+        int select = 0;
+        int insert = 0;
+        int update = 0;
+        int delete = 0;
+        int other = 0;
+
+        for (String statement : statements) {
+            switch (getKeyword(statement)) {
+                case "select":
+                case "with":
+                    select++;
+                    break;
+                case "insert":
+                case "merge":
+                    insert++;
+                    break;
+                case "update":
+                    update++;
+                    break;
+                case "delete":
+                    delete++;
+                    break;
+                default:
+                    other++;
+            }
+        }
+
+        return new SqlStatementCounts(select, insert, update, delete, other, Collections.unmodifiableList(new ArrayList<>(statements)));
+    }
+
+    /**
+     * Asserts the exact number of statements of each type, and that there were no statements of other types. Pinning the counts, instead
+     * of only limiting them, shows when a change saves statements as well, so that the budget can be tightened.
+     *
+     * @param selects the expected number of {@code SELECT} statements
+     * @param inserts the expected number of {@code INSERT} statements
+     * @param updates the expected number of {@code UPDATE} statements
+     * @param deletes the expected number of {@code DELETE} statements
+     */
+    public void assertCounts(int selects, int inserts, int updates, int deletes) {
+
+        assertEquals("SELECT statements: " + statements, selects, selectCount);
+        assertEquals("INSERT statements: " + statements, inserts, insertCount);
+        assertEquals("UPDATE statements: " + statements, updates, updateCount);
+        assertEquals("DELETE statements: " + statements, deletes, deleteCount);
+        assertEquals("Unexpected statements: " + statements, 0, otherCount);
+    }
+
+    private static String getKeyword(String statement) {
+
+        String sql = statement.trim();
+        while (sql.startsWith("/*") && sql.contains("*/")) {
+            sql = sql.substring(sql.indexOf("*/") + 2)
+                .trim();
+        }
+
+        int end = 0;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+
+        return sql.substring(0, end)
+            .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,114 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.mockito.*;
+import org.mockito.runners.*;
+
+import net.smartcosmos.dao.things.repository.ThingRepository;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ThingCountRegistryTest {
+
+    private static final String TYPE_ONE = "type one";
+    private static final String TYPE_TWO = "type two";
+
+    @Mock
+    ThingRepository repository;
+
+    private final UUID tenantId = UUID.randomUUID();
+
+    @Before
+    public void setUp() {
+
+        List<Object[]> counts = new ArrayList<>();
+        counts.add(new Object[] { TYPE_ONE, 3L });
+        counts.add(new Object[] { TYPE_TWO, 5L });
+        when(repository.countByTenantIdGroupByType(any(UUID.class))).thenReturn(counts);
+    }
+
+    @Test
+    public void thatCountsAreLoadedOnce() {
+
+        ThingCountRegistry registry = new ThingCountRegistry(repository, true, 10, Long.MAX_VALUE);
+
+        assertEquals(3, registry.count(tenantId, TYPE_ONE));
+        assertEquals(5, registry.count(tenantId, TYPE_TWO));
+        assertEquals(0, registry.count(tenantId, "no such type"));
+        assertEquals(8, registry.count(tenantId));
+
+        verify(repository, times(1)).countByTenantIdGroupByType(tenantId);
+    }
+
+    @Test
+    public void thatWritesAdjustCounts() {
+
+        ThingCountRegistry registry = new ThingCountRegistry(repository, true, 10, Long.MAX_VALUE);
+        registry.count(tenantId);
+
+        registry.add(tenantId, TYPE_ONE, 2);
+        registry.add(tenantId, TYPE_TWO, -1);
+        registry.add(tenantId, "new type", 1);
+
+        assertEquals(5, registry.count(tenantId, TYPE_ONE));
+        assertEquals(4, registry.count(tenantId, TYPE_TWO));
+        assertEquals(1, registry.count(tenantId, "new type"));
+
+        registry.reset(tenantId, TYPE_ONE);
+
+        assertEquals(0, registry.count(tenantId, TYPE_ONE));
+        assertEquals(5, registry.count(tenantId));
+    }
+
+    @Test
+    public void thatWritesToUnloadedTenantsAreIgnored() {
+
+        ThingCountRegistry registry = new ThingCountRegistry(repository, true, 10, Long.MAX_VALUE);
+
+        registry.add(tenantId, TYPE_ONE, 2);
+
+        assertEquals(0, registry.size());
+        assertEquals(3, registry.count(tenantId, TYPE_ONE));
+    }
+
+    @Test
+    public void thatCountsAreReconciled() {
+
+        ThingCountRegistry registry = new ThingCountRegistry(repository, true, 10, 0);
+        registry.count(tenantId);
+        registry.add(tenantId, TYPE_ONE, 2);
+
+        assertEquals(3, registry.count(tenantId, TYPE_ONE));
+        verify(repository, times(2)).countByTenantIdGroupByType(tenantId);
+    }
+
+    @Test
+    public void thatLeastRecentlyUsedTenantIsEvicted() throws Exception {
+
+        ThingCountRegistry registry = new ThingCountRegistry(repository, true, 2, Long.MAX_VALUE);
+        UUID tenant1 = UUID.randomUUID();
+        UUID tenant2 = UUID.randomUUID();
+        UUID tenant3 = UUID.randomUUID();
+
+        registry.count(tenant1);
+        Thread.sleep(2);
+        registry.count(tenant2);
+        Thread.sleep(2);
+        registry.count(tenant1);
+        Thread.sleep(2);
+        registry.count(tenant3);
+
+        assertEquals(2, registry.size());
+        registry.count(tenant1);
+        verify(repository, times(1)).countByTenantIdGroupByType(tenant1);
+        registry.count(tenant2);
+        verify(repository, times(2)).countByTenantIdGroupByType(tenant2);
+    }
+}
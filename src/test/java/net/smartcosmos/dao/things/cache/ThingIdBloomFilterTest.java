@@ -0,0 +1,94 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class ThingIdBloomFilterTest {
+
+    @Test
+    public void thatAddedIdsAreAlwaysFound() {
+
+        ThingIdBloomFilter filter = new ThingIdBloomFilter(10000, 0.01);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            filter.put(id);
+        }
+
+        for (UUID id : ids) {
+            assertTrue(filter.mightContain(id));
+        }
+        assertFalse(filter.isSaturated());
+    }
+
+    @Test
+    public void thatFalsePositiveRateIsKept() {
+
+        ThingIdBloomFilter filter = new ThingIdBloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put(UUID.randomUUID());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+
+        // 1% expected, allow for some variance
+        assertTrue("False positives: " + falsePositives, falsePositives < 1500);
+    }
+
+    @Test
+    public void thatSequentialIdsAreSpread() {
+
+        ThingIdBloomFilter filter = new ThingIdBloomFilter(1000, 0.01);
+        UUID base = UUID.randomUUID();
+        for (int i = 0; i < 1000; i++) {
+            filter.put(new UUID(base.getMostSignificantBits() + i, base.getLeastSignificantBits()));
+        }
+
+        int falsePositives = 0;
+        for (int i = 1000; i < 11000; i++) {
+            if (filter.mightContain(new UUID(base.getMostSignificantBits() + i, base.getLeastSignificantBits()))) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue("False positives: " + falsePositives, falsePositives < 150);
+    }
+
+    @Test
+    public void thatSizeFollowsExpectedInsertions() {
+
+        ThingIdBloomFilter filter = new ThingIdBloomFilter(1000, 0.01);
+
+        // about 9.6 bits and 7 hash functions per ID for 1%
+        assertEquals(1200, filter.getMemoryBytes(), 8);
+        assertEquals(7, filter.getHashCount());
+    }
+
+    @Test
+    public void thatFilterIsSaturated() {
+
+        ThingIdBloomFilter filter = new ThingIdBloomFilter(10, 0.01);
+        for (int i = 0; i < 11; i++) {
+            filter.put(UUID.randomUUID());
+        }
+
+        assertTrue(filter.isSaturated());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatInvalidFalsePositiveRateFails() {
+
+        new ThingIdBloomFilter(10, 1.0);
+    }
+}
@@ -0,0 +1,165 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.mockito.*;
+import org.mockito.runners.*;
+
+import net.smartcosmos.dao.things.repository.ThingRepository;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ThingIdFilterRegistryTest {
+
+    private static final String TYPE = "type";
+
+    @Mock
+    ThingRepository repository;
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final UUID existingId = UUID.randomUUID();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+
+        when(repository.countByTenantIdAndType(any(UUID.class), anyString())).thenReturn(1L);
+        when(repository.forEachIdByTenantIdAndType(any(UUID.class), anyString(), any(Consumer.class))).thenAnswer(invocation -> {
+            ((Consumer<UUID>) invocation.getArguments()[2]).accept(existingId);
+            return 1L;
+        });
+    }
+
+    @Test
+    public void thatExistingIdsMightBeContained() {
+
+        ThingIdFilterRegistry registry = new ThingIdFilterRegistry(repository, true, 0.001, 1000, Long.MAX_VALUE, Long.MAX_VALUE, Runnable::run);
+
+        assertTrue(registry.mightContain(tenantId, TYPE, existingId));
+        assertEquals(1, registry.getStats()
+            .getMightContainCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void thatNewIdsAreAbsent() {
+
+        ThingIdFilterRegistry registry = new ThingIdFilterRegistry(repository, true, 0.001, 1000, Long.MAX_VALUE, Long.MAX_VALUE, Runnable::run);
+
+        assertFalse(registry.mightContain(tenantId, TYPE, UUID.randomUUID()));
+        assertFalse(registry.mightContain(tenantId, TYPE, UUID.randomUUID()));
+
+        assertEquals(2, registry.getStats()
+            .getAbsentCount());
+        verify(repository, times(1)).forEachIdByTenantIdAndType(eq(tenantId), eq(TYPE), any(Consumer.class));
+    }
+
+    @Test
+    public void thatAddedIdsMightBeContained() {
+
+        ThingIdFilterRegistry registry = new ThingIdFilterRegistry(repository, true, 0.001, 1000, Long.MAX_VALUE, Long.MAX_VALUE, Runnable::run);
+        UUID id = UUID.randomUUID();
+        registry.mightContain(tenantId, TYPE, existingId);
+
+        registry.add(tenantId, TYPE, id);
+
+        assertTrue(registry.mightContain(tenantId, TYPE, id));
+    }
+
+    @Test
+    public void thatFiltersAreSeparatedByTenantAndType() {
+
+        ThingIdFilterRegistry registry = new ThingIdFilterRegistry(repository, true, 0.001, 1000, Long.MAX_VALUE, Long.MAX_VALUE, Runnable::run);
+        UUID id = UUID.randomUUID();
+        registry.mightContain(tenantId, TYPE, existingId);
+        registry.add(tenantId, TYPE, id);
+
+        assertFalse(registry.mightContain(tenantId, "other type", id));
+        assertFalse(registry.mightContain(UUID.randomUUID(), TYPE, id));
+        assertEquals(3, registry.getStats()
+            .getFilterCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void thatFiltersAreRebuilt() {
+
+        ThingIdFilterRegistry registry = new ThingIdFilterRegistry(repository, true, 0.001, 1000, Long.MAX_VALUE, 0, Runnable::run);
+
+        registry.mightContain(tenantId, TYPE, existingId);
+        registry.mightContain(tenantId, TYPE, existingId);
+
+        verify(repository, times(2)).forEachIdByTenantIdAndType(eq(tenantId), eq(TYPE), any(Consumer.class));
+    }
+
+    @Test
+    public void thatMemoryIsBounded() {
+
+        // a filter for 1000 IDs at 0.1% takes about 1.8 KB
+        ThingIdFilterRegistry registry = new ThingIdFilterRegistry(repository, true, 0.001, 1000, 4096, Long.MAX_VALUE, Runnable::run);
+
+        registry.mightContain(tenantId, "type 1", existingId);
+        registry.mightContain(tenantId, "type 2", existingId);
+        registry.mightContain(tenantId, "type 3", existingId);
+
+        ThingIdFilterRegistry.FilterStats stats = registry.getStats();
+        assertEquals(2, stats.getFilterCount());
+        assertTrue(stats.getMemoryBytes() <= 4096);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void thatFiltersAreBuiltInTheBackground() {
+
+        List<Runnable> builds = new ArrayList<>();
+        ThingIdFilterRegistry registry = new ThingIdFilterRegistry(repository, true, 0.001, 1000, Long.MAX_VALUE, Long.MAX_VALUE, builds::add);
+        UUID id = UUID.randomUUID();
+
+        assertTrue(registry.mightContain(tenantId, TYPE, id));
+        assertTrue(registry.mightContain(tenantId, TYPE, id));
+        assertEquals(2, registry.getStats()
+            .getNotReadyCount());
+        assertEquals(1, builds.size());
+        verifyZeroInteractions(repository);
+
+        builds.get(0)
+            .run();
+
+        assertFalse(registry.mightContain(tenantId, TYPE, id));
+        verify(repository, times(1)).forEachIdByTenantIdAndType(eq(tenantId), eq(TYPE), any(Consumer.class));
+    }
+
+    @Test
+    public void thatIdsAddedDuringBuildMightBeContained() {
+
+        List<Runnable> builds = new ArrayList<>();
+        ThingIdFilterRegistry registry = new ThingIdFilterRegistry(repository, true, 0.001, 1000, Long.MAX_VALUE, Long.MAX_VALUE, builds::add);
+        UUID id = UUID.randomUUID();
+        when(repository.forEachIdByTenantIdAndType(any(UUID.class), anyString(), any(Consumer.class))).thenAnswer(invocation -> {
+            registry.add(tenantId, TYPE, id);
+            return 0L;
+        });
+        registry.mightContain(tenantId, TYPE, existingId);
+
+        builds.get(0)
+            .run();
+
+        assertTrue(registry.mightContain(tenantId, TYPE, id));
+    }
+
+    @Test
+    public void thatDisabledRegistryAlwaysMightContain() {
+
+        ThingIdFilterRegistry registry = new ThingIdFilterRegistry(repository, false, 0.001, 1000, Long.MAX_VALUE, Long.MAX_VALUE, Runnable::run);
+
+        assertTrue(registry.mightContain(tenantId, TYPE, UUID.randomUUID()));
+        verifyZeroInteractions(repository);
+    }
+}
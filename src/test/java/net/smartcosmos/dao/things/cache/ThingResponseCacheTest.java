@@ -0,0 +1,151 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.*;
+
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.ThingResponse;
+
+import static org.junit.Assert.*;
+
+public class ThingResponseCacheTest {
+
+    private static final String TYPE = "type";
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final UUID id = UUID.randomUUID();
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    private ThingResponse thing;
+    private Supplier<Optional<ThingResponse>> loader;
+
+    @Before
+    public void setUp() {
+
+        thing = ThingResponse.builder()
+            .urn(UuidUtil.getThingUrnFromUuid(id))
+            .type(TYPE)
+            .active(true)
+            .tenantUrn(UuidUtil.getTenantUrnFromUuid(tenantId))
+            .build();
+        loader = () -> {
+            loadCount.incrementAndGet();
+            return Optional.of(thing);
+        };
+    }
+
+    @Test
+    public void thatHitsSkipTheLoader() {
+
+        ThingResponseCache cache = new ThingResponseCache(true, 100, Long.MAX_VALUE);
+
+        assertEquals(thing, cache.get(tenantId, TYPE, id, loader).get());
+        assertEquals(thing, cache.get(tenantId, TYPE, id, loader).get());
+
+        assertEquals(1, loadCount.get());
+        assertEquals(1, cache.getStats()
+            .hitCount());
+        assertEquals(1, cache.getStats()
+            .missCount());
+    }
+
+    @Test
+    public void thatKeysIncludeTenant() {
+
+        ThingResponseCache cache = new ThingResponseCache(true, 100, Long.MAX_VALUE);
+
+        cache.get(tenantId, TYPE, id, loader);
+        cache.get(UUID.randomUUID(), TYPE, id, loader);
+        cache.get(null, TYPE, id, loader);
+        cache.get(tenantId, "other type", id, loader);
+
+        assertEquals(4, loadCount.get());
+    }
+
+    @Test
+    public void thatAbsentThingsAreNotCached() {
+
+        ThingResponseCache cache = new ThingResponseCache(true, 100, Long.MAX_VALUE);
+
+        assertFalse(cache.get(tenantId, TYPE, id, Optional::empty)
+                        .isPresent());
+        cache.get(tenantId, TYPE, id, loader);
+
+        assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void thatInvalidateDropsTenantAndCrossTenantEntries() {
+
+        ThingResponseCache cache = new ThingResponseCache(true, 100, Long.MAX_VALUE);
+        cache.get(tenantId, TYPE, id, loader);
+        cache.get(null, TYPE, id, loader);
+
+        cache.invalidate(tenantId, TYPE, id);
+        cache.get(tenantId, TYPE, id, loader);
+        cache.get(null, TYPE, id, loader);
+
+        assertEquals(4, loadCount.get());
+    }
+
+    @Test
+    public void thatInvalidateByIdsKeepsOtherThings() {
+
+        ThingResponseCache cache = new ThingResponseCache(true, 100, Long.MAX_VALUE);
+        UUID otherId = UUID.randomUUID();
+        cache.get(tenantId, TYPE, id, loader);
+        cache.get(tenantId, TYPE, otherId, loader);
+
+        cache.invalidate(tenantId, TYPE, Arrays.asList(id));
+        cache.get(tenantId, TYPE, id, loader);
+        cache.get(tenantId, TYPE, otherId, loader);
+
+        assertEquals(3, loadCount.get());
+    }
+
+    @Test
+    public void thatInvalidateAllDropsTypeOfTenant() {
+
+        ThingResponseCache cache = new ThingResponseCache(true, 100, Long.MAX_VALUE);
+        UUID otherTenantId = UUID.randomUUID();
+        cache.get(tenantId, TYPE, id, loader);
+        cache.get(null, TYPE, id, loader);
+        cache.get(otherTenantId, TYPE, id, loader);
+        cache.get(tenantId, "other type", id, loader);
+
+        cache.invalidateAll(tenantId, TYPE);
+
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void thatInvalidateCrossTenantKeepsTenantEntries() {
+
+        ThingResponseCache cache = new ThingResponseCache(true, 100, Long.MAX_VALUE);
+        cache.get(tenantId, TYPE, id, loader);
+        cache.get(null, TYPE, id, loader);
+
+        cache.invalidateCrossTenant(TYPE, id);
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void thatDisabledCacheAlwaysLoads() {
+
+        ThingResponseCache cache = new ThingResponseCache(false, 100, Long.MAX_VALUE);
+
+        cache.get(tenantId, TYPE, id, loader);
+        cache.get(tenantId, TYPE, id, loader);
+        cache.invalidate(tenantId, TYPE, id);
+
+        assertFalse(cache.isEnabled());
+        assertEquals(2, loadCount.get());
+        assertEquals(0, cache.size());
+    }
+}
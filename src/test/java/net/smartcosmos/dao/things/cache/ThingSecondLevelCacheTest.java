@@ -0,0 +1,215 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import net.smartcosmos.dao.things.ThingPersistenceConfig;
+import net.smartcosmos.dao.things.ThingsPersistenceTestApplication;
+import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.domain.ThingId;
+import net.smartcosmos.dao.things.impl.ThingPersistenceService;
+import net.smartcosmos.dao.things.repository.ThingRepository;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.ThingCreate;
+import net.smartcosmos.dto.things.ThingResponse;
+import net.smartcosmos.dto.things.ThingUpdate;
+import net.smartcosmos.security.user.SmartCosmosUser;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = { ThingsPersistenceTestApplication.class,
+                                            ThingPersistenceConfig.class })
+@ActiveProfiles("test")
+@WebAppConfiguration
+@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false", "smartcosmos.things.second-level-cache.enabled=true" })
+public class ThingSecondLevelCacheTest {
+
+    private static final String TYPE = "type";
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final String tenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+
+    @Autowired
+    ThingPersistenceService persistenceService;
+
+    @Autowired
+    ThingRepository repository;
+
+    @Autowired
+    ThingSecondLevelCache secondLevelCache;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private String urn;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Authentication authentication = Mockito.mock(Authentication.class);
+        Mockito.when(authentication.getPrincipal())
+            .thenReturn(new SmartCosmosUser(tenantUrn, "urn:userUrn", "username",
+                                            "password", Arrays.asList(new SimpleGrantedAuthority("USER"))));
+        SecurityContext securityContext = Mockito.mock(SecurityContext.class);
+        Mockito.when(securityContext.getAuthentication())
+            .thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+
+        urn = persistenceService.create(tenantUrn, ThingCreate.builder()
+            .type(TYPE)
+            .build())
+            .get()
+            .getUrn();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        repository.deleteAll();
+        secondLevelCache.evictAll();
+    }
+
+    @Test
+    public void thatCacheIsEnabled() {
+
+        assertTrue(secondLevelCache.isEnabled());
+    }
+
+    @Test
+    public void thatRepeatedLookupIssuesNoStatement() {
+
+        persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn);
+
+        Statistics statistics = getStatistics();
+        Optional<ThingResponse> response = persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn);
+
+        assertTrue(response.isPresent());
+        assertEquals(urn, response.get()
+            .getUrn());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(secondLevelCache.getQueryStatistics()
+                       .getHitCount() > 0);
+    }
+
+    @Test
+    public void thatRepeatedCrossTenantLookupIssuesNoStatement() {
+
+        persistenceService.findByTypeAndUrn(null, TYPE, urn);
+
+        Statistics statistics = getStatistics();
+        Optional<ThingResponse> response = persistenceService.findByTypeAndUrn(null, TYPE, urn);
+
+        assertTrue(response.isPresent());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void thatUpdateIsVisible() {
+
+        persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn);
+
+        persistenceService.update(tenantUrn, TYPE, urn, ThingUpdate.builder()
+            .active(false)
+            .build());
+
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn)
+                        .get()
+                        .getActive());
+    }
+
+    @Test
+    public void thatBulkUpdateIsVisible() {
+
+        persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn);
+
+        persistenceService.updateAllOfType(tenantUrn, TYPE, ThingUpdate.builder()
+            .active(false)
+            .build());
+
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn)
+                        .get()
+                        .getActive());
+    }
+
+    @Test
+    public void thatDeleteIsVisible() {
+
+        persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn);
+
+        persistenceService.delete(tenantUrn, TYPE, urn);
+
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn)
+                        .isPresent());
+        assertFalse(secondLevelCache.contains(tenantId, TYPE, UuidUtil.getUuidFromUrn(urn)));
+    }
+
+    @Test
+    public void thatCreateKeepsCachedThings() {
+
+        UUID id = UuidUtil.getUuidFromUrn(urn);
+        assertTrue(repository.findByIdAndTenantIdAndType(id, tenantId, TYPE)
+                       .isPresent());
+        assertTrue(secondLevelCache.contains(tenantId, TYPE, id));
+
+        persistenceService.create(tenantUrn, ThingCreate.builder()
+            .type(TYPE)
+            .build());
+
+        assertTrue(secondLevelCache.contains(tenantId, TYPE, id));
+        Statistics statistics = getStatistics();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            assertNotNull(entityManager.find(ThingEntity.class, new ThingId(id, TYPE, tenantId)));
+        } finally {
+            entityManager.close();
+        }
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    public void thatCreateIsVisibleToCachedLookups() {
+
+        String newUrn = UuidUtil.getThingUrnFromUuid(UUID.randomUUID());
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, newUrn)
+                        .isPresent());
+
+        persistenceService.create(tenantUrn, ThingCreate.builder()
+            .urn(newUrn)
+            .type(TYPE)
+            .build());
+
+        assertTrue(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, newUrn)
+                       .isPresent());
+    }
+
+    private Statistics getStatistics() {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+            .getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        return statistics;
+    }
+}
@@ -0,0 +1,241 @@
+package net.smartcosmos.dao.things.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import javax.sql.DataSource;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import net.smartcosmos.dao.things.RecordingDataSourceConfig;
+import net.smartcosmos.dao.things.SqlStatementCounts;
+import net.smartcosmos.dao.things.ThingPersistenceConfig;
+import net.smartcosmos.dao.things.ThingsPersistenceTestApplication;
+import net.smartcosmos.dao.things.impl.ThingPersistenceService;
+import net.smartcosmos.dao.things.repository.ThingRepository;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.Page;
+import net.smartcosmos.dto.things.ThingCreate;
+import net.smartcosmos.dto.things.ThingResponse;
+import net.smartcosmos.security.user.SmartCosmosUser;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = { ThingsPersistenceTestApplication.class,
+                                            ThingPersistenceConfig.class,
+                                            RecordingDataSourceConfig.class })
+@ActiveProfiles("test")
+@WebAppConfiguration
+@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false",
+                   "smartcosmos.things.type-dictionary.enabled=true",
+                   "spring.datasource.url=jdbc:h2:mem:things-type-dictionary;DB_CLOSE_DELAY=-1" })
+public class ThingTypeDictionaryTest {
+
+    private static final String TYPE = "type";
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final String tenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+
+    @Autowired
+    ThingPersistenceService persistenceService;
+
+    @Autowired
+    ThingRepository repository;
+
+    @Autowired
+    ThingTypeDictionary dictionary;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Authentication authentication = Mockito.mock(Authentication.class);
+        Mockito.when(authentication.getPrincipal())
+            .thenReturn(new SmartCosmosUser(tenantUrn, "urn:userUrn", "username",
+                                            "password", Arrays.asList(new SimpleGrantedAuthority("USER"))));
+        SecurityContext securityContext = Mockito.mock(SecurityContext.class);
+        Mockito.when(securityContext.getAuthentication())
+            .thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        repository.deleteAll();
+    }
+
+    @Test
+    public void thatDictionaryIsEnabled() {
+
+        assertTrue(dictionary.isEnabled());
+    }
+
+    @Test
+    public void thatTypeIsStoredAsId() {
+
+        String urn = create(TYPE);
+
+        int id = dictionary.getId(TYPE);
+        Integer storedId = new JdbcTemplate(dataSource).queryForObject("SELECT type FROM thing", Integer.class);
+        assertEquals(id, storedId.intValue());
+
+        Optional<ThingResponse> response = persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn);
+        assertTrue(response.isPresent());
+        assertEquals(TYPE, response.get()
+            .getType());
+    }
+
+    @Test
+    public void thatTypesAreRegisteredOnce() {
+
+        create(TYPE);
+        create(TYPE);
+
+        assertEquals(dictionary.register(TYPE), dictionary.register(TYPE));
+        assertEquals(1, new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM thing_type WHERE name = ?", Integer.class, TYPE)
+            .intValue());
+    }
+
+    @Test
+    public void thatTypesAreSeparated() {
+
+        create(TYPE);
+        create("other type");
+
+        Page<ThingResponse> response = persistenceService.findByType(tenantUrn, TYPE);
+
+        assertEquals(1, response.getData()
+            .size());
+        assertNotEquals(dictionary.getId(TYPE), dictionary.getId("other type"));
+    }
+
+    @Test
+    public void thatLookupOfUnknownTypeDoesNotRegister() {
+
+        Page<ThingResponse> response = persistenceService.findByType(tenantUrn, "unknown type");
+
+        assertTrue(response.getData()
+                       .isEmpty());
+        assertNull(dictionary.getId("unknown type"));
+    }
+
+    @Test
+    public void thatNamesAreInterned() {
+
+        int id = dictionary.register(new String(new char[] { 't', 'y', 'p', 'e', 's' }));
+
+        assertSame("types", dictionary.getName(id));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void thatUnknownIdThrows() {
+
+        dictionary.getName(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void thatRegistrationIsRolledBackWithTransaction() {
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.execute(status -> {
+            int id = dictionary.register("rolled back type");
+            assertEquals(id, dictionary.getId("rolled back type")
+                .intValue());
+            assertEquals("rolled back type", dictionary.getName(id));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertNull(dictionary.getId("rolled back type"));
+        assertEquals(0, new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM thing_type WHERE name = ?", Integer.class,
+                                                                    "rolled back type")
+            .intValue());
+    }
+
+    @Test
+    public void thatRegistrationUsesTheConnectionOfTheTransaction() throws Exception {
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.execute(status -> {
+            dictionary.register("uncommitted type");
+
+            // a connection of its own does not see the registration before the commit
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM thing_type WHERE name = ?")) {
+                statement.setString(1, "uncommitted type");
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertTrue(resultSet.next());
+                    assertEquals(0, resultSet.getInt(1));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+
+        assertNotNull(dictionary.getId("uncommitted type"));
+    }
+
+    @Test
+    public void thatMissesAreCached() {
+
+        assertNull(dictionary.getId("missing type"));
+
+        // registered elsewhere, e.g. by another application instance
+        new JdbcTemplate(dataSource).update("INSERT INTO thing_type (name) VALUES (?)", "missing type");
+
+        assertNull(dictionary.getId("missing type"));
+        Integer id = new JdbcTemplate(dataSource).queryForObject("SELECT id FROM thing_type WHERE name = ?", Integer.class, "missing type");
+        assertEquals(id.intValue(), dictionary.register("missing type"));
+        assertEquals(id, dictionary.getId("missing type"));
+    }
+
+    @Test
+    public void thatCreateMatchesStatementBudget() {
+
+        // loads the dictionary, so that the budget does not depend on the order of the tests
+        dictionary.getId(TYPE);
+
+        // the lookup of the type, its registration and the locking read of its ID, and the insert of the Thing
+        SqlStatementCounts.count(() -> create("budget type"))
+            .assertCounts(2, 2, 0, 0);
+        // the registration is cached once it is committed
+        SqlStatementCounts.count(() -> create("budget type"))
+            .assertCounts(0, 1, 0, 0);
+    }
+
+    private String create(String type) {
+
+        return persistenceService.create(tenantUrn, ThingCreate.builder()
+            .type(type)
+            .build())
+            .get()
+            .getUrn();
+    }
+}
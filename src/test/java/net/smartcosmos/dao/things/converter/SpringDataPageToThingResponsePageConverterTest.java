@@ -10,6 +10,8 @@ import org.mockito.*;
 import org.mockito.runners.*;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 
 import net.smartcosmos.dao.things.domain.ThingEntity;
 import net.smartcosmos.dao.things.util.ThingPersistenceUtil;
@@ -28,6 +30,9 @@ public class SpringDataPageToThingResponsePageConverterTest {
     @Mock
     ConversionService conversionService;
 
+    @Spy
+    ThingResponseMapper mapper = new ThingResponseMapper();
+
     @InjectMocks
     SpringDataPageToThingResponsePageConverter converter;
 
@@ -84,4 +89,50 @@ public class SpringDataPageToThingResponsePageConverterTest {
         assertEquals(emptyPage, convertedPage);
     }
 
+    @Test
+    public void thatSliceWithNextHasUnknownTotals() {
+
+        List<ThingEntity> content = new ArrayList<>();
+        content.add(ThingEntity.builder()
+                        .id(UuidUtil.getNewUuid())
+                        .tenantId(UuidUtil.getNewUuid())
+                        .build());
+
+        Page<ThingResponse> convertedPage = converter.convert(new SliceImpl<>(content, new PageRequest(2, 1), true));
+
+        PageInformation page = convertedPage.getPage();
+        assertEquals(3, page.getNumber());
+        assertEquals(1, page.getSize());
+        assertEquals(ThingResponseMapper.UNKNOWN_TOTAL, page.getTotalPages());
+        assertEquals(ThingResponseMapper.UNKNOWN_TOTAL, page.getTotalElements());
+    }
+
+    @Test
+    public void thatLastSliceHasTotals() {
+
+        List<ThingEntity> content = new ArrayList<>();
+        content.add(ThingEntity.builder()
+                        .id(UuidUtil.getNewUuid())
+                        .tenantId(UuidUtil.getNewUuid())
+                        .build());
+
+        Page<ThingResponse> convertedPage = converter.convert(new SliceImpl<>(content, new PageRequest(2, 5), false));
+
+        PageInformation page = convertedPage.getPage();
+        assertEquals(3, page.getNumber());
+        assertEquals(1, page.getSize());
+        assertEquals(3, page.getTotalPages());
+        assertEquals(11, page.getTotalElements());
+    }
+
+    @Test
+    public void thatEmptySliceConversionSucceeds() {
+
+        List<ThingEntity> content = new ArrayList<>();
+
+        Page<ThingResponse> convertedPage = converter.convert(new SliceImpl<>(content, new PageRequest(0, 5), false));
+
+        assertEquals(ThingPersistenceUtil.emptyPage(), convertedPage);
+    }
+
 }
@@ -0,0 +1,124 @@
+package net.smartcosmos.dao.things.converter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.domain.ThingProjection;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.Page;
+import net.smartcosmos.dto.things.ThingResponse;
+
+import static org.junit.Assert.*;
+
+public class ThingResponseMapperTest {
+
+    private static final String TYPE = "type";
+
+    private final ThingResponseMapper mapper = new ThingResponseMapper();
+
+    @Test
+    public void thatEntitiesMap() {
+
+        ThingEntity entity = entity(UUID.randomUUID());
+
+        ThingResponse response = mapper.toResponse(entity);
+
+        assertEquals(UuidUtil.getThingUrnFromUuid(entity.getId()), response.getUrn());
+        assertEquals(TYPE, response.getType());
+        assertEquals(entity.getActive(), response.getActive());
+        assertEquals(UuidUtil.getTenantUrnFromUuid(entity.getTenantId()), response.getTenantUrn());
+    }
+
+    @Test
+    public void thatProjectionsMap() {
+
+        ThingProjection projection = new ThingProjection(UUID.randomUUID(), TYPE, UUID.randomUUID(), new Date(), new Date(), false);
+
+        ThingResponse response = mapper.toResponse(projection);
+
+        assertEquals(UuidUtil.getThingUrnFromUuid(projection.getId()), response.getUrn());
+        assertEquals(TYPE, response.getType());
+        assertFalse(response.getActive());
+        assertEquals(UuidUtil.getTenantUrnFromUuid(projection.getTenantId()), response.getTenantUrn());
+    }
+
+    @Test
+    public void thatConvertersMapLikeMapper() {
+
+        ThingEntity entity = entity(UUID.randomUUID());
+        ThingProjection projection = new ThingProjection(UUID.randomUUID(), TYPE, UUID.randomUUID(), new Date(), new Date(), false);
+
+        assertEquals(mapper.toResponse(entity), new ThingEntityToThingResponseConverter(mapper).convert(entity));
+        assertEquals(mapper.toResponse(projection), new ThingProjectionToThingResponseConverter(mapper).convert(projection));
+    }
+
+    @Test
+    public void thatNullMapsToNull() {
+
+        assertNull(mapper.toResponse(null));
+    }
+
+    @Test
+    public void thatListsOfSeveralTenantsKeepTheirTenants() {
+
+        UUID tenantId = UUID.randomUUID();
+        UUID otherTenantId = UUID.randomUUID();
+        List<ThingEntity> entities = Arrays.asList(entity(tenantId), entity(tenantId), entity(otherTenantId), entity(tenantId));
+
+        List<ThingResponse> responses = mapper.toResponses(entities);
+
+        assertEquals(entities.size(), responses.size());
+        for (int i = 0; i < entities.size(); i++) {
+            assertEquals(UuidUtil.getThingUrnFromUuid(entities.get(i)
+                                                          .getId()), responses.get(i)
+                             .getUrn());
+            assertEquals(UuidUtil.getTenantUrnFromUuid(entities.get(i)
+                                                           .getTenantId()), responses.get(i)
+                             .getTenantUrn());
+        }
+    }
+
+    @Test
+    public void thatEmptyListMapsToEmptyList() {
+
+        assertTrue(mapper.toResponses(Collections.<ThingEntity>emptyList())
+                       .isEmpty());
+    }
+
+    @Test
+    public void thatPagesKeepPageInformation() {
+
+        List<ThingEntity> entities = Arrays.asList(entity(UUID.randomUUID()), entity(UUID.randomUUID()));
+
+        Page<ThingResponse> page = mapper.toPage(new PageImpl<>(entities, new PageRequest(1, 2), 5));
+
+        assertEquals(2, page.getData()
+            .size());
+        assertEquals(2, page.getPage()
+            .getNumber());
+        assertEquals(2, page.getPage()
+            .getSize());
+        assertEquals(3, page.getPage()
+            .getTotalPages());
+        assertEquals(5, page.getPage()
+            .getTotalElements());
+    }
+
+    private static ThingEntity entity(UUID tenantId) {
+
+        return ThingEntity.builder()
+            .id(UuidUtil.getNewUuid())
+            .tenantId(tenantId)
+            .type(TYPE)
+            .active(true)
+            .build();
+    }
+}
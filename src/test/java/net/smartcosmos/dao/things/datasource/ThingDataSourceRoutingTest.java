@@ -0,0 +1,240 @@
+package net.smartcosmos.dao.things.datasource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import net.smartcosmos.dao.things.ThingPersistenceConfig;
+import net.smartcosmos.dao.things.ThingsPersistenceTestApplication;
+import net.smartcosmos.dao.things.impl.ThingAsyncPersistenceService;
+import net.smartcosmos.dao.things.impl.ThingIdChunkExecutor;
+import net.smartcosmos.dao.things.impl.ThingPersistenceService;
+import net.smartcosmos.dao.things.repository.ThingRepository;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.ThingCreate;
+import net.smartcosmos.dto.things.ThingResponse;
+import net.smartcosmos.security.user.SmartCosmosUser;
+
+import static org.junit.Assert.*;
+
+/**
+ * Uses two independent in-memory databases without replication, so that a Thing is only found if the lookup was routed to the primary.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = { ThingsPersistenceTestApplication.class,
+                                            ThingPersistenceConfig.class })
+@ActiveProfiles("test")
+@WebAppConfiguration
+@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false",
+                   "smartcosmos.things.datasource.routing.enabled=true",
+                   "smartcosmos.things.datasource.routing.sticky-millis=60000",
+                   "smartcosmos.things.find-by-ids.chunk-size=2",
+                   "spring.datasource.url=jdbc:h2:mem:things-primary;DB_CLOSE_DELAY=-1",
+                   "smartcosmos.things.datasource.replica.url=jdbc:h2:mem:things-replica;DB_CLOSE_DELAY=-1" })
+public class ThingDataSourceRoutingTest {
+
+    private static final String TYPE = "type";
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final String tenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+
+    @Autowired
+    ThingPersistenceService persistenceService;
+
+    @Autowired
+    ThingAsyncPersistenceService asyncPersistenceService;
+
+    @Autowired
+    ThingRepository repository;
+
+    @Autowired
+    ThingRoutingDataSource routingDataSource;
+
+    @Autowired
+    ThingIdChunkExecutor chunkExecutor;
+
+    @Autowired
+    @Qualifier("thingPrimaryDataSource")
+    DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("thingReplicaDataSource")
+    DataSource replicaDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Authentication authentication = Mockito.mock(Authentication.class);
+        Mockito.when(authentication.getPrincipal())
+            .thenReturn(new SmartCosmosUser(tenantUrn, "urn:userUrn", "username",
+                                            "password", Arrays.asList(new SimpleGrantedAuthority("USER"))));
+        SecurityContext securityContext = Mockito.mock(SecurityContext.class);
+        Mockito.when(securityContext.getAuthentication())
+            .thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+
+        // the schema is only generated in the primary database, the replica gets a copy of it
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("DROP ALL OBJECTS");
+        for (String statement : new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NODATA", String.class)) {
+            replica.execute(statement);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        ThingRoutingContext.clear();
+        repository.deleteAll();
+    }
+
+    @Test
+    public void thatWritesGoToPrimary() {
+
+        persistenceService.create(tenantUrn, ThingCreate.builder()
+            .type(TYPE)
+            .build());
+
+        assertEquals(1, count(primaryDataSource));
+        assertEquals(0, count(replicaDataSource));
+    }
+
+    @Test
+    public void thatReadsGoToReplica() {
+
+        String urn = create();
+        ThingRoutingContext.clear();
+        long replicaCount = routingDataSource.getReplicaCount();
+
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn)
+                        .isPresent());
+        assertTrue(routingDataSource.getReplicaCount() > replicaCount);
+    }
+
+    @Test
+    public void thatReadsStickToPrimaryAfterWrite() {
+
+        String urn = create();
+        long replicaCount = routingDataSource.getReplicaCount();
+
+        assertTrue(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn)
+                       .isPresent());
+        assertEquals(replicaCount, routingDataSource.getReplicaCount());
+    }
+
+    @Test
+    public void thatChunkQueriesStickToPrimaryAfterWrite() {
+
+        // more URNs than a chunk holds, so that chunks also run on the pool threads
+        List<String> urns = new ArrayList<>();
+        for (int i = 0; i < 2 * chunkExecutor.getChunkSize() + 1; i++) {
+            urns.add(create());
+        }
+        long replicaCount = routingDataSource.getReplicaCount();
+
+        assertEquals(urns.size(),
+                     persistenceService.findByTypeAndUrns(tenantUrn, TYPE, urns)
+                         .size());
+        assertEquals(replicaCount, routingDataSource.getReplicaCount());
+    }
+
+    @Test
+    public void thatUnsortedChunkResultsAreMergedInIdOrder() {
+
+        List<String> urns = new ArrayList<>();
+        for (int i = 0; i < 3 * chunkExecutor.getChunkSize() + 1; i++) {
+            urns.add(create());
+        }
+        Collections.shuffle(urns);
+
+        List<UUID> ids = new ArrayList<>();
+        for (ThingResponse response : persistenceService.findByTypeAndUrns(tenantUrn, TYPE, urns)) {
+            ids.add(UuidUtil.getUuidFromUrn(response.getUrn()));
+        }
+
+        // like the uuid-binary column, by unsigned bytes
+        List<UUID> expected = new ArrayList<>(ids);
+        expected.sort((a, b) -> {
+            int result = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+            return result != 0 ? result : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+        });
+        assertEquals(urns.size(), ids.size());
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    public void thatReadsStickToPrimaryAfterAsyncWrite() throws Exception {
+
+        String urn = asyncPersistenceService.create(tenantUrn, ThingCreate.builder()
+            .type(TYPE)
+            .build())
+            .get()
+            .get()
+            .getUrn();
+        long replicaCount = routingDataSource.getReplicaCount();
+
+        assertTrue(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn)
+                       .isPresent());
+        assertEquals(replicaCount, routingDataSource.getReplicaCount());
+    }
+
+    @Test
+    public void thatFilterEndsStickinessWithRequest() throws Exception {
+
+        List<String> urns = new ArrayList<>();
+        new ThingRoutingContextFilter().doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(),
+                                                 (request, response) -> urns.add(create()));
+        long replicaCount = routingDataSource.getReplicaCount();
+
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urns.get(0))
+                        .isPresent());
+        assertTrue(routingDataSource.getReplicaCount() > replicaCount);
+    }
+
+    @Test
+    public void thatOnPrimaryReadsFromPrimary() {
+
+        String urn = create();
+        ThingRoutingContext.clear();
+
+        assertTrue(ThingRoutingContext.onPrimary(() -> persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn))
+                       .isPresent());
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn)
+                        .isPresent());
+    }
+
+    private String create() {
+
+        return persistenceService.create(tenantUrn, ThingCreate.builder()
+            .type(TYPE)
+            .build())
+            .get()
+            .getUrn();
+    }
+
+    private static int count(DataSource dataSource) {
+
+        return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM thing", Integer.class);
+    }
+}
@@ -0,0 +1,161 @@
+package net.smartcosmos.dao.things.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class ThingAsyncExecutorTest {
+
+    private ThingAsyncExecutor executor;
+
+    @After
+    public void tearDown() {
+
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void thatTasksRunOnPoolThreads() throws Exception {
+
+        executor = new ThingAsyncExecutor(2, 4, false);
+
+        String threadName = executor.supply(() -> Thread.currentThread()
+            .getName())
+            .get(5, TimeUnit.SECONDS);
+
+        assertFalse(executor.isVirtual());
+        assertTrue(threadName.startsWith("things-async-"));
+    }
+
+    @Test
+    public void thatTasksBeyondBoundAreRejected() throws Exception {
+
+        executor = new ThingAsyncExecutor(1, 1, false);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> blocked = executor.supply(() -> await(release));
+        CompletableFuture<Boolean> rejected = executor.supply(() -> true);
+
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.get();
+            fail("Expected rejection");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        release.countDown();
+        assertTrue(blocked.get(5, TimeUnit.SECONDS));
+        assertTrue(executor.supply(() -> true)
+                       .get(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.getStats()
+            .getRejectedCount());
+    }
+
+    @Test
+    public void thatFailuresCompleteFuture() throws Exception {
+
+        executor = new ThingAsyncExecutor(1, 1, false);
+
+        CompletableFuture<Object> future = executor.supply(() -> {
+            throw new IllegalArgumentException("failed");
+        });
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertEquals(1, executor.getStats()
+            .getFailedCount());
+    }
+
+    @Test
+    public void thatStatsAreRecorded() throws Exception {
+
+        executor = new ThingAsyncExecutor(2, 8, false);
+
+        for (int i = 0; i < 5; i++) {
+            executor.supply(() -> true)
+                .get(5, TimeUnit.SECONDS);
+        }
+
+        ThingAsyncExecutor.ExecutorStats stats = executor.getStats();
+        assertEquals(5, stats.getSubmittedCount());
+        assertEquals(5, stats.getCompletedCount());
+        assertEquals(0, stats.getFailedCount());
+        assertEquals(0, stats.getPendingCount());
+        assertTrue(stats.getRunNanos() >= stats.getMaxRunNanos());
+    }
+
+    @Test
+    public void thatRunningTasksWithThreadPerTaskAreBoundedByPoolSize() throws Exception {
+
+        // a cached thread pool starts a thread per task, like virtual threads
+        executor = new ThingAsyncExecutor(2, 16, Executors.newCachedThreadPool());
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(executor.supply(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    return await(release);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }));
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getStats()
+                   .getRunningCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(executor.isVirtual());
+        assertEquals(2, executor.getStats()
+            .getRunningCount());
+        assertEquals(16, executor.getStats()
+            .getPendingCount());
+
+        release.countDown();
+        for (CompletableFuture<Boolean> future : futures) {
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, executor.getStats()
+            .getRunningCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatMaxPendingMustNotBeLessThanPoolSize() {
+
+        executor = new ThingAsyncExecutor(4, 2, false);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+            return false;
+        }
+    }
+}
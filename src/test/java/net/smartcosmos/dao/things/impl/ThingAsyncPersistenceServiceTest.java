@@ -0,0 +1,174 @@
+package net.smartcosmos.dao.things.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import net.smartcosmos.dao.things.ThingPersistenceConfig;
+import net.smartcosmos.dao.things.ThingsPersistenceTestApplication;
+import net.smartcosmos.dao.things.repository.ThingRepository;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.ThingCreate;
+import net.smartcosmos.dto.things.ThingResponse;
+import net.smartcosmos.dto.things.ThingUpdate;
+import net.smartcosmos.security.user.SmartCosmosUser;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = { ThingsPersistenceTestApplication.class,
+                                            ThingPersistenceConfig.class })
+@ActiveProfiles("test")
+@WebAppConfiguration
+@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false" })
+public class ThingAsyncPersistenceServiceTest {
+
+    private static final String TYPE = "type";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final String tenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+
+    @Autowired
+    ThingAsyncPersistenceService asyncPersistenceService;
+
+    @Autowired
+    ThingPersistenceService persistenceService;
+
+    @Autowired
+    ThingRepository repository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Authentication authentication = Mockito.mock(Authentication.class);
+        Mockito.when(authentication.getPrincipal())
+            .thenReturn(new SmartCosmosUser(tenantUrn, "urn:userUrn", "username",
+                                            "password", Arrays.asList(new SimpleGrantedAuthority("USER"))));
+        SecurityContext securityContext = Mockito.mock(SecurityContext.class);
+        Mockito.when(securityContext.getAuthentication())
+            .thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        repository.deleteAll();
+    }
+
+    @Test
+    public void thatCreateAndFindComplete() throws Exception {
+
+        Optional<ThingResponse> created = asyncPersistenceService.create(tenantUrn, ThingCreate.builder()
+            .type(TYPE)
+            .build())
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertTrue(created.isPresent());
+
+        Optional<ThingResponse> found = asyncPersistenceService.findByTypeAndUrn(tenantUrn, TYPE, created.get()
+            .getUrn())
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertTrue(found.isPresent());
+        assertEquals(created.get()
+                         .getUrn(), found.get()
+                         .getUrn());
+    }
+
+    @Test
+    public void thatFanOutCompletes() throws Exception {
+
+        List<String> urns = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            urns.add(persistenceService.create(tenantUrn, ThingCreate.builder()
+                .type(TYPE)
+                .build())
+                         .get()
+                         .getUrn());
+        }
+
+        List<CompletableFuture<Optional<ThingResponse>>> futures = new ArrayList<>();
+        for (String urn : urns) {
+            futures.add(asyncPersistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        for (int i = 0; i < urns.size(); i++) {
+            assertEquals(urns.get(i),
+                         futures.get(i)
+                             .get()
+                             .get()
+                             .getUrn());
+        }
+    }
+
+    @Test
+    public void thatUpdateAndDeleteComplete() throws Exception {
+
+        String urn = persistenceService.create(tenantUrn, ThingCreate.builder()
+            .type(TYPE)
+            .build())
+            .get()
+            .getUrn();
+
+        Optional<ThingResponse> updated = asyncPersistenceService.update(tenantUrn, TYPE, urn, ThingUpdate.builder()
+            .active(false)
+            .build())
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertFalse(updated.get()
+                        .getActive());
+
+        assertTrue(asyncPersistenceService.delete(tenantUrn, TYPE, urn)
+                       .get(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                       .isPresent());
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn)
+                        .isPresent());
+    }
+
+    @Test
+    public void thatOperationsRunInTransactionsOfWorkerThread() throws Exception {
+
+        // the caller's transaction is rolled back, but the create was committed by the worker thread
+        String urn = new TransactionTemplate(transactionManager).execute(status -> {
+            status.setRollbackOnly();
+            try {
+                return asyncPersistenceService.create(tenantUrn, ThingCreate.builder()
+                    .type(TYPE)
+                    .build())
+                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .get()
+                    .getUrn();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertTrue(persistenceService.findByTypeAndUrn(tenantUrn, TYPE, urn)
+                       .isPresent());
+    }
+}
@@ -0,0 +1,184 @@
+package net.smartcosmos.dao.things.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.*;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.Assert.*;
+
+public class ThingIdChunkExecutorTest {
+
+    private ThingIdChunkExecutor executor;
+
+    @Before
+    public void setUp() {
+
+        executor = new ThingIdChunkExecutor(4, 2);
+    }
+
+    @After
+    public void tearDown() {
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void thatChunkSizeIsPowerOfTwo() {
+
+        assertEquals(8, new ThingIdChunkExecutor(5, 1).getChunkSize());
+        assertEquals(512, new ThingIdChunkExecutor(512, 1).getChunkSize());
+        assertEquals(1, new ThingIdChunkExecutor(1, 1).getChunkSize());
+    }
+
+    @Test
+    public void thatChunksAreDeduplicatedAndPadded() {
+
+        List<UUID> ids = randomIds(7);
+        List<UUID> idsWithDuplicates = new ArrayList<>(ids);
+        idsWithDuplicates.addAll(ids.subList(0, 3));
+
+        List<List<UUID>> chunks = executor.getChunks(idsWithDuplicates);
+
+        assertEquals(2, chunks.size());
+        assertEquals(ids.subList(0, 4), chunks.get(0));
+        assertEquals(Arrays.asList(ids.get(4), ids.get(5), ids.get(6), ids.get(6)), chunks.get(1));
+    }
+
+    @Test
+    public void thatLastChunkIsPaddedToNextPowerOfTwo() {
+
+        List<List<UUID>> chunks = new ThingIdChunkExecutor(512, 1).getChunks(randomIds(600));
+
+        assertEquals(512, chunks.get(0)
+            .size());
+        assertEquals(128, chunks.get(1)
+            .size());
+    }
+
+    @Test
+    public void thatNoIdsGiveNoChunks() {
+
+        assertTrue(executor.getChunks(Collections.emptyList())
+                       .isEmpty());
+        assertTrue(executor.findAll(Collections.<UUID>emptyList(), chunk -> {
+            throw new AssertionError("No query expected");
+        }, Comparator.<UUID>naturalOrder())
+                       .isEmpty());
+    }
+
+    @Test
+    public void thatResultsAreMergedInOrder() {
+
+        List<UUID> ids = randomIds(50);
+
+        // like the database, every chunk returns the distinct matches in order
+        List<UUID> result = executor.findAll(ids, chunk -> chunk.stream()
+            .distinct()
+            .sorted()
+            .collect(Collectors.toList()), Comparator.naturalOrder());
+
+        List<UUID> expected = new ArrayList<>(ids);
+        Collections.sort(expected);
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void thatMergeKeepsListOrderForEqualElements() {
+
+        List<String> merged = ThingIdChunkExecutor.merge(Arrays.asList(Arrays.asList("a1", "b1"), Arrays.asList("a2", "c2"), Arrays.asList("b3")),
+                                                         Comparator.comparing((String value) -> value.charAt(0)));
+
+        assertEquals(Arrays.asList("a1", "a2", "b1", "b3", "c2"), merged);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void thatChunkFailuresArePropagated() {
+
+        executor.findAll(randomIds(10), chunk -> {
+            throw new IllegalStateException("failed");
+        }, Comparator.<UUID>naturalOrder());
+    }
+
+    @Test
+    public void thatParallelismIsCappedBelowPoolSize() {
+
+        assertEquals(4, ThingIdChunkExecutor.capParallelism(4, null));
+        assertEquals(4, ThingIdChunkExecutor.capParallelism(4, 10));
+        assertEquals(3, ThingIdChunkExecutor.capParallelism(4, 4));
+        assertEquals(0, ThingIdChunkExecutor.capParallelism(4, 1));
+        assertEquals(0, ThingIdChunkExecutor.capParallelism(0, null));
+        assertEquals(0, ThingIdChunkExecutor.capParallelism(0, 10));
+    }
+
+    @Test
+    public void thatConfiguredParallelismOfZeroRunsChunksOnCallingThread() {
+
+        ThingIdChunkExecutor sequentialExecutor = new ThingIdChunkExecutor(4, 0, null, Optional.empty());
+
+        assertEquals(0, sequentialExecutor.getParallelism());
+        sequentialExecutor.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatNegativeParallelismIsRejected() {
+
+        ThingIdChunkExecutor.capParallelism(-1, null);
+    }
+
+    @Test
+    public void thatChunksRunOnCallingThreadWithoutParallelism() {
+
+        ThingIdChunkExecutor sequentialExecutor = new ThingIdChunkExecutor(4, 0);
+        Thread caller = Thread.currentThread();
+
+        List<UUID> result = sequentialExecutor.findAll(randomIds(20), chunk -> {
+            assertSame(caller, Thread.currentThread());
+            return chunk.stream()
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        }, Comparator.naturalOrder());
+
+        assertEquals(20, result.size());
+        assertEquals(0, sequentialExecutor.getParallelism());
+        sequentialExecutor.shutdown();
+    }
+
+    @Test
+    public void thatChunksRunOnCallingThreadWithinTransaction() {
+
+        Thread caller = Thread.currentThread();
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            List<UUID> result = executor.findAll(randomIds(20), chunk -> {
+                assertSame(caller, Thread.currentThread());
+                return chunk.stream()
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toList());
+            }, Comparator.naturalOrder());
+
+            assertEquals(20, result.size());
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    private static List<UUID> randomIds(int count) {
+
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        return ids;
+    }
+}
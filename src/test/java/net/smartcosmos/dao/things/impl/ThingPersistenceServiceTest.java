@@ -3,17 +3,24 @@ package net.smartcosmos.dao.things.impl;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import javax.persistence.EntityManagerFactory;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.*;
 import org.junit.runner.RunWith;
 import org.mockito.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.convert.ConversionService;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -22,9 +29,15 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 
+import net.smartcosmos.dao.things.RecordingDataSourceConfig;
 import net.smartcosmos.dao.things.SortOrder;
+import net.smartcosmos.dao.things.SqlStatementCounts;
 import net.smartcosmos.dao.things.ThingPersistenceConfig;
 import net.smartcosmos.dao.things.ThingsPersistenceTestApplication;
+import net.smartcosmos.dao.things.cache.ThingCountRegistry;
+import net.smartcosmos.dao.things.cache.ThingIdFilterRegistry;
+import net.smartcosmos.dao.things.cache.ThingResponseCache;
+import net.smartcosmos.dao.things.converter.ThingResponseMapper;
 import net.smartcosmos.dao.things.domain.ThingEntity;
 import net.smartcosmos.dao.things.repository.ThingRepository;
 import net.smartcosmos.dao.things.util.UuidUtil;
@@ -39,7 +52,8 @@ import static org.junit.Assert.*;
 @SuppressWarnings("Duplicates")
 @RunWith(SpringJUnit4ClassRunner.class)
 @SpringApplicationConfiguration(classes = { ThingsPersistenceTestApplication.class,
-                                            ThingPersistenceConfig.class })
+                                            ThingPersistenceConfig.class,
+                                            RecordingDataSourceConfig.class })
 @ActiveProfiles("test")
 @WebAppConfiguration
 @IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false" })
@@ -70,6 +84,12 @@ public class ThingPersistenceServiceTest {
     @Autowired
     ThingRepository repository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ApplicationContext context;
+
     @Before
     public void setUp() throws Exception {
 
@@ -214,6 +234,212 @@ public class ThingPersistenceServiceTest {
         assertTrue(persistResponse2.isPresent());
     }
 
+    @Test
+    public void thatCreateIssuesSingleStatement() {
+
+        ThingCreate create = ThingCreate.builder()
+            .urn(URN_01)
+            .type(TYPE_ONE)
+            .build();
+
+        Statistics statistics = getStatistics();
+        assertTrue(persistenceService.create(tenantUrn, create)
+                       .isPresent());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        assertFalse(persistenceService.create(tenantUrn, create)
+                        .isPresent());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void thatCreateSavesStatementsComparedToCheckAndSave() {
+
+        // the former create() implementation: existence check, then save() which merges the entity with its assigned ID
+        Statistics statistics = getStatistics();
+        UUID id = UuidUtil.getUuidFromUrn(URN_01);
+        assertFalse(repository.findByIdAndTenantIdAndType(id, tenantUuid, TYPE_ONE)
+                        .isPresent());
+        repository.save(ThingEntity.builder()
+                            .id(id)
+                            .type(TYPE_ONE)
+                            .tenantId(tenantUuid)
+                            .build());
+        long checkAndSaveCount = statistics.getPrepareStatementCount();
+        assertTrue(checkAndSaveCount > 1);
+
+        statistics.clear();
+        ThingCreate create = ThingCreate.builder()
+            .urn(URN_02)
+            .type(TYPE_ONE)
+            .build();
+        assertTrue(persistenceService.create(tenantUrn, create)
+                       .isPresent());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void thatCreateAllCreatesAllThings() {
+
+        List<ThingCreate> creates = new ArrayList<>();
+        creates.add(ThingCreate.builder()
+                        .urn(URN_01)
+                        .type(TYPE_ONE)
+                        .build());
+        creates.add(ThingCreate.builder()
+                        .type(TYPE_ONE)
+                        .build());
+        creates.add(ThingCreate.builder()
+                        .urn(URN_01)
+                        .type(TYPE_TWO)
+                        .build());
+
+        List<ThingCreateResult> results = persistenceService.createAll(tenantUrn, creates);
+
+        assertEquals(3, results.size());
+        for (ThingCreateResult result : results) {
+            assertTrue(result.isCreated());
+            assertNotNull(result.getThing());
+            assertTrue(persistenceService.findByTypeAndUrn(tenantUrn,
+                                                           result.getThing()
+                                                               .getType(),
+                                                           result.getUrn())
+                           .isPresent());
+        }
+        assertEquals(URN_01,
+                     results.get(0)
+                         .getUrn());
+        assertEquals(tenantUrn,
+                     results.get(0)
+                         .getThing()
+                         .getTenantUrn());
+    }
+
+    @Test
+    public void thatCreateAllReportsDuplicates() {
+
+        ThingCreate create = ThingCreate.builder()
+            .urn(URN_01)
+            .type(TYPE_ONE)
+            .build();
+        assertTrue(persistenceService.create(tenantUrn, create)
+                       .isPresent());
+
+        List<ThingCreate> creates = new ArrayList<>();
+        creates.add(create);
+        creates.add(ThingCreate.builder()
+                        .urn(URN_02)
+                        .type(TYPE_ONE)
+                        .build());
+        creates.add(ThingCreate.builder()
+                        .urn(URN_02)
+                        .type(TYPE_ONE)
+                        .build());
+
+        List<ThingCreateResult> results = persistenceService.createAll(tenantUrn, creates);
+
+        assertEquals(3, results.size());
+        assertEquals(ThingCreateResult.Status.DUPLICATE,
+                     results.get(0)
+                         .getStatus());
+        assertEquals(URN_01,
+                     results.get(0)
+                         .getUrn());
+        assertNull(results.get(0)
+                       .getThing());
+        assertEquals(ThingCreateResult.Status.CREATED,
+                     results.get(1)
+                         .getStatus());
+        assertEquals(ThingCreateResult.Status.DUPLICATE,
+                     results.get(2)
+                         .getStatus());
+
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    public void thatCreateAllReportsDuplicatesAcrossChunks() {
+
+        // more than two chunks of the default size
+        List<ThingCreate> creates = new ArrayList<>();
+        for (int i = 0; i < 1100; i++) {
+            creates.add(ThingCreate.builder()
+                            .urn(UuidUtil.getThingUrnFromUuid(UUID.randomUUID()))
+                            .type(TYPE_ONE)
+                            .build());
+        }
+        persistenceService.createAll(tenantUrn, creates);
+
+        List<ThingCreate> recreates = new ArrayList<>(creates);
+        recreates.add(ThingCreate.builder()
+                          .urn(UuidUtil.getThingUrnFromUuid(UUID.randomUUID()))
+                          .type(TYPE_ONE)
+                          .build());
+
+        List<ThingCreateResult> results = persistenceService.createAll(tenantUrn, recreates);
+
+        assertEquals(1100,
+                     results.stream()
+                         .filter(result -> result.getStatus() == ThingCreateResult.Status.DUPLICATE)
+                         .count());
+        assertEquals(ThingCreateResult.Status.CREATED,
+                     results.get(1100)
+                         .getStatus());
+        assertEquals(1101, repository.count());
+    }
+
+    @Test
+    public void thatCreateAllReportsDuplicatesTheIdFilterMissed() {
+
+        // an ID filter that doesn't know the Thing, like on a node that didn't create it
+        ThingIdFilterRegistry idFilter = Mockito.mock(ThingIdFilterRegistry.class);
+        ThingPersistenceService service = new ThingPersistenceService(repository,
+                                                                      context.getBean(ConversionService.class),
+                                                                      context.getBean(ThingCountRegistry.class),
+                                                                      context.getBean(ThingResponseCache.class),
+                                                                      idFilter,
+                                                                      context.getBean(ThingIdChunkExecutor.class),
+                                                                      context.getBean(ThingResponseMapper.class));
+
+        ThingCreate create = ThingCreate.builder()
+            .urn(URN_01)
+            .type(TYPE_ONE)
+            .build();
+        assertTrue(persistenceService.create(tenantUrn, create)
+                       .isPresent());
+
+        List<ThingCreate> creates = new ArrayList<>();
+        creates.add(ThingCreate.builder()
+                        .urn(URN_02)
+                        .type(TYPE_ONE)
+                        .build());
+        creates.add(create);
+        creates.add(ThingCreate.builder()
+                        .type(TYPE_ONE)
+                        .build());
+
+        List<ThingCreateResult> results = service.createAll(tenantUrn, creates);
+
+        assertEquals(3, results.size());
+        assertEquals(ThingCreateResult.Status.CREATED,
+                     results.get(0)
+                         .getStatus());
+        assertEquals(ThingCreateResult.Status.DUPLICATE,
+                     results.get(1)
+                         .getStatus());
+        assertEquals(URN_01,
+                     results.get(1)
+                         .getUrn());
+        assertEquals(ThingCreateResult.Status.CREATED,
+                     results.get(2)
+                         .getStatus());
+
+        assertEquals(3, repository.count());
+        Mockito.verify(idFilter, Mockito.never())
+            .add(tenantUuid, TYPE_ONE, UuidUtil.getUuidFromUrn(URN_01));
+    }
+
     // endregion
 
     // region Update
@@ -276,6 +502,74 @@ public class ThingPersistenceServiceTest {
         persistenceService.update(tenantUrn, "NO SUCH TYPE", "URN:DOES-NOT-EXIST", update);
     }
 
+    @Test
+    public void thatUpdateAllUpdatesGivenThings() throws Exception {
+
+        populateData();
+
+        ThingUpdate update = ThingUpdate.builder()
+            .active(false)
+            .build();
+
+        int updateCount = persistenceService.updateAll(tenantUrn, WHATEVER, Arrays.asList(URN_07, URN_08, URN_01, "no URN"), update);
+
+        assertEquals(2, updateCount);
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, WHATEVER, URN_07)
+                        .get()
+                        .getActive());
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, WHATEVER, URN_08)
+                        .get()
+                        .getActive());
+        assertTrue(persistenceService.findByTypeAndUrn(tenantUrn, WHATEVER, URN_09)
+                       .get()
+                       .getActive());
+        assertTrue(persistenceService.findByTypeAndUrn(tenantUrn, TYPE_ONE, URN_01)
+                       .get()
+                       .getActive());
+    }
+
+    @Test
+    public void thatUpdateAllOfTypeUpdatesAllThingsOfType() throws Exception {
+
+        populateData();
+
+        ThingUpdate update = ThingUpdate.builder()
+            .active(false)
+            .build();
+
+        int updateCount = persistenceService.updateAllOfType(tenantUrn, TYPE_TWO, update);
+
+        assertEquals(3, updateCount);
+        for (ThingResponse response : persistenceService.findByType(tenantUrn, TYPE_TWO)
+            .getData()) {
+            assertFalse(response.getActive());
+        }
+        for (ThingResponse response : persistenceService.findByType(tenantUrn, TYPE_ONE)
+            .getData()) {
+            assertTrue(response.getActive());
+        }
+    }
+
+    @Test
+    public void thatUpdateAllOfTypeSetsLastModified() throws Exception {
+
+        populateData();
+        Date lastModified = repository.findByIdAndTenantIdAndType(UuidUtil.getUuidFromUrn(URN_04), tenantUuid, TYPE_TWO)
+            .get()
+            .getLastModified();
+        Thread.sleep(10);
+
+        ThingUpdate update = ThingUpdate.builder()
+            .active(false)
+            .build();
+        persistenceService.updateAllOfType(tenantUrn, TYPE_TWO, update);
+
+        assertTrue(repository.findByIdAndTenantIdAndType(UuidUtil.getUuidFromUrn(URN_04), tenantUuid, TYPE_TWO)
+                       .get()
+                       .getLastModified()
+                       .after(lastModified));
+    }
+
     // endregion
 
     // region Delete
@@ -310,6 +604,77 @@ public class ThingPersistenceServiceTest {
                                                  .getUrn()));
     }
 
+    @Test
+    public void thatDeleteIssuesTwoStatements() throws Exception {
+
+        populateData();
+
+        Statistics statistics = getStatistics();
+        assertTrue(persistenceService.delete(tenantUrn, TYPE_ONE, URN_01)
+                       .isPresent());
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, TYPE_ONE, URN_01)
+                        .isPresent());
+    }
+
+    @Test
+    public void thatDeleteNonexistentReturnsEmpty() throws Exception {
+
+        populateData();
+
+        assertFalse(persistenceService.delete(tenantUrn, TYPE_TWO, URN_01)
+                        .isPresent());
+        assertEquals(12, repository.count());
+    }
+
+    @Test
+    public void thatDeleteAllDeletesGivenThings() throws Exception {
+
+        populateData();
+
+        Statistics statistics = getStatistics();
+        int deleteCount = persistenceService.deleteAll(tenantUrn, WHATEVER, Arrays.asList(URN_07, URN_08, URN_01, "no URN"));
+
+        assertEquals(2, deleteCount);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(10, repository.count());
+        assertFalse(persistenceService.findByTypeAndUrn(tenantUrn, WHATEVER, URN_07)
+                        .isPresent());
+        assertTrue(persistenceService.findByTypeAndUrn(tenantUrn, TYPE_ONE, URN_01)
+                       .isPresent());
+    }
+
+    @Test
+    public void thatDeleteAllAndReturnReturnsDeletedThings() throws Exception {
+
+        populateData();
+
+        List<ThingResponse> deleted = persistenceService.deleteAllAndReturn(tenantUrn, WHATEVER, Arrays.asList(URN_07, URN_08, URN_01));
+
+        assertEquals(2, deleted.size());
+        for (ThingResponse response : deleted) {
+            assertEquals(WHATEVER, response.getType());
+            assertTrue(Arrays.asList(URN_07, URN_08)
+                           .contains(response.getUrn()));
+        }
+        assertEquals(10, repository.count());
+    }
+
+    @Test
+    public void thatDeleteAllOfTypeDeletesAllThingsOfType() throws Exception {
+
+        populateData();
+
+        int deleteCount = persistenceService.deleteAllOfType(tenantUrn, WHATEVER);
+
+        assertEquals(6, deleteCount);
+        assertTrue(persistenceService.findByType(tenantUrn, WHATEVER)
+                       .getData()
+                       .isEmpty());
+        assertEquals(6, repository.count());
+    }
+
     // endregion
 
     // region Find By Type and URN
@@ -412,6 +777,79 @@ public class ThingPersistenceServiceTest {
                          .getNumber());
     }
 
+    @Test
+    public void thatFindByTypeWithoutTotalsSkipsCount() throws Exception {
+
+        populateData();
+
+        Statistics statistics = getStatistics();
+        Page<ThingResponse> page1 = persistenceService.findByTypeWithoutTotals(tenantUrn, WHATEVER, 1, 4, SortOrder.ASC, "urn");
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(4,
+                     page1.getData()
+                         .size());
+        assertEquals(1,
+                     page1.getPage()
+                         .getNumber());
+        assertEquals(-1,
+                     page1.getPage()
+                         .getTotalElements());
+        assertEquals(-1,
+                     page1.getPage()
+                         .getTotalPages());
+
+        Page<ThingResponse> page2 = persistenceService.findByTypeWithoutTotals(tenantUrn, WHATEVER, 2, 4, SortOrder.ASC, "urn");
+
+        assertEquals(2,
+                     page2.getData()
+                         .size());
+        assertEquals(2,
+                     page2.getPage()
+                         .getNumber());
+        assertEquals(6,
+                     page2.getPage()
+                         .getTotalElements());
+        assertEquals(2,
+                     page2.getPage()
+                         .getTotalPages());
+    }
+
+    @Test
+    public void thatFindByTypeAfterWalksAllPages() throws Exception {
+
+        populateData();
+
+        KeysetPage<ThingResponse> page1 = persistenceService.findByTypeAfter(tenantUrn, WHATEVER, null, 4, SortOrder.ASC, "urn");
+
+        assertEquals(4, page1.getSize());
+        assertTrue(page1.hasNext());
+
+        KeysetPage<ThingResponse> page2 = persistenceService.findByTypeAfter(tenantUrn, WHATEVER, page1.getContinuationToken(), 4, null, null);
+
+        assertEquals(2, page2.getSize());
+        assertFalse(page2.hasNext());
+
+        List<String> urns = new ArrayList<>();
+        page1.getData()
+            .forEach(thing -> urns.add(thing.getUrn()));
+        page2.getData()
+            .forEach(thing -> urns.add(thing.getUrn()));
+
+        List<String> expectedUrns = persistenceService.findByType(tenantUrn, WHATEVER, SortOrder.ASC, "urn")
+            .getData()
+            .stream()
+            .map(ThingResponse::getUrn)
+            .collect(Collectors.toList());
+        assertEquals(expectedUrns, urns);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void thatFindByTypeAfterInvalidTokenFails() throws Exception {
+
+        persistenceService.findByTypeAfter(tenantUrn, WHATEVER, "no-token", 4, null, null);
+    }
+
     // endregion
 
     // region Find by URNs
@@ -624,6 +1062,45 @@ public class ThingPersistenceServiceTest {
         assertTrue("Expected " + expectedDataSize + " matches, but received " + actualDataSize, actualDataSize == expectedDataSize);
     }
 
+    @Test
+    public void thatFindByUrnsMergesChunksInOrder() throws Exception {
+
+        // more than two chunks of the default size
+        List<ThingCreate> creates = new ArrayList<>();
+        for (int i = 0; i < 1100; i++) {
+            creates.add(ThingCreate.builder()
+                            .urn(UuidUtil.getThingUrnFromUuid(UUID.randomUUID()))
+                            .type(TYPE_ONE)
+                            .active(i % 2 == 0)
+                            .build());
+        }
+        persistenceService.createAll(tenantUrn, creates);
+
+        List<String> urns = creates.stream()
+            .map(ThingCreate::getUrn)
+            .collect(Collectors.toList());
+        // duplicates are returned once
+        urns.addAll(urns.subList(0, 10));
+
+        List<ThingResponse> response = persistenceService.findByTypeAndUrns(tenantUrn, TYPE_ONE, urns, SortOrder.DESC, "urn");
+
+        List<String> expectedUrns = creates.stream()
+            .map(ThingCreate::getUrn)
+            .sorted(Comparator.reverseOrder())
+            .collect(Collectors.toList());
+        assertEquals(expectedUrns, response.stream()
+            .map(ThingResponse::getUrn)
+            .collect(Collectors.toList()));
+
+        response = persistenceService.findByTypeAndUrns(tenantUrn, TYPE_ONE, urns, SortOrder.ASC, "active");
+
+        assertEquals(1100, response.size());
+        assertFalse(response.get(549)
+                        .getActive());
+        assertTrue(response.get(550)
+                       .getActive());
+    }
+
     // endregion
 
     // region Find All
@@ -865,10 +1342,304 @@ public class ThingPersistenceServiceTest {
                          .getType());
     }
 
+    @Test
+    public void thatFindAllWithoutTotalsReturnsPage() throws Exception {
+
+        populateData();
+
+        Page<ThingResponse> response = persistenceService.findAllWithoutTotals(tenantUrn, 1, 5, SortOrder.ASC, "type");
+
+        assertEquals(5,
+                     response.getData()
+                         .size());
+        assertEquals(TYPE_ONE,
+                     response.getData()
+                         .get(0)
+                         .getType());
+        assertEquals(-1,
+                     response.getPage()
+                         .getTotalElements());
+    }
+
+    @Test
+    public void thatFindAllAfterWalksAllPagesWithTies() throws Exception {
+
+        populateData();
+
+        List<ThingResponse> things = new ArrayList<>();
+        String continuationToken = null;
+        int pageCount = 0;
+        do {
+            KeysetPage<ThingResponse> page = persistenceService.findAllAfter(tenantUrn, continuationToken, 5, SortOrder.DESC, "type");
+            things.addAll(page.getData());
+            continuationToken = page.getContinuationToken();
+            pageCount++;
+        } while (continuationToken != null);
+
+        assertEquals(3, pageCount);
+        assertEquals(12, things.size());
+        assertEquals(12,
+                     things.stream()
+                         .map(ThingResponse::getUrn)
+                         .distinct()
+                         .count());
+        assertEquals(WHATEVER,
+                     things.get(0)
+                         .getType());
+        assertEquals(TYPE_ONE,
+                     things.get(11)
+                         .getType());
+    }
+
+    // endregion
+
+    // region Stream
+
+    @Test
+    public void thatStreamByTypeReadsAllThingsOfType() throws Exception {
+
+        populateData();
+
+        List<ThingResponse> things = new ArrayList<>();
+        long count = persistenceService.streamByType(tenantUrn, WHATEVER, things::add);
+
+        assertEquals(6, count);
+        assertEquals(6, things.size());
+        for (ThingResponse thing : things) {
+            assertEquals(WHATEVER, thing.getType());
+            assertEquals(tenantUrn, thing.getTenantUrn());
+        }
+    }
+
+    @Test
+    public void thatStreamAllReadsAllThingsOfTenant() throws Exception {
+
+        populateData();
+        persistenceService.create(UuidUtil.getTenantUrnFromUuid(UUID.randomUUID()), ThingCreate.builder()
+            .type(WHATEVER)
+            .build());
+
+        List<ThingResponse> things = new ArrayList<>();
+        long count = persistenceService.streamAll(tenantUrn, things::add);
+
+        assertEquals(12, count);
+        assertEquals(12,
+                     things.stream()
+                         .map(ThingResponse::getUrn)
+                         .distinct()
+                         .count());
+    }
+
+    @Test
+    public void thatStreamAllReadsMoreThingsThanFetchSize() throws Exception {
+
+        List<ThingCreate> creates = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            creates.add(ThingCreate.builder()
+                            .type(TYPE_ONE)
+                            .build());
+        }
+        persistenceService.createAll(tenantUrn, creates);
+
+        long count = persistenceService.streamAll(tenantUrn, thing -> assertNotNull(thing.getUrn()));
+
+        assertEquals(2500, count);
+    }
+
+    @Test
+    public void thatStreamOfUnknownTypeIsEmpty() throws Exception {
+
+        populateData();
+
+        assertEquals(0, persistenceService.streamByType(tenantUrn, "no such type", thing -> fail()));
+    }
+
+    // endregion
+
+    // region Statement Budgets
+
+    @Test
+    public void thatCreateMatchesStatementBudget() {
+
+        ThingCreate create = ThingCreate.builder()
+            .urn(URN_01)
+            .type(TYPE_ONE)
+            .build();
+
+        SqlStatementCounts.count(() -> persistenceService.create(tenantUrn, create))
+            .assertCounts(0, 1, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.create(tenantUrn, create))
+            .assertCounts(0, 1, 0, 0);
+    }
+
+    @Test
+    public void thatCreateAllMatchesStatementBudget() {
+
+        List<ThingCreate> creates = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            creates.add(ThingCreate.builder()
+                            .type(TYPE_ONE)
+                            .build());
+        }
+
+        // one batched INSERT per flush of 50 Things
+        SqlStatementCounts.count(() -> persistenceService.createAll(tenantUrn, creates))
+            .assertCounts(0, 3, 0, 0);
+
+        List<ThingCreate> createsWithUrns = Arrays.asList(ThingCreate.builder()
+                                                              .urn(URN_01)
+                                                              .type(TYPE_ONE)
+                                                              .build(),
+                                                          ThingCreate.builder()
+                                                              .urn(URN_02)
+                                                              .type(TYPE_ONE)
+                                                              .build());
+
+        // client-supplied URNs are checked for duplicates with a single query
+        SqlStatementCounts.count(() -> persistenceService.createAll(tenantUrn, createsWithUrns))
+            .assertCounts(1, 1, 0, 0);
+    }
+
+    @Test
+    public void thatUpdateMatchesStatementBudget() throws Exception {
+
+        populateData();
+        ThingUpdate update = ThingUpdate.builder()
+            .active(false)
+            .build();
+
+        // the lookup, and the merge of the detached entity on save()
+        SqlStatementCounts.count(() -> persistenceService.update(tenantUrn, TYPE_ONE, URN_01, update))
+            .assertCounts(2, 0, 1, 0);
+        SqlStatementCounts.count(() -> persistenceService.update(tenantUrn, TYPE_ONE, URN_12, update))
+            .assertCounts(1, 0, 0, 0);
+    }
+
+    @Test
+    public void thatBulkUpdatesMatchStatementBudget() throws Exception {
+
+        populateData();
+        ThingUpdate update = ThingUpdate.builder()
+            .active(false)
+            .build();
+
+        SqlStatementCounts.count(() -> persistenceService.updateAll(tenantUrn, WHATEVER, Arrays.asList(URN_07, URN_08, URN_09), update))
+            .assertCounts(0, 0, 1, 0);
+        SqlStatementCounts.count(() -> persistenceService.updateAllOfType(tenantUrn, WHATEVER, update))
+            .assertCounts(0, 0, 1, 0);
+    }
+
+    @Test
+    public void thatDeleteMatchesStatementBudget() throws Exception {
+
+        populateData();
+
+        SqlStatementCounts.count(() -> persistenceService.delete(tenantUrn, TYPE_ONE, URN_01))
+            .assertCounts(1, 0, 0, 1);
+        SqlStatementCounts.count(() -> persistenceService.delete(tenantUrn, TYPE_ONE, URN_01))
+            .assertCounts(1, 0, 0, 0);
+    }
+
+    @Test
+    public void thatBulkDeletesMatchStatementBudget() throws Exception {
+
+        populateData();
+
+        SqlStatementCounts.count(() -> persistenceService.deleteAll(tenantUrn, WHATEVER, Arrays.asList(URN_07, URN_08)))
+            .assertCounts(0, 0, 0, 1);
+        SqlStatementCounts.count(() -> persistenceService.deleteAllAndReturn(tenantUrn, WHATEVER, Arrays.asList(URN_09, URN_10)))
+            .assertCounts(1, 0, 0, 1);
+        SqlStatementCounts.count(() -> persistenceService.deleteAllOfType(tenantUrn, WHATEVER))
+            .assertCounts(0, 0, 0, 1);
+    }
+
+    @Test
+    public void thatFindByTypeMatchesStatementBudget() throws Exception {
+
+        populateData();
+
+        // a page with totals needs the content and the count query
+        SqlStatementCounts.count(() -> persistenceService.findByType(tenantUrn, WHATEVER))
+            .assertCounts(2, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findByType(tenantUrn, WHATEVER, SortOrder.DESC, "urn"))
+            .assertCounts(2, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findByType(tenantUrn, WHATEVER, 2, 4))
+            .assertCounts(2, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findByType(tenantUrn, WHATEVER, 2, 4, SortOrder.ASC, "type"))
+            .assertCounts(2, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findByTypeWithoutTotals(tenantUrn, WHATEVER, 2, 4, SortOrder.ASC, "urn"))
+            .assertCounts(1, 0, 0, 0);
+    }
+
+    @Test
+    public void thatFindByTypeAfterMatchesStatementBudget() throws Exception {
+
+        populateData();
+
+        KeysetPage<ThingResponse> page1 = persistenceService.findByTypeAfter(tenantUrn, WHATEVER, null, 4, SortOrder.ASC, "urn");
+
+        SqlStatementCounts.count(() -> persistenceService.findByTypeAfter(tenantUrn, WHATEVER, null, 4, SortOrder.ASC, "urn"))
+            .assertCounts(1, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findByTypeAfter(tenantUrn, WHATEVER, page1.getContinuationToken(), 4, null, null))
+            .assertCounts(1, 0, 0, 0);
+    }
+
+    @Test
+    public void thatFindByUrnsMatchesStatementBudget() throws Exception {
+
+        populateData();
+
+        SqlStatementCounts.count(() -> persistenceService.findByTypeAndUrn(tenantUrn, WHATEVER, URN_07))
+            .assertCounts(1, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findByTypeAndUrns(tenantUrn, WHATEVER, Arrays.asList(URN_07, URN_08, URN_09, URN_10)))
+            .assertCounts(1, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findByTypeAndUrns(tenantUrn, WHATEVER, Arrays.asList(URN_07, URN_08), SortOrder.DESC, "urn"))
+            .assertCounts(1, 0, 0, 0);
+    }
+
+    @Test
+    public void thatFindAllMatchesStatementBudget() throws Exception {
+
+        populateData();
+
+        SqlStatementCounts.count(() -> persistenceService.findAll(tenantUrn))
+            .assertCounts(2, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findAll(tenantUrn, SortOrder.DESC, "type"))
+            .assertCounts(2, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findAll(tenantUrn, 2, 5))
+            .assertCounts(2, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findAll(tenantUrn, 2, 5, SortOrder.ASC, "urn"))
+            .assertCounts(2, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findAllWithoutTotals(tenantUrn, 2, 5, SortOrder.ASC, "urn"))
+            .assertCounts(1, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.findAllAfter(tenantUrn, null, 5, SortOrder.DESC, "type"))
+            .assertCounts(1, 0, 0, 0);
+    }
+
+    @Test
+    public void thatStreamsMatchStatementBudget() throws Exception {
+
+        populateData();
+
+        SqlStatementCounts.count(() -> persistenceService.streamByType(tenantUrn, WHATEVER, thing -> assertNotNull(thing.getUrn())))
+            .assertCounts(1, 0, 0, 0);
+        SqlStatementCounts.count(() -> persistenceService.streamAll(tenantUrn, thing -> assertNotNull(thing.getUrn())))
+            .assertCounts(1, 0, 0, 0);
+    }
+
     // endregion
 
     // region Helper Methods
 
+    private Statistics getStatistics() {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+            .getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
     private void populateData() throws Exception {
 
         ThingEntity entityNameOneTypeOne = ThingEntity.builder()
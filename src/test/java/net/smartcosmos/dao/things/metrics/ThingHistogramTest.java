@@ -0,0 +1,84 @@
+package net.smartcosmos.dao.things.metrics;
+
+import java.util.Random;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class ThingHistogramTest {
+
+    @Test
+    public void thatBucketsContainTheirValues() {
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int index = ThingHistogram.index(value);
+
+            assertTrue(ThingHistogram.lowerBound(index) <= value);
+            assertTrue(ThingHistogram.upperBound(index) >= value);
+        }
+        assertEquals(Long.MAX_VALUE, ThingHistogram.upperBound(ThingHistogram.index(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void thatBucketsAreContiguous() {
+
+        for (int index = 0; index < ThingHistogram.index(Long.MAX_VALUE); index++) {
+            assertEquals(ThingHistogram.upperBound(index) + 1, ThingHistogram.lowerBound(index + 1));
+        }
+    }
+
+    @Test
+    public void thatSmallValuesAreExact() {
+
+        ThingHistogram histogram = new ThingHistogram();
+        for (int value = 0; value < 5; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(2, histogram.getValueAtPercentile(0.5));
+        assertEquals(4, histogram.getValueAtPercentile(1));
+        assertEquals(5, histogram.getCount());
+        assertEquals(10, histogram.getSum());
+    }
+
+    @Test
+    public void thatPercentilesAreWithinRelativeError() {
+
+        ThingHistogram histogram = new ThingHistogram();
+        for (long value = 1; value <= 100000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertWithinRelativeError(50000000, histogram.getValueAtPercentile(0.5));
+        assertWithinRelativeError(99000000, histogram.getValueAtPercentile(0.99));
+        assertWithinRelativeError(99900000, histogram.getValueAtPercentile(0.999));
+        assertEquals(100000000, histogram.getMax());
+    }
+
+    @Test
+    public void thatNegativeValuesAreRecordedAsZero() {
+
+        ThingHistogram histogram = new ThingHistogram();
+        histogram.record(-1);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(1));
+    }
+
+    @Test
+    public void thatEmptyHistogramReportsZero() {
+
+        ThingHistogram histogram = new ThingHistogram();
+
+        assertEquals(0, histogram.getValueAtPercentile(0.99));
+        assertEquals(0, histogram.getMax());
+    }
+
+    private static void assertWithinRelativeError(long expected, long actual) {
+
+        assertTrue(String.format("%d is not within 1/8 of %d", actual, expected), Math.abs(actual - expected) <= expected / 8);
+    }
+}
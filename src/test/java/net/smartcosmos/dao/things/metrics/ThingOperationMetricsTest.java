@@ -0,0 +1,177 @@
+package net.smartcosmos.dao.things.metrics;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.mockito.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import net.smartcosmos.dao.things.ThingPersistenceConfig;
+import net.smartcosmos.dao.things.ThingsPersistenceTestApplication;
+import net.smartcosmos.dao.things.impl.ThingPersistenceService;
+import net.smartcosmos.dao.things.repository.ThingRepository;
+import net.smartcosmos.dao.things.util.UuidUtil;
+import net.smartcosmos.dto.things.ThingCreate;
+import net.smartcosmos.security.user.SmartCosmosUser;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = { ThingsPersistenceTestApplication.class,
+                                            ThingPersistenceConfig.class })
+@ActiveProfiles("test")
+@WebAppConfiguration
+@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false",
+                   "smartcosmos.things.metrics.enabled=true",
+                   "smartcosmos.things.metrics.per-tenant=true" })
+public class ThingOperationMetricsTest {
+
+    private static final String TYPE = "type";
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final String tenantUrn = UuidUtil.getTenantUrnFromUuid(tenantId);
+
+    @Autowired
+    ThingPersistenceService persistenceService;
+
+    @Autowired
+    ThingRepository repository;
+
+    @Autowired
+    ThingOperationMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Authentication authentication = Mockito.mock(Authentication.class);
+        Mockito.when(authentication.getPrincipal())
+            .thenReturn(new SmartCosmosUser(tenantUrn, "urn:userUrn", "username",
+                                            "password", Arrays.asList(new SimpleGrantedAuthority("USER"))));
+        SecurityContext securityContext = Mockito.mock(SecurityContext.class);
+        Mockito.when(securityContext.getAuthentication())
+            .thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        repository.deleteAll();
+    }
+
+    @Test
+    public void thatOperationsAreTimed() {
+
+        long createCount = getOperationStats("create").getCount();
+
+        persistenceService.create(tenantUrn, ThingCreate.builder()
+            .type(TYPE)
+            .build());
+
+        ThingOperationMetrics.OperationStats stats = getOperationStats("create");
+        assertEquals(createCount + 1, stats.getCount());
+        assertTrue(stats.getMaxNanos() > 0);
+        assertTrue(stats.getP99Nanos() > 0);
+    }
+
+    @Test
+    public void thatRowsAreRecorded() {
+
+        for (int i = 0; i < 3; i++) {
+            persistenceService.create(tenantUrn, ThingCreate.builder()
+                .type(TYPE)
+                .build());
+        }
+        long rows = getOperationStats("findByType").getTotalRows();
+
+        persistenceService.findByType(tenantUrn, TYPE);
+
+        assertEquals(rows + 3, getOperationStats("findByType").getTotalRows());
+    }
+
+    @Test
+    public void thatFailuresAreCounted() {
+
+        long failedCount = getOperationStats("findByTypeAndUrn").getFailedCount();
+
+        try {
+            persistenceService.findByTypeAndUrn(tenantUrn, TYPE, "not a URN");
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        assertEquals(failedCount + 1, getOperationStats("findByTypeAndUrn").getFailedCount());
+    }
+
+    @Test
+    public void thatOperationsAreTimedPerTenant() {
+
+        persistenceService.findAll(tenantUrn);
+
+        assertEquals(1, metrics.getStats()
+            .getTenants()
+            .get(tenantUrn)
+            .get("findAll")
+            .getCount());
+    }
+
+    @Test
+    public void thatTenantsAreKeyedByUuid() {
+
+        persistenceService.findAll(tenantUrn);
+        persistenceService.findAll(tenantUrn.toUpperCase());
+
+        assertEquals(2, metrics.getStats()
+            .getTenants()
+            .get(tenantUrn)
+            .get("findAll")
+            .getCount());
+    }
+
+    @Test
+    public void thatComponentStatisticsAreReported() {
+
+        ThingOperationMetrics.MetricsStats stats = metrics.getStats();
+
+        assertNotNull(stats.getResponseCache());
+        assertNotNull(stats.getIdFilter());
+        assertNotNull(stats.getAsyncExecutor());
+        // the routing is disabled
+        assertNull(stats.getRouting());
+    }
+
+    @Test
+    public void thatHibernateStatisticsAreReported() {
+
+        persistenceService.create(tenantUrn, ThingCreate.builder()
+            .type(TYPE)
+            .build());
+
+        ThingOperationMetrics.HibernateStats hibernate = metrics.getStats()
+            .getHibernate();
+        assertNotNull(hibernate);
+        assertTrue(hibernate.getPrepareStatementCount() > 0);
+        assertTrue(hibernate.getTransactionCount() > 0);
+    }
+
+    private ThingOperationMetrics.OperationStats getOperationStats(String operation) {
+
+        ThingOperationMetrics.OperationStats stats = metrics.getStats()
+            .getOperations()
+            .get(operation);
+        return stats != null ? stats : ThingOperationMetrics.OperationStats.builder()
+            .build();
+    }
+}
@@ -0,0 +1,202 @@
+package net.smartcosmos.dao.things.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import net.smartcosmos.dao.things.RecordingStatementInspector;
+import net.smartcosmos.dao.things.ThingPersistenceConfig;
+import net.smartcosmos.dao.things.ThingsPersistenceTestApplication;
+import net.smartcosmos.dao.things.domain.ThingEntity;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@code EXPLAIN} for the statements of each tenant-scoped repository query and fails if any of them scans the whole table. The
+ * indexes are dropped and recreated from the versioned H2 DDL first, so the plans verify the migration rather than the generated schema.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = { ThingsPersistenceTestApplication.class,
+                                            ThingPersistenceConfig.class })
+@ActiveProfiles("test")
+@WebAppConfiguration
+@IntegrationTest({ "spring.cloud.config.enabled=false", "eureka.client.enabled:false",
+                   "spring.datasource.url=jdbc:h2:mem:things-query-plan;DB_CLOSE_DELAY=-1",
+                   "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                   + "net.smartcosmos.dao.things.RecordingStatementInspector" })
+public class ThingRepositoryQueryPlanTest {
+
+    private static final String FULL_SCAN = ".tableScan";
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final String type = "type";
+    private final List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID());
+
+    @Autowired
+    ThingRepository repository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Before
+    public void setUp() throws Exception {
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String index : new String[] { ThingEntity.TENANT_TYPE_ID_INDEX, ThingEntity.TENANT_TYPE_LAST_MODIFIED_INDEX,
+                                           ThingEntity.TENANT_TYPE_CREATED_INDEX }) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + index);
+        }
+        new ResourceDatabasePopulator(new ClassPathResource("db/schema/h2/thing_query_indexes.sql")).execute(dataSource);
+
+        for (UUID id : ids) {
+            repository.save(ThingEntity.builder()
+                                .id(id)
+                                .tenantId(tenantId)
+                                .type(type)
+                                .active(true)
+                                .build());
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        RecordingStatementInspector.stop();
+        repository.deleteAll();
+    }
+
+    @Test
+    public void thatMigrationCreatesIndexes() {
+
+        List<String> indexes = new JdbcTemplate(dataSource).queryForList(
+            "SELECT DISTINCT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'THING'", String.class);
+
+        assertTrue(indexes.contains(ThingEntity.TENANT_TYPE_ID_INDEX.toUpperCase()));
+        assertTrue(indexes.contains(ThingEntity.TENANT_TYPE_LAST_MODIFIED_INDEX.toUpperCase()));
+        assertTrue(indexes.contains(ThingEntity.TENANT_TYPE_CREATED_INDEX.toUpperCase()));
+    }
+
+    @Test
+    public void thatLookupsByIdUseIndex() throws Exception {
+
+        RecordingStatementInspector.start();
+        repository.findProjectionByIdAndTenantIdAndType(ids.get(0), tenantId, type);
+        repository.findProjectionByIdAndType(ids.get(0), type);
+        repository.findByIdAndTenantId(ids.get(0), tenantId);
+        repository.findByTenantIdAndIdIn(tenantId, ids);
+        repository.findThingIdsByTenantIdAndIdIn(tenantId, ids);
+
+        assertNoFullScan(RecordingStatementInspector.stop());
+    }
+
+    @Test
+    public void thatFindByTenantAndTypeUsesIndex() throws Exception {
+
+        RecordingStatementInspector.start();
+        for (String sortBy : new String[] { "id", "created", "lastModified", "active" }) {
+            repository.findProjectionsByTenantIdAndType(tenantId, type, new PageRequest(0, 10, Sort.Direction.ASC, sortBy));
+            repository.findProjectionSliceByTenantIdAndType(tenantId, type, new PageRequest(1, 10, Sort.Direction.DESC, sortBy));
+        }
+        repository.findProjectionsByTenantIdAndTypeAndIdIn(tenantId, type, ids);
+        repository.findProjectionsByTenantIdAndTypeAndIdIn(tenantId, type, ids, new Sort(Sort.Direction.DESC, "lastModified"));
+        repository.countByTenantIdAndType(tenantId, type);
+
+        assertNoFullScan(RecordingStatementInspector.stop());
+    }
+
+    @Test
+    public void thatFindByTenantUsesIndex() throws Exception {
+
+        RecordingStatementInspector.start();
+        for (String sortBy : new String[] { "id", "type", "created", "lastModified" }) {
+            repository.findProjectionsByTenantId(tenantId, new PageRequest(0, 10, Sort.Direction.ASC, sortBy));
+            repository.findProjectionSliceByTenantId(tenantId, new PageRequest(1, 10, Sort.Direction.DESC, sortBy));
+        }
+        repository.countByTenantIdGroupByType(tenantId);
+
+        assertNoFullScan(RecordingStatementInspector.stop());
+    }
+
+    @Test
+    public void thatKeysetPagesAndScansUseIndex() throws Exception {
+
+        ThingEntity last = repository.findByIdAndTenantIdAndType(ids.get(0), tenantId, type)
+            .get();
+
+        RecordingStatementInspector.start();
+        for (String sortBy : new String[] { "id", "lastModified" }) {
+            Keyset after = Keyset.of(last, sortBy, Sort.Direction.ASC);
+            repository.findByTenantIdAndTypeAfter(tenantId, type, sortBy, Sort.Direction.ASC, after, 10);
+            repository.findByTenantIdAndTypeAfter(tenantId, null, sortBy, Sort.Direction.ASC, after, 10);
+        }
+        repository.forEachIdByTenantIdAndType(tenantId, type, id -> {
+        });
+        repository.forEachByTenantIdAndType(tenantId, null, thing -> {
+        });
+
+        assertNoFullScan(RecordingStatementInspector.stop());
+    }
+
+    @Test
+    public void thatBulkWritesUseIndex() throws Exception {
+
+        RecordingStatementInspector.start();
+        repository.updateActiveByTenantIdAndTypeAndIdIn(tenantId, type, ids, false, new Date());
+        repository.updateActiveByTenantIdAndType(tenantId, type, true, new Date());
+        repository.deleteAllByTenantIdAndTypeAndIdIn(tenantId, type, Collections.singletonList(ids.get(0)));
+        repository.deleteAllByTenantIdAndType(tenantId, type);
+
+        assertNoFullScan(RecordingStatementInspector.stop());
+    }
+
+    private void assertNoFullScan(List<String> statements) throws SQLException {
+
+        assertFalse("No statements were recorded", statements.isEmpty());
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertFalse(String.format("Full table scan for '%s':%n%s", sql, plan), plan.contains(FULL_SCAN));
+        }
+    }
+
+    private String explain(String sql) throws SQLException {
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            // the plan is chosen when the statement is prepared, the values don't matter
+            int parameterCount = statement.getParameterMetaData()
+                .getParameterCount();
+            for (int i = 1; i <= parameterCount; i++) {
+                statement.setObject(i, null);
+            }
+
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1));
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
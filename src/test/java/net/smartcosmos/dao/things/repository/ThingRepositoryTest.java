@@ -1,8 +1,15 @@
 package net.smartcosmos.dao.things.repository;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
 
 import org.junit.*;
 import org.junit.runner.RunWith;
@@ -12,14 +19,21 @@ import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import net.smartcosmos.dao.things.ThingPersistenceConfig;
 import net.smartcosmos.dao.things.ThingsPersistenceTestApplication;
 import net.smartcosmos.dao.things.domain.ThingEntity;
+import net.smartcosmos.dao.things.domain.ThingId;
+import net.smartcosmos.dao.things.domain.ThingProjection;
+import net.smartcosmos.dao.things.domain.ThingTypeEntity;
 
 import static org.junit.Assert.*;
 
@@ -44,6 +58,15 @@ public class ThingRepositoryTest {
 
     @Autowired
     ThingRepository repository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired
+    DataSource dataSource;
     private UUID id;
 
     @Before
@@ -66,15 +89,79 @@ public class ThingRepositoryTest {
     }
 
     @Test
-    public void deleteByIdAndTenantIdAndType() throws Exception {
+    public void deleteAllByTenantIdAndTypeAndIdIn() throws Exception {
 
-        List<ThingEntity> deleteList = repository.deleteByIdAndTenantIdAndType(id, tenantId, type);
+        assertEquals(1, repository.deleteAllByTenantIdAndTypeAndIdIn(tenantId, type, Collections.singletonList(id)));
+        assertFalse(repository.findByIdAndTenantIdAndType(id, tenantId, type)
+                        .isPresent());
+    }
 
-        assertFalse(deleteList.isEmpty());
-        assertEquals(1, deleteList.size());
-        assertEquals(id,
-                     deleteList.get(0)
-                         .getId());
+    @Test
+    public void bulkDeleteDetachesOnlyAffectedEntities() throws Exception {
+
+        UUID otherId = repository.save(ThingEntity.builder()
+                                           .id(UUID.randomUUID())
+                                           .tenantId(tenantId)
+                                           .type(type)
+                                           .build())
+            .getId();
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            ThingEntity deleted = entityManager.find(ThingEntity.class, new ThingId(id, type, tenantId));
+            ThingEntity other = entityManager.find(ThingEntity.class, new ThingId(otherId, type, tenantId));
+            other.setActive(false);
+
+            repository.deleteAllByTenantIdAndTypeAndIdIn(tenantId, type, Collections.singletonList(id));
+            assertEquals(1, repository.detach(tenantId, type, Collections.singletonList(id)));
+
+            assertFalse(entityManager.contains(deleted));
+            assertTrue(entityManager.contains(other));
+            return null;
+        });
+
+        assertFalse(repository.findByIdAndTenantIdAndType(otherId, tenantId, type)
+                        .get()
+                        .getActive());
+    }
+
+    @Test
+    public void bulkUpdateDetachesOnlyAffectedEntities() throws Exception {
+
+        UUID otherId = repository.save(ThingEntity.builder()
+                                           .id(UUID.randomUUID())
+                                           .tenantId(tenantId)
+                                           .type(type)
+                                           .build())
+            .getId();
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            ThingEntity updated = entityManager.find(ThingEntity.class, new ThingId(id, type, tenantId));
+            ThingEntity other = entityManager.find(ThingEntity.class, new ThingId(otherId, type, tenantId));
+            other.setActive(false);
+
+            assertEquals(1, repository.updateActiveByTenantIdAndTypeAndIdIn(tenantId, type, Collections.singletonList(id), false, new Date()));
+            assertEquals(1, repository.detach(tenantId, type, Collections.singletonList(id)));
+
+            assertFalse(entityManager.contains(updated));
+            assertTrue(entityManager.contains(other));
+            return null;
+        });
+
+        assertFalse(repository.findByIdAndTenantIdAndType(id, tenantId, type)
+                        .get()
+                        .getActive());
+        assertFalse(repository.findByIdAndTenantIdAndType(otherId, tenantId, type)
+                        .get()
+                        .getActive());
+    }
+
+    @Test
+    public void typeEntityIsNotMappedWithoutDictionary() throws Exception {
+
+        assertFalse(entityManager.getMetamodel()
+                        .getEntities()
+                        .stream()
+                        .anyMatch(entity -> ThingTypeEntity.class.equals(entity.getJavaType())));
     }
 
     @Test
@@ -131,6 +218,147 @@ public class ThingRepositoryTest {
                          .getId());
     }
 
+    @Test
+    public void findProjectionByIdAndTenantIdAndType() throws Exception {
+
+        Optional<ThingProjection> projection = repository.findProjectionByIdAndTenantIdAndType(id, tenantId, type);
+
+        assertTrue(projection.isPresent());
+        assertEquals(id,
+                     projection.get()
+                         .getId());
+        assertEquals(tenantId,
+                     projection.get()
+                         .getTenantId());
+        assertEquals(type,
+                     projection.get()
+                         .getType());
+        assertTrue(projection.get()
+                       .getActive());
+    }
+
+    @Test
+    public void findProjectionByIdAndType() throws Exception {
+
+        assertTrue(repository.findProjectionByIdAndType(id, type)
+                       .isPresent());
+        assertFalse(repository.findProjectionByIdAndType(id, "otherType")
+                        .isPresent());
+    }
+
+    @Test
+    public void findProjectionsByTenantIdAndType() throws Exception {
+
+        Page<ThingProjection> projectionPage = repository.findProjectionsByTenantIdAndType(tenantId, type, new PageRequest(0, 10));
+
+        assertEquals(1, projectionPage.getTotalElements());
+        assertEquals(id,
+                     projectionPage.getContent()
+                         .get(0)
+                         .getId());
+    }
+
+    @Test
+    public void findProjectionSliceByTenantId() throws Exception {
+
+        Slice<ThingProjection> projectionSlice = repository.findProjectionSliceByTenantId(tenantId, new PageRequest(0, 10, Sort.Direction.ASC, "type"));
+
+        assertFalse(projectionSlice.hasNext());
+        assertEquals(1,
+                     projectionSlice.getContent()
+                         .size());
+        assertEquals(id,
+                     projectionSlice.getContent()
+                         .get(0)
+                         .getId());
+    }
+
+    @Test
+    public void findProjectionsByTenantIdAndTypeAndIdIn() throws Exception {
+
+        List<UUID> uuids = new ArrayList<>();
+        uuids.add(id);
+        uuids.add(UUID.randomUUID());
+
+        List<ThingProjection> projectionList = repository.findProjectionsByTenantIdAndTypeAndIdIn(tenantId, type, uuids, new Sort("id"));
+
+        assertEquals(1, projectionList.size());
+        assertEquals(id,
+                     projectionList.get(0)
+                         .getId());
+    }
+
+    @Test
+    public void persistAllKeepsOtherEntitiesManaged() throws Exception {
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            ThingEntity existing = entityManager.find(ThingEntity.class, new ThingId(id, type, tenantId));
+
+            List<ThingEntity> entities = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                entities.add(ThingEntity.builder()
+                                 .id(UUID.randomUUID())
+                                 .tenantId(tenantId)
+                                 .type(type)
+                                 .build());
+            }
+            List<ThingEntity> persisted = repository.persistAll(entities);
+
+            assertEquals(3, persisted.size());
+            assertTrue(entityManager.contains(existing));
+            assertFalse(entityManager.contains(persisted.get(0)));
+            return null;
+        });
+
+        assertEquals(4, repository.count());
+    }
+
+    @Test
+    public void findByTenantIdAndTypeAfterPagesAcrossNullSortValues() throws Exception {
+
+        final UUID tenantId = UUID.randomUUID();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(repository.save(ThingEntity.builder()
+                                        .id(UUID.randomUUID())
+                                        .tenantId(tenantId)
+                                        .type(type)
+                                        .build())
+                        .getId());
+        }
+        // Things inserted without auditing, e.g. by a migration, have no creation date
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (UUID id : ids.subList(0, 3)) {
+            jdbcTemplate.update("UPDATE thing SET created = NULL WHERE tenantId = ? AND id = ?", toBytes(tenantId), toBytes(id));
+        }
+
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            List<ThingEntity> things = new ArrayList<>();
+            Keyset after = null;
+            // pages of two, so that a page boundary falls between two NULL values and another one right after the last of them
+            for (int page = 0; page < 5; page++) {
+                List<ThingEntity> content = repository.findByTenantIdAndTypeAfter(tenantId, type, "created", direction, after, 2);
+                if (content.isEmpty()) {
+                    break;
+                }
+                things.addAll(content);
+                after = Keyset.of(content.get(content.size() - 1), "created", direction);
+            }
+
+            assertEquals(5, things.size());
+            assertEquals(5,
+                         things.stream()
+                             .map(ThingEntity::getId)
+                             .distinct()
+                             .count());
+            int nullIndex = direction.isAscending() ? 0 : 2;
+            for (int i = nullIndex; i < nullIndex + 3; i++) {
+                assertNull(things.get(i)
+                               .getCreated());
+            }
+        }
+    }
+
     @Test
     public void findByTenantIdPageable() throws Exception {
 
@@ -373,4 +601,12 @@ public class ThingRepositoryTest {
                          .get(29)
                          .getType());
     }
+
+    private static byte[] toBytes(UUID uuid) {
+
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
 }
@@ -1,8 +1,12 @@
 package net.smartcosmos.dao.things.util;
 
 import java.lang.reflect.InvocationTargetException;
+import java.sql.SQLException;
 
 import org.junit.*;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
 
 import static org.junit.Assert.*;
 
@@ -52,4 +56,32 @@ public class ThingPersistenceUtilTest {
         assertEquals("tenantId", ThingPersistenceUtil.normalizeFieldName("TENANTID"));
     }
 
+    @Test
+    public void isDuplicateKey() {
+
+        assertTrue(ThingPersistenceUtil.isDuplicateKey(new DuplicateKeyException("duplicate")));
+        // H2
+        assertTrue(ThingPersistenceUtil.isDuplicateKey(integrityViolation(new SQLException("unique", "23505", 23505))));
+        // MySQL and MariaDB
+        assertTrue(ThingPersistenceUtil.isDuplicateKey(integrityViolation(new SQLException("duplicate entry", "23000", 1062))));
+    }
+
+    @Test
+    public void isNotDuplicateKey() {
+
+        assertFalse(ThingPersistenceUtil.isDuplicateKey(integrityViolation(new SQLException("not null", "23502", 23502))));
+        assertFalse(ThingPersistenceUtil.isDuplicateKey(integrityViolation(new SQLException("foreign key", "23000", 1452))));
+        assertFalse(ThingPersistenceUtil.isDuplicateKey(new DataIntegrityViolationException("no cause")));
+    }
+
+    private static DataIntegrityViolationException integrityViolation(SQLException cause) {
+
+        return new DataIntegrityViolationException("could not execute statement", new RuntimeException(cause));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void isStringFieldComparatorRejected() {
+
+        ThingPersistenceUtil.getFieldComparator("type", Sort.Direction.ASC);
+    }
 }
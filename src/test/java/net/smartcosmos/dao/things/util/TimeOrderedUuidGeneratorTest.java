@@ -0,0 +1,177 @@
+package net.smartcosmos.dao.things.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.uuid.Generators;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class TimeOrderedUuidGeneratorTest {
+
+    private static final long UUID_EPOCH_OFFSET = 0x01B21DD213814000L;
+
+    @Test
+    public void thatLayoutMatchesReorderedVersionOneUuid() {
+
+        UUID versionOneUuid = Generators.timeBasedGenerator()
+            .generate();
+        UUID reordered = reorder(versionOneUuid);
+
+        // the reordered UUID consists of the version nibble and the timestamp, followed by the unchanged clock sequence and node
+        assertEquals(0x1000000000000000L | versionOneUuid.timestamp(), reordered.getMostSignificantBits());
+        assertEquals(versionOneUuid.getLeastSignificantBits(), reordered.getLeastSignificantBits());
+
+        UUID uuid = new TimeOrderedUuidGenerator().generate();
+        assertEquals('1', uuid.toString()
+            .charAt(0));
+        assertEquals(2, uuid.variant());
+        assertTrue((uuid.getLeastSignificantBits() & 0x010000000000L) != 0);
+    }
+
+    @Test
+    public void thatTimestampIsCurrentTime() {
+
+        long before = System.currentTimeMillis();
+        UUID uuid = new TimeOrderedUuidGenerator().generate();
+        long after = System.currentTimeMillis();
+
+        long millis = (TimeOrderedUuidGenerator.getTimestamp(uuid) - UUID_EPOCH_OFFSET) / 10000;
+        assertTrue(millis >= before);
+        assertTrue(millis <= after);
+    }
+
+    @Test
+    public void thatUuidsAreOrdered() {
+
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator();
+
+        UUID previous = generator.generate();
+        for (int i = 0; i < 100000; i++) {
+            UUID uuid = generator.generate();
+            assertTrue(uuid.toString()
+                           .compareTo(previous.toString()) > 0);
+            previous = uuid;
+        }
+    }
+
+    @Test
+    public void thatUuidsAreOrderedIfClockGoesBackwards() {
+
+        AtomicLong clock = new AtomicLong(1000000);
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(clock::get, new Random(42));
+
+        UUID first = generator.generate();
+        clock.set(0);
+        UUID second = generator.generate();
+
+        assertTrue(second.compareTo(first) > 0);
+        assertEquals(TimeOrderedUuidGenerator.getTimestamp(first) + 1, TimeOrderedUuidGenerator.getTimestamp(second));
+    }
+
+    @Test
+    public void thatUuidsAreUniqueAndOrderedAcrossThreads() throws Exception {
+
+        final int threadCount = 8;
+        final int uuidsPerThread = 50000;
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator();
+        Set<UUID> uuids = ConcurrentHashMap.newKeySet();
+        List<String> failures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                UUID previous = null;
+                for (int i = 0; i < uuidsPerThread; i++) {
+                    UUID uuid = generator.generate();
+                    if (previous != null && uuid.compareTo(previous) <= 0) {
+                        synchronized (failures) {
+                            failures.add(previous + " >= " + uuid);
+                        }
+                    }
+                    uuids.add(uuid);
+                    previous = uuid;
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals(threadCount * uuidsPerThread, uuids.size());
+
+        // every UUID generated afterwards is greater than all of them
+        UUID last = generator.generate();
+        for (UUID uuid : uuids) {
+            assertTrue(last.compareTo(uuid) > 0);
+        }
+    }
+
+    @Test
+    public void thatBlocksAreConsecutiveAndUnique() {
+
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator();
+
+        UUID before = generator.generate();
+        TimeOrderedUuidGenerator.Block block = generator.generate(100);
+        UUID after = generator.generate();
+
+        assertEquals(100, block.remaining());
+        UUID previous = block.next();
+        assertTrue(previous.compareTo(before) > 0);
+        while (block.hasNext()) {
+            UUID uuid = block.next();
+            assertEquals(TimeOrderedUuidGenerator.getTimestamp(previous) + 1, TimeOrderedUuidGenerator.getTimestamp(uuid));
+            previous = uuid;
+        }
+        assertTrue(after.compareTo(previous) > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void thatExhaustedBlockThrowsException() {
+
+        TimeOrderedUuidGenerator.Block block = new TimeOrderedUuidGenerator().generate(1);
+
+        block.next();
+        block.next();
+    }
+
+    /**
+     * The former string based implementation of {@link UuidUtil#getNewUuid()}.
+     */
+    private static UUID reorder(UUID versionOneUuid) {
+
+        String[] parts = versionOneUuid.toString()
+            .split("-");
+
+        return UUID.fromString(new StringBuilder(36)
+                                   .append(parts[2])
+                                   .append(parts[1])
+                                   .append("-")
+                                   .append(parts[0].substring(0, 4))
+                                   .append("-")
+                                   .append(parts[0].substring(4, 8))
+                                   .append("-")
+                                   .append(parts[3])
+                                   .append("-")
+                                   .append(parts[4])
+                                   .toString());
+    }
+}
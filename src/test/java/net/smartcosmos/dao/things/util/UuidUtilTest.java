@@ -1,5 +1,6 @@
 package net.smartcosmos.dao.things.util;
 
+import java.util.Random;
 import java.util.UUID;
 
 import org.junit.*;
@@ -40,6 +41,54 @@ public class UuidUtilTest {
         UuidUtil.getUuidFromUrn(urn);
     }
 
+    @Test
+    public void getUuidFromUppercaseUrn() throws Exception {
+
+        final String expectedUuid = "8e24eabd-1be9-46ac-8c7d-1e753746b413";
+        final String urn = "URN:THING:UUID:" + expectedUuid.toUpperCase();
+
+        UUID uuid = UuidUtil.getUuidFromUrn(urn);
+
+        assertEquals(expectedUuid, uuid.toString());
+    }
+
+    @Test
+    public void getUuidFromUrnWithCompositePrefix() throws Exception {
+
+        final String expectedUuid = "ffffffff-0000-46ac-8c7d-1e753746b413";
+        final String urn = "urn:thing:sub:uuid:" + expectedUuid;
+
+        UUID uuid = UuidUtil.getUuidFromUrn(urn);
+
+        assertEquals(UUID.fromString(expectedUuid), uuid);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getUuidFromInvalidUrnHexDigit() throws Exception {
+
+        final String urn = "urn:thing:uuid:8e24eabd-1be9-46ac-8c7d-1e753746b41g";
+        UuidUtil.getUuidFromUrn(urn);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getUuidFromInvalidUrnMissingUuidType() throws Exception {
+
+        final String urn = "urn:thing:8e24eabd-1be9-46ac-8c7d-1e753746b413";
+        UuidUtil.getUuidFromUrn(urn);
+    }
+
+    @Test
+    public void getUuidFromInvalidUrnMessage() throws Exception {
+
+        final String urn = "urn:thing:uuid:8e24eabd";
+        try {
+            UuidUtil.getUuidFromUrn(urn);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Provided URN 'urn:thing:uuid:8e24eabd' does not match the required URN scheme 'urn:{prefix}:uuid:{uuid}'", e.getMessage());
+        }
+    }
+
     @Test
     public void getThingUrnFromUuid() throws Exception {
 
@@ -72,4 +121,71 @@ public class UuidUtilTest {
 
         assertEquals(expectedUrn, urn);
     }
+
+    @Test
+    public void getPrefixUrnFromUuidMatchesUuidToString() throws Exception {
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+
+            assertEquals(("urn:thing:uuid:" + uuid.toString()).toLowerCase(), UuidUtil.getThingUrnFromUuid(uuid));
+        }
+        assertEquals("urn:thing:uuid:00000000-0000-0000-0000-000000000000", UuidUtil.getThingUrnFromUuid(new UUID(0, 0)));
+        assertEquals("urn:thing:uuid:ffffffff-ffff-ffff-ffff-ffffffffffff", UuidUtil.getThingUrnFromUuid(new UUID(-1, -1)));
+    }
+
+    @Test
+    public void getPrefixUrnFromUuidLowerCasesPrefix() throws Exception {
+
+        final String uuid = "8e24eabd-1be9-46ac-8c7d-1e753746b413";
+
+        assertEquals("urn:prefix:uuid:" + uuid, UuidUtil.getPrefixUrnFromUuid("PreFix", UUID.fromString(uuid)));
+    }
+
+    @Test
+    public void getTenantUrnFromUuidIsCached() throws Exception {
+
+        UUID uuid = UUID.randomUUID();
+
+        assertSame(UuidUtil.getTenantUrnFromUuid(uuid), UuidUtil.getTenantUrnFromUuid(uuid));
+    }
+
+    @Test
+    public void getTenantUrnFromUuidWithCollidingTenants() throws Exception {
+
+        // both UUIDs have a hash code of zero, i.e. they share a cache slot
+        UUID first = new UUID(0, 0);
+        UUID second = new UUID(1, 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("urn:tenant:uuid:00000000-0000-0000-0000-000000000000", UuidUtil.getTenantUrnFromUuid(first));
+            assertEquals("urn:tenant:uuid:00000000-0000-0001-0000-000000000001", UuidUtil.getTenantUrnFromUuid(second));
+        }
+    }
+
+    @Test
+    public void getNewUuidIsOrdered() throws Exception {
+
+        UUID first = UuidUtil.getNewUuid();
+        UUID second = UuidUtil.getNewUuid();
+
+        assertTrue(second.toString()
+                       .compareTo(first.toString()) > 0);
+    }
+
+    @Test
+    public void withReservedUuids() throws Exception {
+
+        UUID before = UuidUtil.getNewUuid();
+
+        UUID[] reserved = UuidUtil.withReservedUuids(2, () -> new UUID[] { UuidUtil.getNewUuid(), UuidUtil.getNewUuid(), UuidUtil.getNewUuid() });
+        UUID after = UuidUtil.getNewUuid();
+
+        // the first two come from the block, the third one is generated after it
+        assertTrue(reserved[0].compareTo(before) > 0);
+        assertEquals(TimeOrderedUuidGenerator.getTimestamp(reserved[0]) + 1, TimeOrderedUuidGenerator.getTimestamp(reserved[1]));
+        assertTrue(reserved[2].compareTo(reserved[1]) > 0);
+        assertTrue(after.compareTo(reserved[2]) > 0);
+    }
 }